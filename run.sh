@@ -6,6 +6,12 @@ cd "$(dirname "$0")"
 BENCHMARK_DIR="$(pwd)"
 TIMESTAMP=$(date '+%F_%H%M%S')
 
+# The variation between forks is what the stability report measures, it needs at least two of them
+if [ "$RIGOROUS" == "true" ] && { ! [[ "${FORKS:-5}" =~ ^[0-9]+$ ]] || [ "${FORKS:-5}" -lt 2 ]; }; then
+  echo "ERROR: RIGOROUS=true needs FORKS >= 2, got '$FORKS'" >&2
+  exit 1
+fi
+
 # Build Java
 ./mvnw clean verify
 
@@ -21,6 +27,7 @@ java_options=(
   --add-opens=java.base/java.lang=ALL-UNNAMED
   --add-opens=java.base/jdk.internal.misc=ALL-UNNAMED
   -Xms4g -Xmx4g
+  -Djna.encoding=UTF-8
   "-Dorg.glavo.benchmark.libpath=$BENCHMARK_DIR/src/main/native/library.so"
 )
 
@@ -28,6 +35,72 @@ benchmark_options=(
   -tu ms -f 1 -wi 5 -w 5 -i 5 -r 5
 )
 
+# RIGOROUS=true runs FORKS forks (default 5) with more iterations, each fork pinned with taskset to one CPU of PIN_CPUS
+# (default: the cores isolated with isolcpus=, or the last CPU), records the frequency and governor of those CPUs,
+# and writes the confidence interval and coefficient of variation of every benchmark (see StabilityReport).
+rigorous_options=(
+  -tu ms -f "${FORKS:-5}" -wi 5 -w 5 -i 10 -r 5
+)
+
+expand_cpu_list() {
+  local ranges range
+  IFS=',' read -ra ranges <<< "$1"
+  for range in "${ranges[@]}"; do
+    if [[ "$range" == *-* ]]; then
+      seq "${range%-*}" "${range#*-}"
+    else
+      echo "$range"
+    fi
+  done
+}
+
+record_cpu_state() {
+  echo "# $1: $(date '+%F %T')"
+  echo "loadavg: $(cat /proc/loadavg)"
+  for file in /sys/devices/system/cpu/intel_pstate/no_turbo /sys/devices/system/cpu/cpufreq/boost; do
+    if [ -r "$file" ]; then
+      echo "$file: $(cat "$file")"
+    fi
+  done
+  for cpu in "${pin_cpus[@]}"; do
+    local dir="/sys/devices/system/cpu/cpu$cpu/cpufreq"
+    if [ -d "$dir" ]; then
+      local governor
+      governor=$(cat "$dir/scaling_governor")
+      echo "cpu$cpu: governor=$governor cur=$(cat "$dir/scaling_cur_freq")kHz min=$(cat "$dir/scaling_min_freq")kHz max=$(cat "$dir/scaling_max_freq")kHz"
+      if [ "$governor" != "performance" ]; then
+        echo "WARNING: cpu$cpu uses the $governor governor, results may vary with the frequency" >&2
+      fi
+    else
+      echo "cpu$cpu: cpufreq not available"
+    fi
+  done
+}
+
+if [ "$RIGOROUS" == "true" ]; then
+  if [ -z "$PIN_CPUS" ]; then
+    PIN_CPUS=$(cat /sys/devices/system/cpu/isolated 2>/dev/null || true)
+  fi
+  if [ -z "$PIN_CPUS" ]; then
+    echo "WARNING: no isolated CPUs and PIN_CPUS is not set, pinning to the last CPU" >&2
+    PIN_CPUS=$(($(nproc --all) - 1))
+  fi
+  mapfile -t pin_cpus < <(expand_cpu_list "$PIN_CPUS")
+
+  # JMH starts the forks with this script, which pins every fork to the next CPU of the list
+  pinned_java_dir=$(mktemp -d)
+  trap 'rm -rf "$pinned_java_dir"' EXIT
+  cat > "$pinned_java_dir/java" <<EOF
+#!/usr/bin/env bash
+cpus=(${pin_cpus[*]})
+n=\$(cat "$pinned_java_dir/forks" 2>/dev/null || echo 0)
+echo \$((n + 1)) > "$pinned_java_dir/forks"
+exec taskset -c "\${cpus[n % \${#cpus[@]}]}" "$JAVA_HOME/bin/java" "\$@"
+EOF
+  chmod +x "$pinned_java_dir/java"
+  rigorous_options+=(-jvm "$pinned_java_dir/java")
+fi
+
 if [ "$JIT_COMPILER" == "C1" ]; then
   java_options+=(-XX:TieredStopAtLevel=1)
 elif [ "$JIT_COMPILER" == "NONE" ]; then
@@ -36,9 +109,32 @@ fi
 
 set -x
 
-$JAVA_HOME/bin/java \
-  "${java_options[@]}" \
-  -jar "$BENCHMARK_DIR/target/benchmarks.jar" \
-  -rf json -rff "$BENCHMARK_DIR/logs/benchmark-$TIMESTAMP.json" \
-  "${benchmark_options[@]}" "$@" \
-  2>&1 | tee "$BENCHMARK_DIR/logs/benchmark-$TIMESTAMP.log"
+if [ "$FOOTPRINT" == "true" ]; then
+  $JAVA_HOME/bin/java \
+    "${java_options[@]}" \
+    -cp "$BENCHMARK_DIR/target/benchmarks.jar" \
+    benchmark.FootprintReport \
+    > "$BENCHMARK_DIR/logs/footprint-$TIMESTAMP.md"
+fi
+
+if [ "$RIGOROUS" == "true" ]; then
+  record_cpu_state before > "$BENCHMARK_DIR/logs/cpu-$TIMESTAMP.txt"
+
+  $JAVA_HOME/bin/java \
+    "${java_options[@]}" \
+    "-Dbenchmark.stability.output=$BENCHMARK_DIR/logs/stability-$TIMESTAMP.md" \
+    -cp "$BENCHMARK_DIR/target/benchmarks.jar" \
+    benchmark.StabilityReport \
+    -rf json -rff "$BENCHMARK_DIR/logs/benchmark-$TIMESTAMP.json" \
+    "${rigorous_options[@]}" "$@" \
+    2>&1 | tee "$BENCHMARK_DIR/logs/benchmark-$TIMESTAMP.log"
+
+  record_cpu_state after >> "$BENCHMARK_DIR/logs/cpu-$TIMESTAMP.txt"
+else
+  $JAVA_HOME/bin/java \
+    "${java_options[@]}" \
+    -jar "$BENCHMARK_DIR/target/benchmarks.jar" \
+    -rf json -rff "$BENCHMARK_DIR/logs/benchmark-$TIMESTAMP.json" \
+    "${benchmark_options[@]}" "$@" \
+    2>&1 | tee "$BENCHMARK_DIR/logs/benchmark-$TIMESTAMP.log"
+fi
@@ -0,0 +1,445 @@
+package benchmark.generator;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Generates the benchmark classes and JNI stubs described by {@link GenerateBenchmark}.
+ */
+@SupportedAnnotationTypes("benchmark.generator.GenerateBenchmark")
+public final class BenchmarkGenerator extends AbstractProcessor {
+
+    private enum Binding {
+        JNI, JNA, JNR, PANAMA
+    }
+
+    private record JavaType(String name, String literal) {
+        String value(int n) {
+            return literal.formatted(n);
+        }
+    }
+
+    /*
+     * `c` is the type in the C function, `jni` is the type in the JNI stub.
+     * The Java types of the primitive types are the same for every binding.
+     */
+    private record CType(String c, String jni, String layout, JavaType jniType, JavaType jnaType, JavaType jnrType, JavaType panamaType) {
+        static CType primitive(String java, String jni, String layout, String literal) {
+            JavaType type = new JavaType(java, literal);
+            return new CType(jni, jni, layout, type, type, type, type);
+        }
+
+        boolean isUniform() {
+            return jniType.equals(jnaType) && jniType.equals(jnrType) && jniType.equals(panamaType);
+        }
+
+        JavaType java(Binding binding) {
+            return switch (binding) {
+                case JNI -> jniType;
+                case JNA -> jnaType;
+                case JNR -> jnrType;
+                case PANAMA -> panamaType;
+            };
+        }
+    }
+
+    private static final CType VOID = CType.primitive("void", "void", null, null);
+
+    private static final Map<TypeKind, CType> TYPES = Map.of(
+            TypeKind.BYTE, CType.primitive("byte", "jbyte", "JAVA_BYTE", "(byte) %d"),
+            TypeKind.SHORT, CType.primitive("short", "jshort", "JAVA_SHORT", "(short) %d"),
+            TypeKind.INT, CType.primitive("int", "jint", "JAVA_INT", "%d"),
+            TypeKind.LONG, CType.primitive("long", "jlong", "JAVA_LONG", "%dL"),
+            TypeKind.FLOAT, CType.primitive("float", "jfloat", "JAVA_FLOAT", "%d.0f"),
+            TypeKind.DOUBLE, CType.primitive("double", "jdouble", "JAVA_DOUBLE", "%d.0")
+    );
+
+    // The generated benchmarks only pass the pointers around, the addresses don't point to valid memory
+    private static final CType POINTER = new CType("void *", "jlong", "ADDRESS",
+            new JavaType("long", "%dL"),
+            new JavaType("com.sun.jna.Pointer", "new com.sun.jna.Pointer(%dL)"),
+            new JavaType("jnr.ffi.Pointer", "jnr.ffi.Runtime.getSystemRuntime().getMemoryManager().newPointer(%dL)"),
+            new JavaType("MemorySegment", "MemorySegment.ofAddress(%dL)"));
+
+    private static final List<String> BACKENDS = List.of("Jni", "Jna", "JnaDirect", "Jnr", "JnrIgnoreError", "Panama", "PanamaTrivial");
+
+    private record Parameter(String name, CType type) {
+    }
+
+    private record Function(String cName, String name, CType returnType, List<Parameter> parameters) {
+        boolean isVoid() {
+            return returnType == VOID;
+        }
+
+        String field(Parameter parameter, Binding binding) {
+            String field = name + Character.toUpperCase(parameter.name.charAt(0)) + parameter.name.substring(1);
+            if (parameter.type.isUniform()) {
+                return field;
+            }
+            return field + binding.name().charAt(0) + binding.name().substring(1).toLowerCase(Locale.ROOT);
+        }
+
+        String javaParameters(Binding binding) {
+            return parameters.stream().map(it -> it.type.java(binding).name + " " + it.name).collect(Collectors.joining(", "));
+        }
+
+        String arguments(Binding binding) {
+            return parameters.stream().map(it -> field(it, binding)).collect(Collectors.joining(", "));
+        }
+
+        String javaReturnType() {
+            return returnType.jniType.name;
+        }
+
+        String descriptor() {
+            String layouts = parameters.stream().map(it -> it.type.layout).collect(Collectors.joining(", "));
+            if (isVoid()) {
+                return "FunctionDescriptor.ofVoid(" + layouts + ")";
+            } else {
+                return "FunctionDescriptor.of(" + returnType.layout + (layouts.isEmpty() ? "" : ", " + layouts) + ")";
+            }
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    private void error(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateBenchmark.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                error("@GenerateBenchmark can only be applied to interfaces", element);
+                continue;
+            }
+
+            TypeElement spec = (TypeElement) element;
+            GenerateBenchmark annotation = spec.getAnnotation(GenerateBenchmark.class);
+
+            List<Function> functions = parseFunctions(spec, annotation.prefix());
+            if (functions == null) {
+                continue;
+            }
+
+            String packageName = processingEnv.getElementUtils().getPackageOf(spec).getQualifiedName().toString();
+            try {
+                writeJava(spec, packageName, annotation.value(), functions);
+                writeC(spec, packageName, annotation.value(), functions, annotation.noop());
+            } catch (IOException e) {
+                error("Failed to generate " + annotation.value() + ": " + e, spec);
+            }
+        }
+        return true;
+    }
+
+    private CType toCType(TypeMirror type, boolean isReturnType, Element element) {
+        if (isReturnType && type.getKind() == TypeKind.VOID) {
+            return VOID;
+        }
+
+        if (!isReturnType && type.getKind() == TypeKind.DECLARED
+            && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals("java.lang.foreign.MemorySegment")) {
+            return POINTER;
+        }
+
+        CType res = TYPES.get(type.getKind());
+        if (res == null) {
+            error("Unsupported type: " + type, element);
+        }
+        return res;
+    }
+
+    private static String toJavaName(String cName, String prefix) {
+        String name = cName.startsWith(prefix) ? cName.substring(prefix.length()) : cName;
+
+        StringBuilder builder = new StringBuilder();
+        boolean upper = false;
+        for (int i = 0; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            if (ch == '_') {
+                upper = !builder.isEmpty();
+            } else {
+                builder.append(upper ? Character.toUpperCase(ch) : ch);
+                upper = false;
+            }
+        }
+        return builder.toString();
+    }
+
+    private List<Function> parseFunctions(TypeElement spec, String prefix) {
+        List<Function> functions = new ArrayList<>();
+        boolean failed = false;
+
+        for (ExecutableElement method : ElementFilter.methodsIn(spec.getEnclosedElements())) {
+            if (!method.getModifiers().contains(Modifier.ABSTRACT)) {
+                continue;
+            }
+
+            String cName = method.getSimpleName().toString();
+            String name = toJavaName(cName, prefix);
+            if (name.isEmpty() || !SourceVersion.isIdentifier(name)) {
+                error("Cannot derive a Java method name from " + cName, method);
+                failed = true;
+                continue;
+            }
+
+            CType returnType = toCType(method.getReturnType(), true, method);
+            failed |= returnType == null;
+
+            List<Parameter> parameters = new ArrayList<>();
+            for (VariableElement parameter : method.getParameters()) {
+                String parameterName = parameter.getSimpleName().toString();
+                if (parameterName.equals("env") || parameterName.equals("cls")) {
+                    error("Parameter name is reserved by the JNI stub: " + parameterName, parameter);
+                    failed = true;
+                }
+
+                CType parameterType = toCType(parameter.asType(), false, parameter);
+                failed |= parameterType == null;
+                parameters.add(new Parameter(parameterName, parameterType));
+            }
+
+            functions.add(new Function(cName, name, returnType, parameters));
+        }
+
+        return failed ? null : functions;
+    }
+
+    private void writeJava(TypeElement spec, String packageName, String className, List<Function> functions) throws IOException {
+        String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(qualifiedName, spec).openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("import com.sun.jna.Library;");
+            out.println("import org.openjdk.jmh.annotations.*;");
+            out.println();
+            out.println("import java.lang.foreign.FunctionDescriptor;");
+            out.println("import java.lang.foreign.MemorySegment;");
+            out.println("import java.lang.invoke.MethodHandle;");
+            out.println();
+            out.println("import static benchmark.Helper.downcallHandle;");
+            out.println("import static java.lang.foreign.ValueLayout.*;");
+            out.println();
+            out.println("/*");
+            out.println(" * Generated by " + BenchmarkGenerator.class.getSimpleName() + " from " + spec.getQualifiedName() + ", do not edit.");
+            out.println(" */");
+            out.println("@State(Scope.Benchmark)");
+            out.println("public class " + className + " {");
+
+            out.println("    public interface JnaLib extends Library {");
+            for (Function function : functions) {
+                if (function != functions.getFirst()) {
+                    out.println();
+                }
+                out.println("        " + function.javaReturnType() + " " + function.cName + "(" + function.javaParameters(Binding.JNA) + ");");
+            }
+            out.println("    }");
+            out.println();
+
+            out.println("    public interface JnrLib {");
+            for (Function function : functions) {
+                if (function != functions.getFirst()) {
+                    out.println();
+                }
+                out.println("        " + function.javaReturnType() + " " + function.cName + "(" + function.javaParameters(Binding.JNR) + ");");
+            }
+            out.println("    }");
+            out.println();
+
+            out.println("    private static final class JnaDirect {");
+            for (Function function : functions) {
+                if (function != functions.getFirst()) {
+                    out.println();
+                }
+                out.println("        public static native " + function.javaReturnType() + " " + function.cName + "(" + function.javaParameters(Binding.JNA) + ");");
+            }
+            out.println("    }");
+            out.println();
+
+            out.println("    static {");
+            out.println("        Helper.registerJnaDirect(JnaDirect.class);");
+            out.println("    }");
+            out.println();
+
+            for (Function function : functions) {
+                if (function != functions.getFirst()) {
+                    out.println();
+                }
+                out.println("    private static native " + function.javaReturnType() + " " + function.name + "(" + function.javaParameters(Binding.JNI) + ");");
+            }
+            out.println();
+
+            out.println("    private static final JnaLib JNA = Helper.loadJna(JnaLib.class);");
+            out.println("    private static final JnrLib JNR = Helper.loadJnr(JnrLib.class);");
+            out.println("    private static final JnrLib JNR_IGNORE_ERROR = Helper.loadJnrIgnoreError(JnrLib.class);");
+            out.println();
+
+            for (Function function : functions) {
+                out.println("    private static final MethodHandle " + function.name + " = downcallHandle(\"" + function.cName + "\", " + function.descriptor() + ", false);");
+                out.println("    private static final MethodHandle " + function.name + "Trivial = downcallHandle(\"" + function.cName + "\", " + function.descriptor() + ", true);");
+            }
+
+            for (Function function : functions) {
+                out.println();
+                out.println("    // ========= " + function.name + " =========");
+                out.println();
+
+                // Not final, so the arguments can't be constant folded
+                int n = 1;
+                for (Parameter parameter : function.parameters) {
+                    if (parameter.type.isUniform()) {
+                        out.println("    " + parameter.type.jniType.name + " " + function.field(parameter, Binding.JNI) + " = " + parameter.type.jniType.value(n) + ";");
+                    } else {
+                        for (Binding binding : Binding.values()) {
+                            JavaType type = parameter.type.java(binding);
+                            out.println("    " + type.name + " " + function.field(parameter, binding) + " = " + type.value(n) + ";");
+                        }
+                    }
+                    n++;
+                }
+                if (!function.parameters.isEmpty()) {
+                    out.println();
+                }
+
+                String ret = function.isVoid() ? "" : "return ";
+                String cast = function.isVoid() ? "" : "(" + function.javaReturnType() + ") ";
+
+                writeBenchmark(out, function, "Jni", false, ret + function.name + "(" + function.arguments(Binding.JNI) + ");");
+                writeBenchmark(out, function, "Jna", false, ret + "JNA." + function.cName + "(" + function.arguments(Binding.JNA) + ");");
+                writeBenchmark(out, function, "JnaDirect", false, ret + "JnaDirect." + function.cName + "(" + function.arguments(Binding.JNA) + ");");
+                writeBenchmark(out, function, "Jnr", false, ret + "JNR." + function.cName + "(" + function.arguments(Binding.JNR) + ");");
+                writeBenchmark(out, function, "JnrIgnoreError", false, ret + "JNR_IGNORE_ERROR." + function.cName + "(" + function.arguments(Binding.JNR) + ");");
+                writeBenchmark(out, function, "Panama", true, ret + cast + function.name + ".invokeExact(" + function.arguments(Binding.PANAMA) + ");");
+                writeBenchmark(out, function, "PanamaTrivial", true, ret + cast + function.name + "Trivial.invokeExact(" + function.arguments(Binding.PANAMA) + ");");
+            }
+            out.println();
+
+            out.println("    private static void check(Object expected, Object actual) {");
+            out.println("        if (!expected.equals(actual)) {");
+            out.println("            throw new AssertionError(\"expect: \" + expected + \", actual: \" + actual);");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+
+            out.println("    public static void main(String[] args) throws Throwable {");
+            out.println("        " + className + " benchmark = new " + className + "();");
+            for (Function function : functions) {
+                for (String backend : BACKENDS) {
+                    String method = function.name + backend;
+                    out.println();
+                    out.println("        System.out.println(\"=> Running " + method + "\");");
+                    if (function.isVoid()) {
+                        out.println("        benchmark." + method + "();");
+                    } else if (backend.equals("Jni")) {
+                        out.println("        Object " + function.name + "Expected = benchmark." + method + "();");
+                    } else {
+                        out.println("        check(" + function.name + "Expected, benchmark." + method + "());");
+                    }
+                }
+            }
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private static void writeBenchmark(PrintWriter out, Function function, String backend, boolean throwsThrowable, String statement) {
+        out.println("    @Benchmark");
+        out.println("    public " + function.javaReturnType() + " " + function.name + backend + "()" + (throwsThrowable ? " throws Throwable" : "") + " {");
+        out.println("        " + statement);
+        out.println("    }");
+        out.println();
+    }
+
+    private static String mangle(String name) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            if (ch == '.') {
+                builder.append('_');
+            } else if (ch == '_') {
+                builder.append("_1");
+            } else if (ch < 128 && Character.isLetterOrDigit(ch)) {
+                builder.append(ch);
+            } else {
+                builder.append("_0").append(String.format("%04x", (int) ch));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String declaration(CType type, String name) {
+        return type.c.endsWith("*") ? type.c + name : type.c + " " + name;
+    }
+
+    private void writeC(TypeElement spec, String packageName, String className, List<Function> functions, boolean noop) throws IOException {
+        String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler()
+                .createResource(StandardLocation.SOURCE_OUTPUT, "", "native/" + className + ".c", spec)
+                .openWriter())) {
+            out.println("// Generated by " + BenchmarkGenerator.class.getSimpleName() + " from " + spec.getQualifiedName() + ", do not edit.");
+            out.println();
+            out.println("#include <jni.h>");
+            out.println();
+
+            if (noop) {
+                // Not inlined into the JNI stubs, which call them like the other bindings do
+                for (Function function : functions) {
+                    String parameters = function.parameters.stream().map(it -> declaration(it.type, it.name)).collect(Collectors.joining(", "));
+                    if (function != functions.getFirst()) {
+                        out.println();
+                    }
+                    out.println("__attribute__((noinline)) " + declaration(function.returnType, function.cName)
+                                + "(" + (parameters.isEmpty() ? "void" : parameters) + ") {");
+                    if (!function.isVoid()) {
+                        out.println("    return 0;");
+                    }
+                    out.println("}");
+                }
+            } else {
+                for (Function function : functions) {
+                    String parameterTypes = function.parameters.stream().map(it -> it.type.c).collect(Collectors.joining(", "));
+                    out.println("extern " + function.returnType.c + " " + function.cName + "(" + (parameterTypes.isEmpty() ? "void" : parameterTypes) + ");");
+                }
+            }
+
+            for (Function function : functions) {
+                String parameters = function.parameters.stream().map(it -> ", " + it.type.jni + " " + it.name).collect(Collectors.joining());
+                String arguments = function.parameters.stream()
+                        .map(it -> it.type.c.equals(it.type.jni) ? it.name : "(" + it.type.c + ") " + it.name)
+                        .collect(Collectors.joining(", "));
+
+                out.println();
+                out.println("JNIEXPORT " + function.returnType.jni + " JNICALL Java_" + mangle(qualifiedName) + "_" + mangle(function.name)
+                            + "(JNIEnv *env, jclass cls" + parameters + ") {");
+                out.println("    " + (function.isVoid() ? "" : "return ") + function.cName + "(" + arguments + ");");
+                out.println("}");
+            }
+        }
+    }
+}
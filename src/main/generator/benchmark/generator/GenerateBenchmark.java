@@ -0,0 +1,43 @@
+package benchmark.generator;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates a JMH benchmark class for the C functions declared as the methods of the annotated interface.
+ * <p>
+ * Each method declares a C function with the same name, the parameter and return types must be
+ * {@code byte}, {@code short}, {@code int}, {@code long}, {@code float} or {@code double} (or {@code void} for the return type).
+ * Parameters can also be {@link java.lang.foreign.MemorySegment}s, which are pointers ({@code void *}) in C,
+ * {@code Pointer}s for JNA and JNR and {@code long} addresses for JNI. The generated benchmarks pass arbitrary addresses,
+ * so the C functions must not dereference them.
+ * The generated class is placed in the same package, which must be {@code benchmark} so it can use {@code Helper},
+ * and contains the JNA, JNA direct mapping, JNR, JNI and Panama bindings
+ * and a benchmark method for each of them.
+ * <p>
+ * The JNI stubs are generated into {@code native/<value>.c} in the generated sources directory,
+ * and linked into {@code library.so} by the Makefile. With {@link #noop()}, the C functions themselves are generated
+ * there too, otherwise they must be implemented in {@code library.c}.
+ *
+ * @see BenchmarkGenerator
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateBenchmark {
+    /**
+     * The simple name of the generated benchmark class.
+     */
+    String value();
+
+    /**
+     * The prefix removed from the C function names to get the Java method names.
+     */
+    String prefix() default "ffi_benchmark_";
+
+    /**
+     * Whether to generate the C functions as no-ops that return {@code 0}, next to the JNI stubs.
+     */
+    boolean noop() default false;
+}
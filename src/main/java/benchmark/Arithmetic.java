@@ -0,0 +1,17 @@
+package benchmark;
+
+import benchmark.generator.GenerateBenchmark;
+
+/*
+ * The C functions are implemented in library.c
+ */
+@GenerateBenchmark("ArithmeticBenchmark")
+interface Arithmetic {
+    int ffi_benchmark_add_ints(int a, int b);
+
+    long ffi_benchmark_add_longs(long a, long b);
+
+    double ffi_benchmark_add_doubles(double a, double b);
+
+    double ffi_benchmark_add_mixed(byte a, short b, int c, long d, float e, double f);
+}
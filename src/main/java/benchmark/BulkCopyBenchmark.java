@@ -0,0 +1,316 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+import static benchmark.Helper.downcallHandle;
+import static java.lang.foreign.ValueLayout.*;
+
+@State(Scope.Benchmark)
+public class BulkCopyBenchmark {
+
+    private static native void copyBytes(long address, byte[] array, int length);
+
+    private static native void copyInts(long address, int[] array, int length);
+
+    private static native void copyDoubles(long address, double[] array, int length);
+
+    private static final MethodHandle fillBytes = downcallHandle("ffi_benchmark_fill_bytes", FunctionDescriptor.ofVoid(ADDRESS, JAVA_LONG), false);
+    private static final MethodHandle fillInts = downcallHandle("ffi_benchmark_fill_ints", FunctionDescriptor.ofVoid(ADDRESS, JAVA_LONG), false);
+    private static final MethodHandle fillDoubles = downcallHandle("ffi_benchmark_fill_doubles", FunctionDescriptor.ofVoid(ADDRESS, JAVA_LONG), false);
+
+    // 64 B ~ 256 MiB
+    @Param({"64", "1024", "16384", "262144", "4194304", "67108864", "268435456"})
+    int size;
+
+    Arena benchmarkArena;
+
+    MemorySegment bytesSegment;
+    MemorySegment intsSegment;
+    MemorySegment doublesSegment;
+
+    ByteBuffer bytesBuffer;
+    IntBuffer intsBuffer;
+    DoubleBuffer doublesBuffer;
+
+    com.sun.jna.Pointer bytesJnaPointer;
+    com.sun.jna.Pointer intsJnaPointer;
+    com.sun.jna.Pointer doublesJnaPointer;
+
+    jnr.ffi.Pointer bytesJnrPointer;
+    jnr.ffi.Pointer intsJnrPointer;
+    jnr.ffi.Pointer doublesJnrPointer;
+
+    byte[] bytes;
+    int[] ints;
+    double[] doubles;
+
+    @Setup
+    public void setup() throws Throwable {
+        benchmarkArena = Arena.ofConfined();
+
+        bytesSegment = benchmarkArena.allocate(size, 8);
+        intsSegment = benchmarkArena.allocate(size, 8);
+        doublesSegment = benchmarkArena.allocate(size, 8);
+
+        fillBytes.invokeExact(bytesSegment, bytesSegment.byteSize());
+        fillInts.invokeExact(intsSegment, intsSegment.byteSize() / Integer.BYTES);
+        fillDoubles.invokeExact(doublesSegment, doublesSegment.byteSize() / Double.BYTES);
+
+        bytesBuffer = bytesSegment.asByteBuffer();
+        intsBuffer = intsSegment.asByteBuffer().order(ByteOrder.nativeOrder()).asIntBuffer();
+        doublesBuffer = doublesSegment.asByteBuffer().order(ByteOrder.nativeOrder()).asDoubleBuffer();
+
+        bytesJnaPointer = new com.sun.jna.Pointer(bytesSegment.address());
+        intsJnaPointer = new com.sun.jna.Pointer(intsSegment.address());
+        doublesJnaPointer = new com.sun.jna.Pointer(doublesSegment.address());
+
+        jnr.ffi.provider.MemoryManager memoryManager = jnr.ffi.Runtime.getSystemRuntime().getMemoryManager();
+        bytesJnrPointer = memoryManager.newPointer(bytesSegment.address());
+        intsJnrPointer = memoryManager.newPointer(intsSegment.address());
+        doublesJnrPointer = memoryManager.newPointer(doublesSegment.address());
+
+        bytes = new byte[size];
+        ints = new int[size / Integer.BYTES];
+        doubles = new double[size / Double.BYTES];
+    }
+
+    @TearDown
+    public void cleanup() {
+        benchmarkArena.close();
+        benchmarkArena = null;
+
+        bytesSegment = null;
+        intsSegment = null;
+        doublesSegment = null;
+
+        bytesBuffer = null;
+        intsBuffer = null;
+        doublesBuffer = null;
+
+        bytesJnaPointer = null;
+        intsJnaPointer = null;
+        doublesJnaPointer = null;
+
+        bytesJnrPointer = null;
+        intsJnrPointer = null;
+        doublesJnrPointer = null;
+
+        bytes = null;
+        ints = null;
+        doubles = null;
+    }
+
+    // ========= byte =========
+
+    @Benchmark
+    public byte[] copyBytesJni() {
+        copyBytes(bytesSegment.address(), bytes, bytes.length);
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] copyBytesJna() {
+        bytesJnaPointer.read(0, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] copyBytesJnr() {
+        bytesJnrPointer.get(0, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] copyBytesByteBuffer() {
+        bytesBuffer.get(0, bytes);
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] copyBytesPanama() {
+        MemorySegment.copy(bytesSegment, JAVA_BYTE, 0, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] copyBytesPanamaToArray() {
+        return bytesSegment.toArray(JAVA_BYTE);
+    }
+
+    // ========= int =========
+
+    @Benchmark
+    public int[] copyIntsJni() {
+        copyInts(intsSegment.address(), ints, ints.length);
+        return ints;
+    }
+
+    @Benchmark
+    public int[] copyIntsJna() {
+        intsJnaPointer.read(0, ints, 0, ints.length);
+        return ints;
+    }
+
+    @Benchmark
+    public int[] copyIntsJnr() {
+        intsJnrPointer.get(0, ints, 0, ints.length);
+        return ints;
+    }
+
+    @Benchmark
+    public int[] copyIntsByteBuffer() {
+        intsBuffer.get(0, ints);
+        return ints;
+    }
+
+    @Benchmark
+    public int[] copyIntsPanama() {
+        MemorySegment.copy(intsSegment, JAVA_INT, 0, ints, 0, ints.length);
+        return ints;
+    }
+
+    @Benchmark
+    public int[] copyIntsPanamaToArray() {
+        return intsSegment.toArray(JAVA_INT);
+    }
+
+    // ========= double =========
+
+    @Benchmark
+    public double[] copyDoublesJni() {
+        copyDoubles(doublesSegment.address(), doubles, doubles.length);
+        return doubles;
+    }
+
+    @Benchmark
+    public double[] copyDoublesJna() {
+        doublesJnaPointer.read(0, doubles, 0, doubles.length);
+        return doubles;
+    }
+
+    @Benchmark
+    public double[] copyDoublesJnr() {
+        doublesJnrPointer.get(0, doubles, 0, doubles.length);
+        return doubles;
+    }
+
+    @Benchmark
+    public double[] copyDoublesByteBuffer() {
+        doublesBuffer.get(0, doubles);
+        return doubles;
+    }
+
+    @Benchmark
+    public double[] copyDoublesPanama() {
+        MemorySegment.copy(doublesSegment, JAVA_DOUBLE, 0, doubles, 0, doubles.length);
+        return doubles;
+    }
+
+    @Benchmark
+    public double[] copyDoublesPanamaToArray() {
+        return doublesSegment.toArray(JAVA_DOUBLE);
+    }
+
+    private static void checkBytes(byte[] array) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] != (byte) i) {
+                throw new AssertionError("Invalid value at index " + i);
+            }
+        }
+    }
+
+    private static void checkInts(int[] array) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] != i) {
+                throw new AssertionError("Invalid value at index " + i);
+            }
+        }
+    }
+
+    private static void checkDoubles(double[] array) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] != (double) i) {
+                throw new AssertionError("Invalid value at index " + i);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Throwable {
+        int[] sizes = {64, 1024, 16384};
+
+        for (int size : sizes) {
+            System.out.println("# size = " + size);
+
+            BulkCopyBenchmark benchmark = new BulkCopyBenchmark();
+            benchmark.size = size;
+            benchmark.setup();
+
+            try {
+                System.out.println("=> Running copyBytesJni");
+                checkBytes(benchmark.copyBytesJni());
+
+                System.out.println("=> Running copyBytesJna");
+                checkBytes(benchmark.copyBytesJna());
+
+                System.out.println("=> Running copyBytesJnr");
+                checkBytes(benchmark.copyBytesJnr());
+
+                System.out.println("=> Running copyBytesByteBuffer");
+                checkBytes(benchmark.copyBytesByteBuffer());
+
+                System.out.println("=> Running copyBytesPanama");
+                checkBytes(benchmark.copyBytesPanama());
+
+                System.out.println("=> Running copyBytesPanamaToArray");
+                checkBytes(benchmark.copyBytesPanamaToArray());
+
+                System.out.println("=> Running copyIntsJni");
+                checkInts(benchmark.copyIntsJni());
+
+                System.out.println("=> Running copyIntsJna");
+                checkInts(benchmark.copyIntsJna());
+
+                System.out.println("=> Running copyIntsJnr");
+                checkInts(benchmark.copyIntsJnr());
+
+                System.out.println("=> Running copyIntsByteBuffer");
+                checkInts(benchmark.copyIntsByteBuffer());
+
+                System.out.println("=> Running copyIntsPanama");
+                checkInts(benchmark.copyIntsPanama());
+
+                System.out.println("=> Running copyIntsPanamaToArray");
+                checkInts(benchmark.copyIntsPanamaToArray());
+
+                System.out.println("=> Running copyDoublesJni");
+                checkDoubles(benchmark.copyDoublesJni());
+
+                System.out.println("=> Running copyDoublesJna");
+                checkDoubles(benchmark.copyDoublesJna());
+
+                System.out.println("=> Running copyDoublesJnr");
+                checkDoubles(benchmark.copyDoublesJnr());
+
+                System.out.println("=> Running copyDoublesByteBuffer");
+                checkDoubles(benchmark.copyDoublesByteBuffer());
+
+                System.out.println("=> Running copyDoublesPanama");
+                checkDoubles(benchmark.copyDoublesPanama());
+
+                System.out.println("=> Running copyDoublesPanamaToArray");
+                checkDoubles(benchmark.copyDoublesPanamaToArray());
+            } finally {
+                benchmark.cleanup();
+            }
+        }
+    }
+}
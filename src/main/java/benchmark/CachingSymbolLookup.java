@@ -0,0 +1,31 @@
+package benchmark;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A symbol lookup that remembers the result of every lookup, including the missing symbols.
+ * <p>
+ * {@link SymbolLookup#loaderLookup()} and {@link SymbolLookup#libraryLookup} call {@code dlsym} for every lookup,
+ * which matters when bindings are created lazily, one symbol at a time.
+ */
+public final class CachingSymbolLookup implements SymbolLookup {
+
+    private final SymbolLookup lookup;
+    private final ConcurrentHashMap<String, Optional<MemorySegment>> index = new ConcurrentHashMap<>();
+
+    public CachingSymbolLookup(SymbolLookup lookup) {
+        this.lookup = lookup;
+    }
+
+    @Override
+    public Optional<MemorySegment> find(String name) {
+        Optional<MemorySegment> symbol = index.get(name);
+        if (symbol == null) {
+            symbol = index.computeIfAbsent(name, lookup::find);
+        }
+        return symbol;
+    }
+}
@@ -0,0 +1,84 @@
+package benchmark;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Maps Java objects to handles that can be passed to native code as a {@code void *} context argument.
+ * <p>
+ * This lets a single upcall stub (a trampoline) serve callbacks that capture state: the state is registered here,
+ * the handle is passed to the native function next to the stub, and the stub gets it back as its context argument.
+ * Handle {@code 0} is never used, so it can't be confused with {@code NULL}.
+ */
+public final class ContextHandles {
+
+    // get runs on the threads of upcalls without the lock, so the elements are written with release and read with acquire
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private static final ReentrantLock lock = new ReentrantLock();
+
+    private static volatile Object[] slots = new Object[16];
+    private static int[] freeSlots = new int[16];
+    private static int freeCount = 0;
+    private static int nextSlot = 0;
+
+    private ContextHandles() {
+    }
+
+    public static long register(Object context) {
+        if (context == null) {
+            throw new NullPointerException();
+        }
+
+        lock.lock();
+        try {
+            int index;
+            if (freeCount > 0) {
+                index = freeSlots[--freeCount];
+            } else {
+                index = nextSlot++;
+                if (index == slots.length) {
+                    slots = Arrays.copyOf(slots, index * 2);
+                }
+            }
+            SLOT.setRelease(slots, index, context);
+            return index + 1L;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static Object get(long handle) {
+        Object[] slots = ContextHandles.slots;
+        Object context = handle > 0 && handle <= slots.length ? SLOT.getAcquire(slots, (int) (handle - 1)) : null;
+        if (context == null) {
+            throw new IllegalStateException("Invalid handle: " + handle);
+        }
+        return context;
+    }
+
+    public static Object get(MemorySegment handle) {
+        return get(handle.address());
+    }
+
+    public static void unregister(long handle) {
+        lock.lock();
+        try {
+            if (handle <= 0 || handle > slots.length || slots[(int) (handle - 1)] == null) {
+                throw new IllegalStateException("Invalid handle: " + handle);
+            }
+            int index = (int) (handle - 1);
+            SLOT.setRelease(slots, index, null);
+
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = index;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package benchmark;
+
+import com.sun.jna.Library;
+import jnr.ffi.annotations.In;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+import static benchmark.Helper.downcallHandle;
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+@State(Scope.Benchmark)
+public class DirectBufferBenchmark {
+    public interface JnaLib extends Library {
+        long ffi_benchmark_accept_buffer(ByteBuffer buffer, long size);
+
+        com.sun.jna.Pointer ffi_benchmark_get_buffer(long size);
+    }
+
+    public interface JnrLib {
+        long ffi_benchmark_accept_buffer(@In ByteBuffer buffer, long size);
+    }
+
+    private static final class JnaDirect {
+        public static native long ffi_benchmark_accept_buffer(ByteBuffer buffer, long size);
+
+        public static native com.sun.jna.Pointer ffi_benchmark_get_buffer(long size);
+    }
+
+    static {
+        Helper.registerJnaDirect(JnaDirect.class);
+    }
+
+    private static native long acceptBuffer(ByteBuffer buffer);
+
+    private static native ByteBuffer getBuffer(long size);
+
+    private static final JnaLib JNA = Helper.loadJna(JnaLib.class);
+    private static final JnrLib JNR = Helper.loadJnr(JnrLib.class);
+    private static final JnrLib JNR_IGNORE_ERROR = Helper.loadJnrIgnoreError(JnrLib.class);
+
+    private static final MethodHandle acceptBuffer = downcallHandle("ffi_benchmark_accept_buffer", FunctionDescriptor.of(JAVA_LONG, ADDRESS, JAVA_LONG), false);
+    private static final MethodHandle acceptBufferTrivial = downcallHandle("ffi_benchmark_accept_buffer", FunctionDescriptor.of(JAVA_LONG, ADDRESS, JAVA_LONG), true);
+
+    private static final MethodHandle getBuffer = downcallHandle("ffi_benchmark_get_buffer", FunctionDescriptor.of(ADDRESS, JAVA_LONG), false);
+    private static final MethodHandle getBufferTrivial = downcallHandle("ffi_benchmark_get_buffer", FunctionDescriptor.of(ADDRESS, JAVA_LONG), true);
+
+    // Small per-message buffers and large pooled buffers
+    @Param({"64", "256", "1024", "1048576", "16777216"})
+    int size;
+
+    ByteBuffer buffer;
+
+    private static long expectedChecksum(int size) {
+        return size == 0 ? 0 : (byte) (size - 1);
+    }
+
+    @Setup
+    public void setup() {
+        buffer = ByteBuffer.allocateDirect(size);
+        for (int i = 0; i < size; i++) {
+            buffer.put(i, (byte) i);
+        }
+    }
+
+    @TearDown
+    public void cleanup() {
+        buffer = null;
+    }
+
+    // ========= Java to C =========
+
+    @Benchmark
+    public long passBufferToNativeJni() {
+        return acceptBuffer(buffer);
+    }
+
+    @Benchmark
+    public long passBufferToNativeJna() {
+        return JNA.ffi_benchmark_accept_buffer(buffer, buffer.remaining());
+    }
+
+    @Benchmark
+    public long passBufferToNativeJnaDirect() {
+        return JnaDirect.ffi_benchmark_accept_buffer(buffer, buffer.remaining());
+    }
+
+    @Benchmark
+    public long passBufferToNativeJnr() {
+        return JNR.ffi_benchmark_accept_buffer(buffer, buffer.remaining());
+    }
+
+    @Benchmark
+    public long passBufferToNativeJnrIgnoreError() {
+        return JNR_IGNORE_ERROR.ffi_benchmark_accept_buffer(buffer, buffer.remaining());
+    }
+
+    @Benchmark
+    public long passBufferToNativePanama() throws Throwable {
+        return (long) acceptBuffer.invokeExact(MemorySegment.ofBuffer(buffer), (long) buffer.remaining());
+    }
+
+    @Benchmark
+    public long passBufferToNativePanamaTrivial() throws Throwable {
+        return (long) acceptBufferTrivial.invokeExact(MemorySegment.ofBuffer(buffer), (long) buffer.remaining());
+    }
+
+    // ========= C to Java =========
+
+    @Benchmark
+    public ByteBuffer getBufferFromNativeJni() {
+        return getBuffer(size);
+    }
+
+    @Benchmark
+    public ByteBuffer getBufferFromNativeJna() {
+        return JNA.ffi_benchmark_get_buffer(size).getByteBuffer(0, size);
+    }
+
+    @Benchmark
+    public ByteBuffer getBufferFromNativeJnaDirect() {
+        return JnaDirect.ffi_benchmark_get_buffer(size).getByteBuffer(0, size);
+    }
+
+    @Benchmark
+    public ByteBuffer getBufferFromNativePanama() throws Throwable {
+        return ((MemorySegment) getBuffer.invokeExact((long) size)).reinterpret(size).asByteBuffer();
+    }
+
+    @Benchmark
+    public ByteBuffer getBufferFromNativePanamaTrivial() throws Throwable {
+        return ((MemorySegment) getBufferTrivial.invokeExact((long) size)).reinterpret(size).asByteBuffer();
+    }
+
+    public static void main(String[] args) throws Throwable {
+        int[] sizes = {64, 256, 1024, 1048576};
+        for (int size : sizes) {
+            System.out.println("# size = " + size);
+
+            DirectBufferBenchmark benchmark = new DirectBufferBenchmark();
+            benchmark.size = size;
+            benchmark.setup();
+
+            long checksum = expectedChecksum(size);
+            Consumer<Long> checker = v -> {
+                if (v != checksum) {
+                    throw new AssertionError("expect: " + checksum + ", actual: " + v);
+                }
+            };
+
+            Consumer<ByteBuffer> bufferChecker = v -> {
+                if (!v.isDirect() || v.capacity() != size) {
+                    throw new AssertionError("Invalid buffer: " + v);
+                }
+                for (int i = 0; i < size; i++) {
+                    if (v.get(i) != (byte) i) {
+                        throw new AssertionError("Invalid value at index " + i);
+                    }
+                }
+            };
+
+            try {
+                System.out.println("=> Running passBufferToNativeJni");
+                checker.accept(benchmark.passBufferToNativeJni());
+
+                System.out.println("=> Running passBufferToNativeJna");
+                checker.accept(benchmark.passBufferToNativeJna());
+
+                System.out.println("=> Running passBufferToNativeJnaDirect");
+                checker.accept(benchmark.passBufferToNativeJnaDirect());
+
+                System.out.println("=> Running passBufferToNativeJnr");
+                checker.accept(benchmark.passBufferToNativeJnr());
+
+                System.out.println("=> Running passBufferToNativeJnrIgnoreError");
+                checker.accept(benchmark.passBufferToNativeJnrIgnoreError());
+
+                System.out.println("=> Running passBufferToNativePanama");
+                checker.accept(benchmark.passBufferToNativePanama());
+
+                System.out.println("=> Running passBufferToNativePanamaTrivial");
+                checker.accept(benchmark.passBufferToNativePanamaTrivial());
+
+                System.out.println("=> Running getBufferFromNativeJni");
+                bufferChecker.accept(benchmark.getBufferFromNativeJni());
+
+                System.out.println("=> Running getBufferFromNativeJna");
+                bufferChecker.accept(benchmark.getBufferFromNativeJna());
+
+                System.out.println("=> Running getBufferFromNativeJnaDirect");
+                bufferChecker.accept(benchmark.getBufferFromNativeJnaDirect());
+
+                System.out.println("=> Running getBufferFromNativePanama");
+                bufferChecker.accept(benchmark.getBufferFromNativePanama());
+
+                System.out.println("=> Running getBufferFromNativePanamaTrivial");
+                bufferChecker.accept(benchmark.getBufferFromNativePanamaTrivial());
+            } finally {
+                benchmark.cleanup();
+            }
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package benchmark;
+
+import com.sun.jna.Callback;
+import com.sun.jna.Library;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Structure;
+
+import javax.management.ObjectName;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.foreign.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static java.lang.foreign.ValueLayout.*;
+
+/*
+ * Reports the memory footprint of the bindings of each backend.
+ *
+ * For every backend, a child JVM with Native Memory Tracking enabled loads the bindings of that backend for all benchmark classes,
+ * then reports NMT categories, RSS, metaspace, code cache and heap retained. The table shows the difference to the baseline JVM,
+ * which only loaded library.so.
+ *
+ * The bindings are found by the naming convention of the benchmark classes, without initializing them:
+ * Jna* and NativeLib interfaces are loaded by JNA, Jnr* and NativeLib interfaces by JNR, JnaDirect classes are registered,
+ * and Panama downcall handles (and upcall stubs for callbacks) are created from the signatures of the JNA interfaces.
+ */
+public final class FootprintReport {
+
+    // JNI methods are linked lazily on the first call and need nothing but library.so, so the baseline is also the JNI footprint.
+    // The NATIVE_STACK backends are the stacks of NATIVE_STACK_THREADS threads with each NativeStack.Memory mode.
+    enum Backend {
+        BASELINE, JNA, JNA_DIRECT, JNR, PANAMA, NATIVE_STACK, NATIVE_STACK_MMAP, NATIVE_STACK_HUGEPAGE
+    }
+
+    private static final String PREFIX = "footprint: ";
+
+    private static final int NATIVE_STACK_THREADS = Integer.getInteger("benchmark.footprint.threads", 16);
+
+    private static final Pattern NMT_CATEGORY = Pattern.compile("^-\\s+(.+?) \\(reserved=(\\d+)KB, committed=(\\d+)KB\\)");
+    private static final Pattern NMT_TOTAL = Pattern.compile("^Total: reserved=(\\d+)KB, committed=(\\d+)KB");
+
+    private FootprintReport() {
+    }
+
+    // ========= child JVM =========
+
+    private static List<Class<?>> benchmarkClasses() throws IOException, URISyntaxException, ClassNotFoundException {
+        Path location = Path.of(FootprintReport.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+        List<String> names = new ArrayList<>();
+        if (Files.isDirectory(location)) {
+            try (Stream<Path> files = Files.list(location.resolve("benchmark"))) {
+                files.map(it -> it.getFileName().toString()).forEach(names::add);
+            }
+        } else {
+            try (JarFile jar = new JarFile(location.toFile())) {
+                jar.stream()
+                        .map(it -> it.getName())
+                        .filter(it -> it.startsWith("benchmark/") && it.indexOf('/', "benchmark/".length()) < 0)
+                        .map(it -> it.substring("benchmark/".length()))
+                        .forEach(names::add);
+            }
+        }
+
+        List<Class<?>> classes = new ArrayList<>();
+        for (String name : names) {
+            if (name.endsWith(".class") && !name.contains("$")) {
+                classes.add(Class.forName("benchmark." + name.substring(0, name.length() - ".class".length()), false, FootprintReport.class.getClassLoader()));
+            }
+        }
+        classes.sort(Comparator.comparing(Class::getName));
+        return classes;
+    }
+
+    private static boolean isJnaLibrary(Class<?> clazz) {
+        return clazz.isInterface() && (clazz.getSimpleName().startsWith("Jna") || clazz.getSimpleName().equals("NativeLib"));
+    }
+
+    private static boolean isJnrLibrary(Class<?> clazz) {
+        return clazz.isInterface() && (clazz.getSimpleName().startsWith("Jnr") || clazz.getSimpleName().equals("NativeLib"));
+    }
+
+    private static MemoryLayout toLayout(Class<?> type) {
+        if (type == byte.class) return JAVA_BYTE;
+        if (type == short.class) return JAVA_SHORT;
+        if (type == char.class) return JAVA_CHAR;
+        if (type == int.class || type == boolean.class) return JAVA_INT;
+        if (type == long.class || type == NativeLong.class) return JAVA_LONG;
+        if (type == float.class) return JAVA_FLOAT;
+        if (type == double.class) return JAVA_DOUBLE;
+        return ADDRESS;
+    }
+
+    private static FunctionDescriptor toDescriptor(Method method) {
+        MemoryLayout[] arguments = Arrays.stream(method.getParameterTypes()).map(FootprintReport::toLayout).toArray(MemoryLayout[]::new);
+        return method.getReturnType() == void.class
+                ? FunctionDescriptor.ofVoid(arguments)
+                : FunctionDescriptor.of(toLayout(method.getReturnType()), arguments);
+    }
+
+    private static final List<Object> retained = new ArrayList<>();
+
+    private static int loadBindings(Backend backend, Class<?> benchmark) throws Throwable {
+        int count = 0;
+        for (Class<?> nested : benchmark.getDeclaredClasses()) {
+            switch (backend) {
+                case JNA -> {
+                    if (isJnaLibrary(nested) && Library.class.isAssignableFrom(nested)) {
+                        @SuppressWarnings("unchecked")
+                        Class<? extends Library> library = (Class<? extends Library>) nested;
+                        retained.add(Helper.loadJna(library));
+                        count++;
+                    } else if (Structure.class.isAssignableFrom(nested) && !Modifier.isAbstract(nested.getModifiers())) {
+                        Constructor<?> constructor = nested.getDeclaredConstructor();
+                        constructor.setAccessible(true);
+                        retained.add(constructor.newInstance());
+                        count++;
+                    }
+                }
+                case JNA_DIRECT -> {
+                    if (nested.getSimpleName().equals("JnaDirect")) {
+                        try {
+                            Helper.registerJnaDirect(nested);
+                            count++;
+                        } catch (UnsatisfiedLinkError ignored) {
+                        }
+                    }
+                }
+                case JNR -> {
+                    if (isJnrLibrary(nested)) {
+                        retained.add(Helper.loadJnr(nested));
+                        retained.add(Helper.loadJnrIgnoreError(nested));
+                        count += 2;
+                    } else if (jnr.ffi.Struct.class.isAssignableFrom(nested)) {
+                        Constructor<?> constructor = nested.getDeclaredConstructor(jnr.ffi.Runtime.class);
+                        constructor.setAccessible(true);
+                        retained.add(constructor.newInstance(jnr.ffi.Runtime.getSystemRuntime()));
+                        count++;
+                    }
+                }
+                case PANAMA -> {
+                    if (isJnaLibrary(nested)) {
+                        SymbolLookup lookup = SymbolLookup.loaderLookup().or(Linker.nativeLinker().defaultLookup());
+                        for (Method method : nested.getDeclaredMethods()) {
+                            if (lookup.find(method.getName()).isEmpty()) {
+                                continue;
+                            }
+                            FunctionDescriptor descriptor = toDescriptor(method);
+                            retained.add(Helper.downcallHandle(lookup, method.getName(), descriptor, false));
+                            retained.add(Helper.downcallHandle(lookup, method.getName(), descriptor, true));
+                            count += 2;
+                        }
+
+                        for (Class<?> callback : nested.getDeclaredClasses()) {
+                            if (Callback.class.isAssignableFrom(callback)) {
+                                for (Method method : callback.getDeclaredMethods()) {
+                                    if (method.getName().equals("invoke")) {
+                                        FunctionDescriptor descriptor = toDescriptor(method);
+                                        MethodHandle target = MethodHandles.empty(descriptor.toMethodType());
+                                        retained.add(Helper.upcallStub(target, descriptor, Arena.global()));
+                                        count++;
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return count;
+    }
+
+    private static CountDownLatch startNativeStackThreads() throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(NATIVE_STACK_THREADS);
+        CountDownLatch exit = new CountDownLatch(1);
+        for (int i = 0; i < NATIVE_STACK_THREADS; i++) {
+            Thread thread = new Thread(() -> {
+                try (NativeStack stack = NativeStack.pushStack()) {
+                    stack.allocate(JAVA_LONG).set(JAVA_LONG, 0, 0L);
+                    ready.countDown();
+                    exit.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        ready.await();
+        return exit;
+    }
+
+    private static void report(String name, long kb) {
+        System.out.println(PREFIX + name + "=" + kb);
+    }
+
+    private static void child(Backend backend) throws Throwable {
+        Class.forName("benchmark.Helper");
+
+        // Every backend loads the same benchmark classes and their nested classes (loadBindings creates nothing for
+        // BASELINE and the NATIVE_STACK backends), so that the deltas to the baseline are the bindings alone
+        int count = 0;
+        for (Class<?> clazz : benchmarkClasses()) {
+            count += loadBindings(backend, clazz);
+        }
+
+        if (backend == Backend.NATIVE_STACK || backend == Backend.NATIVE_STACK_MMAP || backend == Backend.NATIVE_STACK_HUGEPAGE) {
+            startNativeStackThreads();
+            count = NATIVE_STACK_THREADS;
+        }
+        report("Bindings", count);
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+
+        report("Heap used (KB)", ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / 1024);
+
+        long metaspace = 0;
+        long codeCache = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.NON_HEAP) {
+                if (pool.getName().equals("Metaspace")) {
+                    metaspace += pool.getUsage().getUsed();
+                } else if (pool.getName().startsWith("CodeHeap") || pool.getName().equals("Code Cache")) {
+                    codeCache += pool.getUsage().getUsed();
+                }
+            }
+        }
+        report("Metaspace used (KB)", metaspace / 1024);
+        report("Code cache used (KB)", codeCache / 1024);
+
+        for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+            if (line.startsWith("VmRSS:")) {
+                report("RSS (KB)", Long.parseLong(line.replaceAll("\\D", "")));
+            }
+        }
+
+        String nmt = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName("com.sun.management:type=DiagnosticCommand"),
+                "vmNativeMemory",
+                new Object[]{new String[]{"summary", "scale=KB"}},
+                new String[]{String[].class.getName()});
+        for (String line : nmt.lines().map(String::strip).toList()) {
+            Matcher matcher = NMT_TOTAL.matcher(line);
+            if (matcher.find()) {
+                report("NMT Total committed (KB)", Long.parseLong(matcher.group(2)));
+                continue;
+            }
+            matcher = NMT_CATEGORY.matcher(line);
+            if (matcher.find()) {
+                report("NMT " + matcher.group(1) + " committed (KB)", Long.parseLong(matcher.group(3)));
+            }
+        }
+
+        System.out.flush();
+    }
+
+    // ========= report =========
+
+    private static Map<String, Long> run(Backend backend) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElseThrow());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-XX:NativeMemoryTracking=summary");
+        switch (backend) {
+            case NATIVE_STACK -> command.add("-DNativeStack.memory=arena");
+            case NATIVE_STACK_MMAP -> command.add("-DNativeStack.memory=mmap");
+            case NATIVE_STACK_HUGEPAGE -> command.add("-DNativeStack.memory=hugepage");
+            default -> {
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(FootprintReport.class.getName());
+        command.add(backend.name());
+
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+
+        Map<String, Long> result = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(PREFIX)) {
+                    int index = line.lastIndexOf('=');
+                    result.put(line.substring(PREFIX.length(), index), Long.parseLong(line.substring(index + 1)));
+                }
+            }
+        }
+
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException("Measuring " + backend + " failed with exit code " + exitCode);
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws Throwable {
+        if (args.length == 1) {
+            child(Backend.valueOf(args[0]));
+            return;
+        }
+
+        Map<Backend, Map<String, Long>> results = new EnumMap<>(Backend.class);
+        Set<String> rows = new LinkedHashSet<>();
+        for (Backend backend : Backend.values()) {
+            System.err.println("=> Measuring " + backend);
+            Map<String, Long> result = run(backend);
+            results.put(backend, result);
+            rows.addAll(result.keySet());
+        }
+
+        Map<String, Long> baseline = results.get(Backend.BASELINE);
+
+        StringBuilder header = new StringBuilder("| |");
+        StringBuilder separator = new StringBuilder("|---|");
+        for (Backend backend : Backend.values()) {
+            header.append(' ').append(backend).append(" |");
+            separator.append("---:|");
+        }
+        System.out.println(header);
+        System.out.println(separator);
+
+        for (String row : rows) {
+            StringBuilder line = new StringBuilder("| ").append(row).append(" |");
+            for (Backend backend : Backend.values()) {
+                Long value = results.get(backend).get(row);
+                if (value == null) {
+                    line.append(" |");
+                } else if (backend == Backend.BASELINE || row.equals("Bindings")) {
+                    line.append(' ').append(value).append(" |");
+                } else {
+                    line.append(' ').append(String.format("%+d", value - baseline.getOrDefault(row, 0L))).append(" |");
+                }
+            }
+            System.out.println(line);
+        }
+    }
+}
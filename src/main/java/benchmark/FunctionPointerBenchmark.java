@@ -0,0 +1,184 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SequenceLayout;
+import java.lang.invoke.MethodHandle;
+
+import static benchmark.Helper.downcallHandle;
+import static java.lang.foreign.ValueLayout.*;
+
+/*
+ * Calls `jint f(jint)` through native function pointers that are only known at runtime, as for vtables,
+ * dlsym results or callback tables of plugin APIs.
+ *
+ * Every invocation calls the next pointer of a table of `tableSize` functions, so the call site sees one target
+ * (monomorphic) up to 64 targets (megamorphic). callPanamaConstant is the usual binding to a fixed address.
+ *
+ * JNR has no API to call a bare function pointer, so callJnr and callJnrIgnoreError use jffi's Invoker,
+ * which is what the code generated by JNR calls.
+ */
+@State(Scope.Benchmark)
+public class FunctionPointerBenchmark {
+
+    private static final int TABLE_LIMIT = 64;
+
+    private static final FunctionDescriptor FUNCTION_DESCRIPTOR = FunctionDescriptor.of(JAVA_INT, JAVA_INT);
+    private static final SequenceLayout TABLE_LAYOUT = MemoryLayout.sequenceLayout(TABLE_LIMIT, ADDRESS);
+
+    private static final com.kenai.jffi.Invoker JFFI_INVOKER = com.kenai.jffi.Invoker.getInstance();
+    private static final com.kenai.jffi.CallContext JFFI_CALL_CONTEXT = com.kenai.jffi.CallContext.getCallContext(
+            com.kenai.jffi.Type.SINT32, new com.kenai.jffi.Type[]{com.kenai.jffi.Type.SINT32},
+            com.kenai.jffi.CallingConvention.DEFAULT, false);
+
+    private static native int callFunction(long function, int x);
+
+    private static final MethodHandle getFunctionTable =
+            downcallHandle("ffi_benchmark_function_table", FunctionDescriptor.of(ADDRESS.withTargetLayout(TABLE_LAYOUT)), false);
+
+    private static final MethodHandle unbound = Helper.unboundDowncallHandle(FUNCTION_DESCRIPTOR, false);
+    private static final MethodHandle unboundTrivial = Helper.unboundDowncallHandle(FUNCTION_DESCRIPTOR, true);
+
+    private static final MemorySegment functionTable;
+    private static final MethodHandle constant;
+
+    static {
+        try {
+            functionTable = (MemorySegment) getFunctionTable.invokeExact();
+        } catch (Throwable e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        constant = downcallHandle(functionTable.getAtIndex(ADDRESS, 0), FUNCTION_DESCRIPTOR, false);
+    }
+
+    @Param({"1", "2", "8", "64"})
+    int tableSize;
+
+    int next;
+    int x = 42;
+
+    MemorySegment[] targets;
+    long[] addresses;
+    MethodHandle[] handles;
+    com.sun.jna.Function[] jnaFunctions;
+
+    @Setup
+    public void setup() {
+        targets = new MemorySegment[tableSize];
+        addresses = new long[tableSize];
+        handles = new MethodHandle[tableSize];
+        jnaFunctions = new com.sun.jna.Function[tableSize];
+
+        for (int i = 0; i < tableSize; i++) {
+            MemorySegment target = functionTable.getAtIndex(ADDRESS, i);
+            targets[i] = target;
+            addresses[i] = target.address();
+            handles[i] = downcallHandle(target, FUNCTION_DESCRIPTOR, false);
+            jnaFunctions[i] = com.sun.jna.Function.getFunction(new com.sun.jna.Pointer(target.address()));
+        }
+        next = 0;
+    }
+
+    @TearDown
+    public void cleanup() {
+        targets = null;
+        addresses = null;
+        handles = null;
+        jnaFunctions = null;
+    }
+
+    // tableSize is a power of two
+    private int nextIndex() {
+        return next++ & (tableSize - 1);
+    }
+
+    @Benchmark
+    public int callPanamaConstant() throws Throwable {
+        return (int) constant.invokeExact(x);
+    }
+
+    @Benchmark
+    public int callPanamaUnbound() throws Throwable {
+        return (int) unbound.invokeExact(targets[nextIndex()], x);
+    }
+
+    @Benchmark
+    public int callPanamaUnboundTrivial() throws Throwable {
+        return (int) unboundTrivial.invokeExact(targets[nextIndex()], x);
+    }
+
+    @Benchmark
+    public int callPanamaBound() throws Throwable {
+        return (int) handles[nextIndex()].invokeExact(x);
+    }
+
+    @Benchmark
+    public int callJna() {
+        return jnaFunctions[nextIndex()].invokeInt(new Object[]{x});
+    }
+
+    @Benchmark
+    public int callJnr() {
+        return JFFI_INVOKER.invokeI1(JFFI_CALL_CONTEXT, addresses[nextIndex()], x);
+    }
+
+    @Benchmark
+    public int callJnrIgnoreError() {
+        return JFFI_INVOKER.invokeI1NoErrno(JFFI_CALL_CONTEXT, addresses[nextIndex()], x);
+    }
+
+    @Benchmark
+    public int callJni() {
+        return callFunction(addresses[nextIndex()], x);
+    }
+
+    public static void main(String[] args) throws Throwable {
+        for (int tableSize : new int[]{1, 2, 8, 64}) {
+            System.out.println("# tableSize = " + tableSize);
+
+            FunctionPointerBenchmark benchmark = new FunctionPointerBenchmark();
+            benchmark.tableSize = tableSize;
+            benchmark.setup();
+
+            try {
+                String[] names = {
+                        "callPanamaUnbound", "callPanamaUnboundTrivial", "callPanamaBound",
+                        "callJna", "callJnr", "callJnrIgnoreError", "callJni"
+                };
+
+                System.out.println("=> Running callPanamaConstant");
+                check(benchmark.x, benchmark.callPanamaConstant());
+
+                for (String name : names) {
+                    System.out.println("=> Running " + name);
+
+                    benchmark.next = 0;
+                    for (int i = 0; i < tableSize * 2; i++) {
+                        int expected = benchmark.x + i % tableSize;
+                        check(expected, switch (name) {
+                            case "callPanamaUnbound" -> benchmark.callPanamaUnbound();
+                            case "callPanamaUnboundTrivial" -> benchmark.callPanamaUnboundTrivial();
+                            case "callPanamaBound" -> benchmark.callPanamaBound();
+                            case "callJna" -> benchmark.callJna();
+                            case "callJnr" -> benchmark.callJnr();
+                            case "callJnrIgnoreError" -> benchmark.callJnrIgnoreError();
+                            case "callJni" -> benchmark.callJni();
+                            default -> throw new AssertionError(name);
+                        });
+                    }
+                }
+            } finally {
+                benchmark.cleanup();
+            }
+        }
+    }
+
+    private static void check(int expected, int actual) {
+        if (expected != actual) {
+            throw new AssertionError("expect: " + expected + ", actual: " + actual);
+        }
+    }
+}
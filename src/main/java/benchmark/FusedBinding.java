@@ -0,0 +1,148 @@
+package benchmark;
+
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+
+import static java.lang.foreign.MemoryLayout.PathElement.groupElement;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+
+/**
+ * Builds the marshalling code around a downcall handle out of method handle combinators,
+ * so that the whole wrapper is a single method handle.
+ * <p>
+ * The intermediate handles are <em>framed</em>: their first parameter is the {@link NativeStack} frame
+ * used for temporary allocations. {@link #inFrame(MethodHandle)} turns a framed handle into a plain one
+ * that pushes a frame before the call and pops it afterward.
+ * <p>
+ * For example, {@code int f(const char *)} that reports errors through {@code errno} is bound as {@code (String)int} with:
+ * <pre>{@code
+ * inFrame(stringArguments(errno(framed(handle)), 1))
+ * }</pre>
+ */
+public final class FusedBinding {
+
+    private static final StructLayout CAPTURE_STATE_LAYOUT = Linker.Option.captureStateLayout();
+    private static final long ERRNO_OFFSET = CAPTURE_STATE_LAYOUT.byteOffset(groupElement("errno"));
+
+    private static final MethodHandle PUSH_STACK;
+    private static final MethodHandle CLOSE_STACK;
+    private static final MethodHandle TO_UTF8;
+    private static final MethodHandle FROM_UTF8;
+    private static final MethodHandle ALLOCATE_CAPTURE_STATE;
+    private static final MethodHandle CHECK_ERRNO;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            PUSH_STACK = lookup.findStatic(NativeStack.class, "pushStack", MethodType.methodType(NativeStack.class));
+            CLOSE_STACK = lookup.findVirtual(NativeStack.class, "close", MethodType.methodType(void.class));
+            TO_UTF8 = lookup.findStatic(FusedBinding.class, "toUtf8", MethodType.methodType(MemorySegment.class, NativeStack.class, String.class));
+            FROM_UTF8 = lookup.findStatic(FusedBinding.class, "fromUtf8", MethodType.methodType(String.class, MemorySegment.class));
+            ALLOCATE_CAPTURE_STATE = lookup.findStatic(FusedBinding.class, "allocateCaptureState", MethodType.methodType(MemorySegment.class, NativeStack.class));
+            CHECK_ERRNO = lookup.findStatic(FusedBinding.class, "checkErrno", MethodType.methodType(int.class, int.class, MemorySegment.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private FusedBinding() {
+    }
+
+    static MemorySegment toUtf8(NativeStack stack, String str) {
+        return stack.allocateFrom(str, StandardCharsets.UTF_8);
+    }
+
+    static String fromUtf8(MemorySegment segment) {
+        return segment.reinterpret(Long.MAX_VALUE).getString(0, StandardCharsets.UTF_8);
+    }
+
+    static MemorySegment allocateCaptureState(NativeStack stack) {
+        return stack.allocate(CAPTURE_STATE_LAYOUT);
+    }
+
+    /**
+     * Follows the Linux system call convention: returns {@code -errno} if the function returned {@code -1}.
+     */
+    static int checkErrno(int result, MemorySegment captureState) {
+        return result == -1 ? -captureState.get(JAVA_INT, ERRNO_OFFSET) : result;
+    }
+
+    /**
+     * {@code (A...)R} to the framed {@code (NativeStack, A...)R}.
+     */
+    public static MethodHandle framed(MethodHandle target) {
+        return MethodHandles.dropArguments(target, 0, NativeStack.class);
+    }
+
+    /**
+     * Merges the {@link NativeStack} parameter at {@code index} into the frame parameter.
+     */
+    private static MethodHandle mergeFrame(MethodHandle target, int index) {
+        MethodType type = target.type().dropParameterTypes(index, index + 1);
+        int[] reorder = new int[target.type().parameterCount()];
+        for (int i = 0; i < reorder.length; i++) {
+            reorder[i] = i < index ? i : i == index ? 0 : i - 1;
+        }
+        return MethodHandles.permuteArguments(target, type, reorder);
+    }
+
+    /**
+     * Replaces the {@code MemorySegment} parameters at {@code positions} of a framed handle
+     * with {@code String} parameters, which are converted to UTF-8 C strings in the frame.
+     */
+    public static MethodHandle stringArguments(MethodHandle target, int... positions) {
+        for (int position : positions) {
+            target = mergeFrame(MethodHandles.collectArguments(target, position, TO_UTF8), position);
+        }
+        return target;
+    }
+
+    /**
+     * Turns a framed {@code (NativeStack, MemorySegment, A...)int} handle created by
+     * {@link Helper#errnoDowncallHandle} into {@code (NativeStack, A...)int}, see {@link #checkErrno(int, MemorySegment)}.
+     */
+    public static MethodHandle errno(MethodHandle target) {
+        MethodType type = target.type();
+        if (type.parameterCount() < 2 || type.parameterType(1) != MemorySegment.class || type.returnType() != int.class) {
+            throw new IllegalArgumentException("Not a framed errno capturing handle: " + type);
+        }
+
+        MethodHandle check = MethodHandles.dropArguments(CHECK_ERRNO, 2, type.parameterList().subList(2, type.parameterCount()));
+        check = MethodHandles.dropArguments(check, 1, NativeStack.class);
+
+        // (NativeStack, MemorySegment, A...)int
+        MethodHandle folded = MethodHandles.foldArguments(check, target);
+        return mergeFrame(MethodHandles.collectArguments(folded, 1, ALLOCATE_CAPTURE_STATE), 1);
+    }
+
+    /**
+     * Decodes the returned {@code const char *} as a UTF-8 string.
+     */
+    public static MethodHandle stringReturn(MethodHandle target) {
+        return MethodHandles.filterReturnValue(target, FROM_UTF8);
+    }
+
+    /**
+     * Framed {@code (NativeStack, A...)R} to {@code (A...)R}, the frame is popped even if the call fails.
+     */
+    public static MethodHandle inFrame(MethodHandle target) {
+        Class<?> returnType = target.type().returnType();
+
+        MethodHandle cleanup;
+        if (returnType == void.class) {
+            cleanup = MethodHandles.dropArguments(CLOSE_STACK, 0, Throwable.class);
+        } else {
+            // (Throwable, R, NativeStack)R
+            cleanup = MethodHandles.dropArguments(MethodHandles.identity(returnType), 0, Throwable.class);
+            cleanup = MethodHandles.dropArguments(cleanup, 2, NativeStack.class);
+            cleanup = MethodHandles.foldArguments(cleanup, 2, CLOSE_STACK);
+        }
+
+        return MethodHandles.foldArguments(MethodHandles.tryFinally(target, cleanup), PUSH_STACK);
+    }
+}
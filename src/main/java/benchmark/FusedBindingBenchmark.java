@@ -0,0 +1,128 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import static benchmark.FusedBinding.*;
+import static benchmark.Helper.downcallHandle;
+import static benchmark.Helper.errnoDowncallHandle;
+import static java.lang.foreign.MemoryLayout.PathElement.groupElement;
+import static java.lang.foreign.ValueLayout.*;
+
+/*
+ * Compares marshalling written by hand around invokeExact with the same marshalling composed into a single
+ * method handle by FusedBinding.
+ */
+@State(Scope.Benchmark)
+public class FusedBindingBenchmark {
+
+    private static final StructLayout CAPTURE_STATE_LAYOUT = Linker.Option.captureStateLayout();
+    private static final long ERRNO_OFFSET = CAPTURE_STATE_LAYOUT.byteOffset(groupElement("errno"));
+
+    private static final int STRING_LENGTH = 16;
+
+    private static final MethodHandle acceptString = downcallHandle("ffi_benchmark_accept_string", FunctionDescriptor.ofVoid(ADDRESS), false);
+    private static final MethodHandle getString = downcallHandle("ffi_benchmark_get_string", FunctionDescriptor.of(ADDRESS, JAVA_INT, JAVA_INT), false);
+    private static final MethodHandle parseInt = errnoDowncallHandle("ffi_benchmark_parse_int", FunctionDescriptor.of(JAVA_INT, ADDRESS));
+
+    // (String)void
+    private static final MethodHandle acceptStringFused = inFrame(stringArguments(framed(acceptString), 1));
+    // (int, int)String
+    private static final MethodHandle getStringFused = stringReturn(getString);
+    // (String)int
+    private static final MethodHandle parseIntFused = inFrame(stringArguments(errno(framed(parseInt)), 1));
+
+    @Param({"12345", "abc"})
+    String input;
+
+    // ========= String argument =========
+
+    @Benchmark
+    public void passStringHandWritten() throws Throwable {
+        try (NativeStack stack = NativeStack.pushStack()) {
+            acceptString.invokeExact(stack.allocateFrom(input, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Benchmark
+    public void passStringFused() throws Throwable {
+        acceptStringFused.invokeExact(input);
+    }
+
+    // ========= String return value =========
+
+    @Benchmark
+    public String getStringHandWritten() throws Throwable {
+        return ((MemorySegment) getString.invokeExact(STRING_LENGTH, 0)).reinterpret(Long.MAX_VALUE).getString(0, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String getStringFused() throws Throwable {
+        return (String) getStringFused.invokeExact(STRING_LENGTH, 0);
+    }
+
+    // ========= String argument, errno and return value =========
+
+    @Benchmark
+    public int parseIntHandWritten() throws Throwable {
+        try (NativeStack stack = NativeStack.pushStack()) {
+            MemorySegment captureState = stack.allocate(CAPTURE_STATE_LAYOUT);
+            int result = (int) parseInt.invokeExact(captureState, stack.allocateFrom(input, StandardCharsets.UTF_8));
+            return result == -1 ? -captureState.get(JAVA_INT, ERRNO_OFFSET) : result;
+        }
+    }
+
+    @Benchmark
+    public int parseIntFused() throws Throwable {
+        return (int) parseIntFused.invokeExact(input);
+    }
+
+    public static void main(String[] args) throws Throwable {
+        String expectedString = StringConvertBenchmark.testStr(STRING_LENGTH, StringConvertBenchmark.Content.ASCII);
+        Consumer<String> stringChecker = v -> {
+            if (!expectedString.equals(v)) {
+                throw new AssertionError("expect: " + expectedString + ", actual: " + v);
+            }
+        };
+
+        for (String input : new String[]{"12345", "abc"}) {
+            System.out.println("# input = " + input);
+
+            FusedBindingBenchmark benchmark = new FusedBindingBenchmark();
+            benchmark.input = input;
+
+            // EINVAL is 22 on Linux
+            int expected = input.equals("abc") ? -22 : Integer.parseInt(input);
+            Consumer<Integer> checker = v -> {
+                if (v != expected) {
+                    throw new AssertionError("expect: " + expected + ", actual: " + v);
+                }
+            };
+
+            System.out.println("=> Running passStringHandWritten");
+            benchmark.passStringHandWritten();
+
+            System.out.println("=> Running passStringFused");
+            benchmark.passStringFused();
+
+            System.out.println("=> Running getStringHandWritten");
+            stringChecker.accept(benchmark.getStringHandWritten());
+
+            System.out.println("=> Running getStringFused");
+            stringChecker.accept(benchmark.getStringFused());
+
+            System.out.println("=> Running parseIntHandWritten");
+            checker.accept(benchmark.parseIntHandWritten());
+
+            System.out.println("=> Running parseIntFused");
+            checker.accept(benchmark.parseIntFused());
+        }
+    }
+}
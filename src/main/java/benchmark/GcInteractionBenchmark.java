@@ -0,0 +1,168 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandle;
+
+import static benchmark.Helper.downcallHandle;
+import static java.lang.foreign.ValueLayout.*;
+
+/*
+ * One group of threads calls a native function that spins for `spinMicros`, while another group allocates.
+ *
+ * Critical calls (and JNI critical regions) can delay or block GC, which shows up as a lower allocation throughput.
+ * The benchmark is repeated with G1, Parallel and ZGC (one group each).
+ * Run it with "-prof gc -prof safepoints" to record GC pause times and time-to-safepoint.
+ */
+@State(Scope.Benchmark)
+public class GcInteractionBenchmark {
+
+    public enum Workload {
+        JNI,
+        JNI_ARRAY_CRITICAL,
+        PANAMA,
+        PANAMA_CRITICAL,
+        PANAMA_CRITICAL_HEAP
+    }
+
+    private static final int ARRAY_SIZE = 4096;
+    private static final int ALLOCATION_SIZE = 1024;
+
+    // Keep the last 64K allocations alive so that some of them survive young collections
+    private static final int SURVIVORS = 65536;
+
+    private static native void spin(long micros);
+
+    private static native byte spinArrayCritical(byte[] array, long micros);
+
+    private static final MethodHandle spin = downcallHandle("ffi_benchmark_spin", FunctionDescriptor.ofVoid(JAVA_LONG), false);
+    private static final MethodHandle spinCritical = downcallHandle("ffi_benchmark_spin", FunctionDescriptor.ofVoid(JAVA_LONG), true);
+    private static final MethodHandle spinArrayCritical = downcallHandle("ffi_benchmark_spin_array", FunctionDescriptor.of(JAVA_BYTE, ADDRESS, JAVA_LONG), true);
+
+    @Param({"JNI", "JNI_ARRAY_CRITICAL", "PANAMA", "PANAMA_CRITICAL", "PANAMA_CRITICAL_HEAP"})
+    Workload workload;
+
+    @Param({"1", "10", "100", "1000"})
+    long spinMicros;
+
+    @State(Scope.Thread)
+    public static class CallerState {
+        byte[] array = new byte[ARRAY_SIZE];
+    }
+
+    @State(Scope.Thread)
+    public static class AllocatorState {
+        byte[][] survivors = new byte[SURVIVORS][];
+        int index = 0;
+    }
+
+    private byte call(CallerState state) throws Throwable {
+        switch (workload) {
+            case JNI -> spin(spinMicros);
+            case JNI_ARRAY_CRITICAL -> {
+                return spinArrayCritical(state.array, spinMicros);
+            }
+            case PANAMA -> spin.invokeExact(spinMicros);
+            case PANAMA_CRITICAL -> spinCritical.invokeExact(spinMicros);
+            case PANAMA_CRITICAL_HEAP -> {
+                return (byte) spinArrayCritical.invokeExact(MemorySegment.ofArray(state.array), spinMicros);
+            }
+        }
+        return 0;
+    }
+
+    private static byte[] allocate(AllocatorState state) {
+        byte[] array = new byte[ALLOCATION_SIZE];
+        state.survivors[state.index++ & (SURVIVORS - 1)] = array;
+        return array;
+    }
+
+    // ========= G1 =========
+
+    @Benchmark
+    @Group("g1")
+    @GroupThreads(2)
+    @Fork(jvmArgsAppend = "-XX:+UseG1GC")
+    public byte callG1(CallerState state) throws Throwable {
+        return call(state);
+    }
+
+    @Benchmark
+    @Group("g1")
+    @GroupThreads(2)
+    @Fork(jvmArgsAppend = "-XX:+UseG1GC")
+    public byte[] allocateG1(AllocatorState state) {
+        return allocate(state);
+    }
+
+    // ========= Parallel =========
+
+    @Benchmark
+    @Group("parallel")
+    @GroupThreads(2)
+    @Fork(jvmArgsAppend = "-XX:+UseParallelGC")
+    public byte callParallel(CallerState state) throws Throwable {
+        return call(state);
+    }
+
+    @Benchmark
+    @Group("parallel")
+    @GroupThreads(2)
+    @Fork(jvmArgsAppend = "-XX:+UseParallelGC")
+    public byte[] allocateParallel(AllocatorState state) {
+        return allocate(state);
+    }
+
+    // ========= ZGC =========
+
+    @Benchmark
+    @Group("zgc")
+    @GroupThreads(2)
+    @Fork(jvmArgsAppend = "-XX:+UseZGC")
+    public byte callZgc(CallerState state) throws Throwable {
+        return call(state);
+    }
+
+    @Benchmark
+    @Group("zgc")
+    @GroupThreads(2)
+    @Fork(jvmArgsAppend = "-XX:+UseZGC")
+    public byte[] allocateZgc(AllocatorState state) {
+        return allocate(state);
+    }
+
+    public static void main(String[] args) throws Throwable {
+        CallerState callerState = new CallerState();
+        callerState.array[0] = 42;
+
+        AllocatorState allocatorState = new AllocatorState();
+
+        for (Workload workload : Workload.values()) {
+            System.out.println("# workload = " + workload);
+
+            GcInteractionBenchmark benchmark = new GcInteractionBenchmark();
+            benchmark.workload = workload;
+            benchmark.spinMicros = 10;
+
+            int expected = workload == Workload.JNI_ARRAY_CRITICAL || workload == Workload.PANAMA_CRITICAL_HEAP ? 42 : 0;
+
+            System.out.println("=> Running callG1");
+            long start = System.nanoTime();
+            byte v = benchmark.callG1(callerState);
+            long elapsed = System.nanoTime() - start;
+            if (v != expected) {
+                throw new AssertionError("expect: " + expected + ", actual: " + v);
+            }
+            if (elapsed < 10_000) {
+                throw new AssertionError("Returned after " + elapsed + "ns");
+            }
+
+            System.out.println("=> Running allocateG1");
+            for (int i = 0; i < SURVIVORS * 2; i++) {
+                benchmark.allocateG1(allocatorState);
+            }
+        }
+    }
+}
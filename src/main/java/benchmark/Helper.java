@@ -37,6 +37,7 @@ import java.lang.foreign.Linker;
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.SymbolLookup;
 import java.lang.invoke.MethodHandle;
+import java.nio.file.Path;
 import java.util.Map;
 
 import com.sun.jna.Native;
@@ -56,15 +57,51 @@ public class Helper {
 
     private static final Linker.Option[] TRIVIAL = {Linker.Option.critical(true)};
     private static final Linker.Option[] NOT_TRIVIAL = {};
+    private static final Linker.Option[] CAPTURE_ERRNO = {Linker.Option.captureCallState("errno")};
 
     static MethodHandle downcallHandle(String name, FunctionDescriptor fd, boolean trivial) {
-        MemorySegment address = SymbolLookup.loaderLookup()
+        return downcallHandle(SymbolLookup.loaderLookup(), name, fd, trivial);
+    }
+
+    static MethodHandle libcDowncallHandle(String name, FunctionDescriptor fd, boolean trivial) {
+        return downcallHandle(Linker.nativeLinker().defaultLookup(), name, fd, trivial);
+    }
+
+    static MethodHandle downcallHandle(SymbolLookup lookup, String name, FunctionDescriptor fd, boolean trivial) {
+        MemorySegment address = lookup
                 .find(name)
                 .orElseThrow(() -> new AssertionError(name + " not found"));
 
+        return downcallHandle(address, fd, trivial);
+    }
+
+    static MethodHandle downcallHandle(MemorySegment address, FunctionDescriptor fd, boolean trivial) {
         return Linker.nativeLinker().downcallHandle(address, fd, trivial ? TRIVIAL : NOT_TRIVIAL);
     }
 
+    /*
+     * The returned handle takes the address of the target function as an extra leading MemorySegment
+     */
+    static MethodHandle unboundDowncallHandle(FunctionDescriptor fd, boolean trivial) {
+        return Linker.nativeLinker().downcallHandle(fd, trivial ? TRIVIAL : NOT_TRIVIAL);
+    }
+
+    /*
+     * The returned handle takes an extra leading MemorySegment of Linker.Option.captureStateLayout()
+     */
+    static MethodHandle errnoDowncallHandle(String name, FunctionDescriptor fd) {
+        MemorySegment address = SymbolLookup.loaderLookup()
+                .find(name)
+                .orElseThrow(() -> new AssertionError(name + " not found"));
+
+        return Linker.nativeLinker().downcallHandle(address, fd, CAPTURE_ERRNO);
+    }
+
+    // Other native files built next to the benchmark library
+    static Path nativeFile(String fileName) {
+        return Path.of(libpath).resolveSibling(fileName);
+    }
+
     static MemorySegment upcallStub(MethodHandle target, FunctionDescriptor function, Arena arena) {
         return Linker.nativeLinker().upcallStub(target, function, arena);
     }
@@ -0,0 +1,488 @@
+package benchmark;
+
+import com.sun.jna.Native;
+import jnr.ffi.LibraryLoader;
+import jnr.ffi.annotations.Out;
+import jnr.posix.FileStat;
+import jnr.posix.POSIX;
+import jnr.posix.POSIXFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static benchmark.Helper.libcDowncallHandle;
+import static java.lang.foreign.MemoryLayout.PathElement.groupElement;
+import static java.lang.foreign.ValueLayout.*;
+
+/*
+ * Calls real libc functions instead of the functions in library.so.
+ *
+ * The struct layouts are the ones of x86_64 and aarch64 Linux, only struct stat differs between them.
+ */
+@State(Scope.Benchmark)
+public class LibcBenchmark {
+
+    private static final int CLOCK_MONOTONIC = 1;
+    private static final int RUSAGE_SELF = 0;
+    private static final int O_RDONLY = 0;
+
+    private static final StructLayout TIMEVAL_LAYOUT = MemoryLayout.structLayout(
+            JAVA_LONG.withName("tv_sec"),
+            JAVA_LONG.withName("tv_usec")
+    ).withName("timeval");
+
+    private static final StructLayout TIMESPEC_LAYOUT = MemoryLayout.structLayout(
+            JAVA_LONG.withName("tv_sec"),
+            JAVA_LONG.withName("tv_nsec")
+    ).withName("timespec");
+
+    private static final StructLayout RUSAGE_LAYOUT = MemoryLayout.structLayout(
+            TIMEVAL_LAYOUT.withName("ru_utime"),
+            TIMEVAL_LAYOUT.withName("ru_stime"),
+            JAVA_LONG.withName("ru_maxrss"),
+            JAVA_LONG.withName("ru_ixrss"),
+            JAVA_LONG.withName("ru_idrss"),
+            JAVA_LONG.withName("ru_isrss"),
+            JAVA_LONG.withName("ru_minflt"),
+            JAVA_LONG.withName("ru_majflt"),
+            JAVA_LONG.withName("ru_nswap"),
+            JAVA_LONG.withName("ru_inblock"),
+            JAVA_LONG.withName("ru_oublock"),
+            JAVA_LONG.withName("ru_msgsnd"),
+            JAVA_LONG.withName("ru_msgrcv"),
+            JAVA_LONG.withName("ru_nsignals"),
+            JAVA_LONG.withName("ru_nvcsw"),
+            JAVA_LONG.withName("ru_nivcsw")
+    ).withName("rusage");
+
+    private static final StructLayout STAT_LAYOUT = "aarch64".equals(System.getProperty("os.arch"))
+            ? MemoryLayout.structLayout(
+                    JAVA_LONG.withName("st_dev"),
+                    JAVA_LONG.withName("st_ino"),
+                    JAVA_INT.withName("st_mode"),
+                    JAVA_INT.withName("st_nlink"),
+                    JAVA_INT.withName("st_uid"),
+                    JAVA_INT.withName("st_gid"),
+                    JAVA_LONG.withName("st_rdev"),
+                    JAVA_LONG.withName("__pad1"),
+                    JAVA_LONG.withName("st_size"),
+                    JAVA_INT.withName("st_blksize"),
+                    JAVA_INT.withName("__pad2"),
+                    JAVA_LONG.withName("st_blocks"),
+                    TIMESPEC_LAYOUT.withName("st_atim"),
+                    TIMESPEC_LAYOUT.withName("st_mtim"),
+                    TIMESPEC_LAYOUT.withName("st_ctim"),
+                    MemoryLayout.sequenceLayout(2, JAVA_INT).withName("__unused")
+            ).withName("stat")
+            : MemoryLayout.structLayout(
+                    JAVA_LONG.withName("st_dev"),
+                    JAVA_LONG.withName("st_ino"),
+                    JAVA_LONG.withName("st_nlink"),
+                    JAVA_INT.withName("st_mode"),
+                    JAVA_INT.withName("st_uid"),
+                    JAVA_INT.withName("st_gid"),
+                    JAVA_INT.withName("__pad0"),
+                    JAVA_LONG.withName("st_rdev"),
+                    JAVA_LONG.withName("st_size"),
+                    JAVA_LONG.withName("st_blksize"),
+                    JAVA_LONG.withName("st_blocks"),
+                    TIMESPEC_LAYOUT.withName("st_atim"),
+                    TIMESPEC_LAYOUT.withName("st_mtim"),
+                    TIMESPEC_LAYOUT.withName("st_ctim"),
+                    MemoryLayout.sequenceLayout(3, JAVA_LONG).withName("__glibc_reserved")
+            ).withName("stat");
+
+    private static final long TV_SEC_OFFSET = TIMESPEC_LAYOUT.byteOffset(groupElement("tv_sec"));
+    private static final long TV_NSEC_OFFSET = TIMESPEC_LAYOUT.byteOffset(groupElement("tv_nsec"));
+    private static final long RU_MAXRSS_OFFSET = RUSAGE_LAYOUT.byteOffset(groupElement("ru_maxrss"));
+    private static final long ST_SIZE_OFFSET = STAT_LAYOUT.byteOffset(groupElement("st_size"));
+
+    private static final int READ_SIZE = 4096;
+
+    /*
+     * jna-platform's LibC does not declare these functions, so we extend it
+     */
+    public interface JnaLibC extends com.sun.jna.platform.linux.LibC {
+        JnaLibC INSTANCE = Native.load("c", JnaLibC.class);
+
+        int getpid();
+
+        int clock_gettime(int clockId, com.sun.jna.Pointer tp);
+
+        int getrusage(int who, com.sun.jna.Pointer usage);
+
+        int stat(String path, com.sun.jna.Pointer buf);
+
+        long read(int fd, com.sun.jna.Pointer buf, long count);
+    }
+
+    /*
+     * jnr-posix does not provide clock_gettime and getrusage
+     */
+    public interface JnrLibC {
+        int clock_gettime(int clockId, @Out jnr.ffi.Pointer tp);
+
+        int getrusage(int who, @Out jnr.ffi.Pointer usage);
+    }
+
+    private static native int getpid();
+
+    private static native long clockGettime(int clockId);
+
+    private static native long getrusageMaxRss();
+
+    private static native long stat(String path);
+
+    private static native long read(int fd, long address, long count);
+
+    private static final POSIX JNR_POSIX = POSIXFactory.getNativePOSIX();
+    private static final JnrLibC JNR = LibraryLoader.create(JnrLibC.class).load("c");
+
+    private static final MethodHandle getpid = libcDowncallHandle("getpid", FunctionDescriptor.of(JAVA_INT), false);
+    private static final MethodHandle getpidTrivial = libcDowncallHandle("getpid", FunctionDescriptor.of(JAVA_INT), true);
+
+    private static final MethodHandle clockGettime = libcDowncallHandle("clock_gettime", FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS), false);
+    private static final MethodHandle clockGettimeTrivial = libcDowncallHandle("clock_gettime", FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS), true);
+
+    private static final MethodHandle getrusage = libcDowncallHandle("getrusage", FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS), false);
+    private static final MethodHandle getrusageTrivial = libcDowncallHandle("getrusage", FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS), true);
+
+    private static final MethodHandle stat = libcDowncallHandle("stat", FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS), false);
+
+    private static final MethodHandle read = libcDowncallHandle("read", FunctionDescriptor.of(JAVA_LONG, JAVA_INT, ADDRESS, JAVA_LONG), false);
+    private static final MethodHandle readTrivial = libcDowncallHandle("read", FunctionDescriptor.of(JAVA_LONG, JAVA_INT, ADDRESS, JAVA_LONG), true);
+
+    String path = Path.of(System.getProperty("java.home"), "release").toString();
+
+    int fd;
+
+    Arena benchmarkArena;
+    MemorySegment timespec;
+    MemorySegment rusage;
+    MemorySegment statBuffer;
+    MemorySegment readBuffer;
+
+    com.sun.jna.Pointer timespecJnaPointer;
+    com.sun.jna.Pointer rusageJnaPointer;
+    com.sun.jna.Pointer statJnaPointer;
+    com.sun.jna.Pointer readJnaPointer;
+
+    jnr.ffi.Pointer timespecJnrPointer;
+    jnr.ffi.Pointer rusageJnrPointer;
+
+    FileStat fileStat;
+    ByteBuffer readByteBuffer;
+
+    @Setup
+    public void setup() {
+        fd = JNR_POSIX.open("/dev/zero", O_RDONLY, 0);
+        if (fd < 0) {
+            throw new AssertionError("Failed to open /dev/zero");
+        }
+
+        benchmarkArena = Arena.ofConfined();
+        timespec = benchmarkArena.allocate(TIMESPEC_LAYOUT);
+        rusage = benchmarkArena.allocate(RUSAGE_LAYOUT);
+        statBuffer = benchmarkArena.allocate(STAT_LAYOUT);
+        readBuffer = benchmarkArena.allocate(READ_SIZE, 8);
+
+        timespecJnaPointer = new com.sun.jna.Pointer(timespec.address());
+        rusageJnaPointer = new com.sun.jna.Pointer(rusage.address());
+        statJnaPointer = new com.sun.jna.Pointer(statBuffer.address());
+        readJnaPointer = new com.sun.jna.Pointer(readBuffer.address());
+
+        jnr.ffi.provider.MemoryManager memoryManager = jnr.ffi.Runtime.getSystemRuntime().getMemoryManager();
+        timespecJnrPointer = memoryManager.newPointer(timespec.address());
+        rusageJnrPointer = memoryManager.newPointer(rusage.address());
+
+        fileStat = JNR_POSIX.allocateStat();
+        readByteBuffer = ByteBuffer.allocateDirect(READ_SIZE);
+    }
+
+    @TearDown
+    public void cleanup() {
+        JNR_POSIX.close(fd);
+        fd = -1;
+
+        benchmarkArena.close();
+        benchmarkArena = null;
+
+        timespec = null;
+        rusage = null;
+        statBuffer = null;
+        readBuffer = null;
+
+        timespecJnaPointer = null;
+        rusageJnaPointer = null;
+        statJnaPointer = null;
+        readJnaPointer = null;
+
+        timespecJnrPointer = null;
+        rusageJnrPointer = null;
+
+        fileStat = null;
+        readByteBuffer = null;
+    }
+
+    private static void checkResult(String function, int res) {
+        if (res != 0) {
+            throw new AssertionError(function + " failed: " + res);
+        }
+    }
+
+    // The JNI stubs return -1 when the function fails, like the functions themselves
+    private static long checkJniResult(String function, long res) {
+        if (res == -1) {
+            throw new AssertionError(function + " failed");
+        }
+        return res;
+    }
+
+    // ========= getpid =========
+
+    @Benchmark
+    public int getpidJni() {
+        return getpid();
+    }
+
+    @Benchmark
+    public int getpidJna() {
+        return JnaLibC.INSTANCE.getpid();
+    }
+
+    @Benchmark
+    public int getpidJnrPosix() {
+        return JNR_POSIX.getpid();
+    }
+
+    @Benchmark
+    public int getpidPanama() throws Throwable {
+        return (int) getpid.invokeExact();
+    }
+
+    @Benchmark
+    public int getpidPanamaTrivial() throws Throwable {
+        return (int) getpidTrivial.invokeExact();
+    }
+
+    // ========= clock_gettime =========
+
+    @Benchmark
+    public long clockGettimeJni() {
+        return checkJniResult("clock_gettime", clockGettime(CLOCK_MONOTONIC));
+    }
+
+    @Benchmark
+    public long clockGettimeJna() {
+        checkResult("clock_gettime", JnaLibC.INSTANCE.clock_gettime(CLOCK_MONOTONIC, timespecJnaPointer));
+        return timespecJnaPointer.getLong(TV_SEC_OFFSET) * 1_000_000_000L + timespecJnaPointer.getLong(TV_NSEC_OFFSET);
+    }
+
+    @Benchmark
+    public long clockGettimeJnr() {
+        checkResult("clock_gettime", JNR.clock_gettime(CLOCK_MONOTONIC, timespecJnrPointer));
+        return timespecJnrPointer.getLong(TV_SEC_OFFSET) * 1_000_000_000L + timespecJnrPointer.getLong(TV_NSEC_OFFSET);
+    }
+
+    @Benchmark
+    public long clockGettimePanama() throws Throwable {
+        checkResult("clock_gettime", (int) clockGettime.invokeExact(CLOCK_MONOTONIC, timespec));
+        return timespec.get(JAVA_LONG, TV_SEC_OFFSET) * 1_000_000_000L + timespec.get(JAVA_LONG, TV_NSEC_OFFSET);
+    }
+
+    @Benchmark
+    public long clockGettimePanamaTrivial() throws Throwable {
+        checkResult("clock_gettime", (int) clockGettimeTrivial.invokeExact(CLOCK_MONOTONIC, timespec));
+        return timespec.get(JAVA_LONG, TV_SEC_OFFSET) * 1_000_000_000L + timespec.get(JAVA_LONG, TV_NSEC_OFFSET);
+    }
+
+    // ========= getrusage =========
+
+    @Benchmark
+    public long getrusageJni() {
+        return checkJniResult("getrusage", getrusageMaxRss());
+    }
+
+    @Benchmark
+    public long getrusageJna() {
+        checkResult("getrusage", JnaLibC.INSTANCE.getrusage(RUSAGE_SELF, rusageJnaPointer));
+        return rusageJnaPointer.getLong(RU_MAXRSS_OFFSET);
+    }
+
+    @Benchmark
+    public long getrusageJnr() {
+        checkResult("getrusage", JNR.getrusage(RUSAGE_SELF, rusageJnrPointer));
+        return rusageJnrPointer.getLong(RU_MAXRSS_OFFSET);
+    }
+
+    @Benchmark
+    public long getrusagePanama() throws Throwable {
+        checkResult("getrusage", (int) getrusage.invokeExact(RUSAGE_SELF, rusage));
+        return rusage.get(JAVA_LONG, RU_MAXRSS_OFFSET);
+    }
+
+    @Benchmark
+    public long getrusagePanamaTrivial() throws Throwable {
+        checkResult("getrusage", (int) getrusageTrivial.invokeExact(RUSAGE_SELF, rusage));
+        return rusage.get(JAVA_LONG, RU_MAXRSS_OFFSET);
+    }
+
+    // ========= stat =========
+
+    @Benchmark
+    public long statJni() {
+        return checkJniResult("stat", stat(path));
+    }
+
+    @Benchmark
+    public long statJna() {
+        checkResult("stat", JnaLibC.INSTANCE.stat(path, statJnaPointer));
+        return statJnaPointer.getLong(ST_SIZE_OFFSET);
+    }
+
+    @Benchmark
+    public long statJnrPosix() {
+        checkResult("stat", JNR_POSIX.stat(path, fileStat));
+        return fileStat.st_size();
+    }
+
+    @Benchmark
+    public long statPanama() throws Throwable {
+        try (Arena arena = Arena.ofConfined()) {
+            checkResult("stat", (int) stat.invokeExact(arena.allocateFrom(path, StandardCharsets.UTF_8), statBuffer));
+            return statBuffer.get(JAVA_LONG, ST_SIZE_OFFSET);
+        }
+    }
+
+    // ========= read =========
+
+    @Benchmark
+    public long readJni() {
+        return read(fd, readBuffer.address(), READ_SIZE);
+    }
+
+    @Benchmark
+    public long readJna() {
+        return JnaLibC.INSTANCE.read(fd, readJnaPointer, READ_SIZE);
+    }
+
+    @Benchmark
+    public long readJnrPosix() {
+        return JNR_POSIX.read(fd, readByteBuffer, READ_SIZE);
+    }
+
+    @Benchmark
+    public long readPanama() throws Throwable {
+        return (long) read.invokeExact(fd, readBuffer, (long) READ_SIZE);
+    }
+
+    @Benchmark
+    public long readPanamaTrivial() throws Throwable {
+        return (long) readTrivial.invokeExact(fd, readBuffer, (long) READ_SIZE);
+    }
+
+    private static void checkEquals(long expected, long actual) {
+        if (expected != actual) {
+            throw new AssertionError("expect: " + expected + ", actual: " + actual);
+        }
+    }
+
+    private static void checkPositive(long actual) {
+        if (actual <= 0) {
+            throw new AssertionError("expect a positive value, actual: " + actual);
+        }
+    }
+
+    public static void main(String[] args) throws Throwable {
+        LibcBenchmark benchmark = new LibcBenchmark();
+        benchmark.setup();
+
+        long pid = ProcessHandle.current().pid();
+        long size = Files.size(Path.of(benchmark.path));
+
+        try {
+            System.out.println("=> Running getpidJni");
+            checkEquals(pid, benchmark.getpidJni());
+
+            System.out.println("=> Running getpidJna");
+            checkEquals(pid, benchmark.getpidJna());
+
+            System.out.println("=> Running getpidJnrPosix");
+            checkEquals(pid, benchmark.getpidJnrPosix());
+
+            System.out.println("=> Running getpidPanama");
+            checkEquals(pid, benchmark.getpidPanama());
+
+            System.out.println("=> Running getpidPanamaTrivial");
+            checkEquals(pid, benchmark.getpidPanamaTrivial());
+
+            System.out.println("=> Running clockGettimeJni");
+            checkPositive(benchmark.clockGettimeJni());
+
+            System.out.println("=> Running clockGettimeJna");
+            checkPositive(benchmark.clockGettimeJna());
+
+            System.out.println("=> Running clockGettimeJnr");
+            checkPositive(benchmark.clockGettimeJnr());
+
+            System.out.println("=> Running clockGettimePanama");
+            checkPositive(benchmark.clockGettimePanama());
+
+            System.out.println("=> Running clockGettimePanamaTrivial");
+            checkPositive(benchmark.clockGettimePanamaTrivial());
+
+            System.out.println("=> Running getrusageJni");
+            checkPositive(benchmark.getrusageJni());
+
+            System.out.println("=> Running getrusageJna");
+            checkPositive(benchmark.getrusageJna());
+
+            System.out.println("=> Running getrusageJnr");
+            checkPositive(benchmark.getrusageJnr());
+
+            System.out.println("=> Running getrusagePanama");
+            checkPositive(benchmark.getrusagePanama());
+
+            System.out.println("=> Running getrusagePanamaTrivial");
+            checkPositive(benchmark.getrusagePanamaTrivial());
+
+            System.out.println("=> Running statJni");
+            checkEquals(size, benchmark.statJni());
+
+            System.out.println("=> Running statJna");
+            checkEquals(size, benchmark.statJna());
+
+            System.out.println("=> Running statJnrPosix");
+            checkEquals(size, benchmark.statJnrPosix());
+
+            System.out.println("=> Running statPanama");
+            checkEquals(size, benchmark.statPanama());
+
+            System.out.println("=> Running readJni");
+            checkEquals(READ_SIZE, benchmark.readJni());
+
+            System.out.println("=> Running readJna");
+            checkEquals(READ_SIZE, benchmark.readJna());
+
+            System.out.println("=> Running readJnrPosix");
+            checkEquals(READ_SIZE, benchmark.readJnrPosix());
+
+            System.out.println("=> Running readPanama");
+            checkEquals(READ_SIZE, benchmark.readPanama());
+
+            System.out.println("=> Running readPanamaTrivial");
+            checkEquals(READ_SIZE, benchmark.readPanamaTrivial());
+        } finally {
+            benchmark.cleanup();
+        }
+    }
+}
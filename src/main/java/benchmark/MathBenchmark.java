@@ -0,0 +1,635 @@
+package benchmark;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import jnr.ffi.LibraryLoader;
+import jnr.ffi.LibraryOption;
+import jnr.ffi.annotations.In;
+import jnr.ffi.annotations.Out;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+
+import static benchmark.Helper.downcallHandle;
+import static benchmark.Helper.libcDowncallHandle;
+import static java.lang.foreign.ValueLayout.*;
+
+/*
+ * Calls libm functions, with java.lang.Math and java.lang.StrictMath as the baseline.
+ * Math.sin, exp, log, pow and cbrt are intrinsified by HotSpot, StrictMath is the pure Java port of fdlibm.
+ * There is no erf in the JDK, so erf only has native backends.
+ *
+ * The default lookup used by the Panama handles includes libm on Linux.
+ *
+ * The vsin benchmarks compute sin over a whole array, either with a single call to ffi_benchmark_vsin in library.so,
+ * with one downcall per element, or with a Java loop.
+ */
+@State(Scope.Benchmark)
+public class MathBenchmark {
+
+    public interface JnaLibM extends Library {
+        JnaLibM INSTANCE = Native.load("m", JnaLibM.class);
+
+        double sin(double x);
+
+        double exp(double x);
+
+        double log(double x);
+
+        double pow(double x, double y);
+
+        double cbrt(double x);
+
+        double erf(double x);
+    }
+
+    public interface JnaLib extends Library {
+        JnaLib INSTANCE = Helper.loadJna(JnaLib.class);
+
+        void ffi_benchmark_vsin(double[] src, double[] dst, long n);
+    }
+
+    private static final class JnaDirect {
+        static {
+            Native.register(JnaDirect.class, "m");
+        }
+
+        static native double sin(double x);
+
+        static native double exp(double x);
+
+        static native double log(double x);
+
+        static native double pow(double x, double y);
+
+        static native double cbrt(double x);
+
+        static native double erf(double x);
+    }
+
+    public interface JnrLibM {
+        double sin(double x);
+
+        double exp(double x);
+
+        double log(double x);
+
+        double pow(double x, double y);
+
+        double cbrt(double x);
+
+        double erf(double x);
+    }
+
+    public interface JnrLib {
+        void ffi_benchmark_vsin(@In double[] src, @Out double[] dst, long n);
+    }
+
+    private static final JnrLibM JNR = LibraryLoader.create(JnrLibM.class).load("m");
+    private static final JnrLibM JNR_IGNORE_ERROR = LibraryLoader.loadLibrary(
+            JnrLibM.class,
+            Map.of(LibraryOption.IgnoreError, true),
+            "m"
+    );
+    private static final JnrLib JNR_LIB = Helper.loadJnr(JnrLib.class);
+
+    private static native double sin(double x);
+
+    private static native double exp(double x);
+
+    private static native double log(double x);
+
+    private static native double pow(double x, double y);
+
+    private static native double cbrt(double x);
+
+    private static native double erf(double x);
+
+    private static native void vsin(double[] src, double[] dst, int length);
+
+    private static final FunctionDescriptor UNARY_DESCRIPTOR = FunctionDescriptor.of(JAVA_DOUBLE, JAVA_DOUBLE);
+    private static final FunctionDescriptor BINARY_DESCRIPTOR = FunctionDescriptor.of(JAVA_DOUBLE, JAVA_DOUBLE, JAVA_DOUBLE);
+    private static final FunctionDescriptor VSIN_DESCRIPTOR = FunctionDescriptor.ofVoid(ADDRESS, ADDRESS, JAVA_LONG);
+
+    private static final MethodHandle sin = libcDowncallHandle("sin", UNARY_DESCRIPTOR, false);
+    private static final MethodHandle sinTrivial = libcDowncallHandle("sin", UNARY_DESCRIPTOR, true);
+
+    private static final MethodHandle exp = libcDowncallHandle("exp", UNARY_DESCRIPTOR, false);
+    private static final MethodHandle expTrivial = libcDowncallHandle("exp", UNARY_DESCRIPTOR, true);
+
+    private static final MethodHandle log = libcDowncallHandle("log", UNARY_DESCRIPTOR, false);
+    private static final MethodHandle logTrivial = libcDowncallHandle("log", UNARY_DESCRIPTOR, true);
+
+    private static final MethodHandle pow = libcDowncallHandle("pow", BINARY_DESCRIPTOR, false);
+    private static final MethodHandle powTrivial = libcDowncallHandle("pow", BINARY_DESCRIPTOR, true);
+
+    private static final MethodHandle cbrt = libcDowncallHandle("cbrt", UNARY_DESCRIPTOR, false);
+    private static final MethodHandle cbrtTrivial = libcDowncallHandle("cbrt", UNARY_DESCRIPTOR, true);
+
+    private static final MethodHandle erf = libcDowncallHandle("erf", UNARY_DESCRIPTOR, false);
+    private static final MethodHandle erfTrivial = libcDowncallHandle("erf", UNARY_DESCRIPTOR, true);
+
+    private static final MethodHandle vsin = downcallHandle("ffi_benchmark_vsin", VSIN_DESCRIPTOR, false);
+    private static final MethodHandle vsinTrivial = downcallHandle("ffi_benchmark_vsin", VSIN_DESCRIPTOR, true);
+
+    double x = 0.5;
+    double y = 2.5;
+
+    // Only taken by the vsin benchmarks, so that the scalar ones don't run once per length
+    @State(Scope.Benchmark)
+    public static class Batch {
+        @Param({"16", "1024", "65536"})
+        int length;
+
+        double[] src;
+        double[] dst;
+
+        Arena arena;
+        MemorySegment srcSegment;
+        MemorySegment dstSegment;
+
+        @Setup
+        public void setup() {
+            src = new double[length];
+            dst = new double[length];
+            for (int i = 0; i < length; i++) {
+                src[i] = i * 0.001;
+            }
+
+            arena = Arena.ofConfined();
+            srcSegment = arena.allocate((long) length * Double.BYTES, 8);
+            dstSegment = arena.allocate((long) length * Double.BYTES, 8);
+            MemorySegment.copy(src, 0, srcSegment, JAVA_DOUBLE, 0, length);
+        }
+
+        @TearDown
+        public void cleanup() {
+            src = null;
+            dst = null;
+
+            arena.close();
+            arena = null;
+            srcSegment = null;
+            dstSegment = null;
+        }
+    }
+
+    // ========= sin =========
+
+    @Benchmark
+    public double sinJni() {
+        return sin(x);
+    }
+
+    @Benchmark
+    public double sinJna() {
+        return JnaLibM.INSTANCE.sin(x);
+    }
+
+    @Benchmark
+    public double sinJnaDirect() {
+        return JnaDirect.sin(x);
+    }
+
+    @Benchmark
+    public double sinJnr() {
+        return JNR.sin(x);
+    }
+
+    @Benchmark
+    public double sinJnrIgnoreError() {
+        return JNR_IGNORE_ERROR.sin(x);
+    }
+
+    @Benchmark
+    public double sinPanama() throws Throwable {
+        return (double) sin.invokeExact(x);
+    }
+
+    @Benchmark
+    public double sinPanamaTrivial() throws Throwable {
+        return (double) sinTrivial.invokeExact(x);
+    }
+
+    @Benchmark
+    public double sinMath() {
+        return Math.sin(x);
+    }
+
+    @Benchmark
+    public double sinStrictMath() {
+        return StrictMath.sin(x);
+    }
+
+    // ========= exp =========
+
+    @Benchmark
+    public double expJni() {
+        return exp(x);
+    }
+
+    @Benchmark
+    public double expJna() {
+        return JnaLibM.INSTANCE.exp(x);
+    }
+
+    @Benchmark
+    public double expJnaDirect() {
+        return JnaDirect.exp(x);
+    }
+
+    @Benchmark
+    public double expJnr() {
+        return JNR.exp(x);
+    }
+
+    @Benchmark
+    public double expJnrIgnoreError() {
+        return JNR_IGNORE_ERROR.exp(x);
+    }
+
+    @Benchmark
+    public double expPanama() throws Throwable {
+        return (double) exp.invokeExact(x);
+    }
+
+    @Benchmark
+    public double expPanamaTrivial() throws Throwable {
+        return (double) expTrivial.invokeExact(x);
+    }
+
+    @Benchmark
+    public double expMath() {
+        return Math.exp(x);
+    }
+
+    @Benchmark
+    public double expStrictMath() {
+        return StrictMath.exp(x);
+    }
+
+    // ========= log =========
+
+    @Benchmark
+    public double logJni() {
+        return log(x);
+    }
+
+    @Benchmark
+    public double logJna() {
+        return JnaLibM.INSTANCE.log(x);
+    }
+
+    @Benchmark
+    public double logJnaDirect() {
+        return JnaDirect.log(x);
+    }
+
+    @Benchmark
+    public double logJnr() {
+        return JNR.log(x);
+    }
+
+    @Benchmark
+    public double logJnrIgnoreError() {
+        return JNR_IGNORE_ERROR.log(x);
+    }
+
+    @Benchmark
+    public double logPanama() throws Throwable {
+        return (double) log.invokeExact(x);
+    }
+
+    @Benchmark
+    public double logPanamaTrivial() throws Throwable {
+        return (double) logTrivial.invokeExact(x);
+    }
+
+    @Benchmark
+    public double logMath() {
+        return Math.log(x);
+    }
+
+    @Benchmark
+    public double logStrictMath() {
+        return StrictMath.log(x);
+    }
+
+    // ========= pow =========
+
+    @Benchmark
+    public double powJni() {
+        return pow(x, y);
+    }
+
+    @Benchmark
+    public double powJna() {
+        return JnaLibM.INSTANCE.pow(x, y);
+    }
+
+    @Benchmark
+    public double powJnaDirect() {
+        return JnaDirect.pow(x, y);
+    }
+
+    @Benchmark
+    public double powJnr() {
+        return JNR.pow(x, y);
+    }
+
+    @Benchmark
+    public double powJnrIgnoreError() {
+        return JNR_IGNORE_ERROR.pow(x, y);
+    }
+
+    @Benchmark
+    public double powPanama() throws Throwable {
+        return (double) pow.invokeExact(x, y);
+    }
+
+    @Benchmark
+    public double powPanamaTrivial() throws Throwable {
+        return (double) powTrivial.invokeExact(x, y);
+    }
+
+    @Benchmark
+    public double powMath() {
+        return Math.pow(x, y);
+    }
+
+    @Benchmark
+    public double powStrictMath() {
+        return StrictMath.pow(x, y);
+    }
+
+    // ========= cbrt =========
+
+    @Benchmark
+    public double cbrtJni() {
+        return cbrt(x);
+    }
+
+    @Benchmark
+    public double cbrtJna() {
+        return JnaLibM.INSTANCE.cbrt(x);
+    }
+
+    @Benchmark
+    public double cbrtJnaDirect() {
+        return JnaDirect.cbrt(x);
+    }
+
+    @Benchmark
+    public double cbrtJnr() {
+        return JNR.cbrt(x);
+    }
+
+    @Benchmark
+    public double cbrtJnrIgnoreError() {
+        return JNR_IGNORE_ERROR.cbrt(x);
+    }
+
+    @Benchmark
+    public double cbrtPanama() throws Throwable {
+        return (double) cbrt.invokeExact(x);
+    }
+
+    @Benchmark
+    public double cbrtPanamaTrivial() throws Throwable {
+        return (double) cbrtTrivial.invokeExact(x);
+    }
+
+    @Benchmark
+    public double cbrtMath() {
+        return Math.cbrt(x);
+    }
+
+    @Benchmark
+    public double cbrtStrictMath() {
+        return StrictMath.cbrt(x);
+    }
+
+    // ========= erf =========
+
+    @Benchmark
+    public double erfJni() {
+        return erf(x);
+    }
+
+    @Benchmark
+    public double erfJna() {
+        return JnaLibM.INSTANCE.erf(x);
+    }
+
+    @Benchmark
+    public double erfJnaDirect() {
+        return JnaDirect.erf(x);
+    }
+
+    @Benchmark
+    public double erfJnr() {
+        return JNR.erf(x);
+    }
+
+    @Benchmark
+    public double erfJnrIgnoreError() {
+        return JNR_IGNORE_ERROR.erf(x);
+    }
+
+    @Benchmark
+    public double erfPanama() throws Throwable {
+        return (double) erf.invokeExact(x);
+    }
+
+    @Benchmark
+    public double erfPanamaTrivial() throws Throwable {
+        return (double) erfTrivial.invokeExact(x);
+    }
+
+    // ========= vsin =========
+
+    @Benchmark
+    public double[] vsinJni(Batch batch) {
+        vsin(batch.src, batch.dst, batch.length);
+        return batch.dst;
+    }
+
+    @Benchmark
+    public double[] vsinJna(Batch batch) {
+        JnaLib.INSTANCE.ffi_benchmark_vsin(batch.src, batch.dst, batch.length);
+        return batch.dst;
+    }
+
+    @Benchmark
+    public double[] vsinJnr(Batch batch) {
+        JNR_LIB.ffi_benchmark_vsin(batch.src, batch.dst, batch.length);
+        return batch.dst;
+    }
+
+    @Benchmark
+    public MemorySegment vsinPanama(Batch batch) throws Throwable {
+        vsin.invokeExact(batch.srcSegment, batch.dstSegment, (long) batch.length);
+        return batch.dstSegment;
+    }
+
+    @Benchmark
+    public MemorySegment vsinPanamaTrivial(Batch batch) throws Throwable {
+        vsinTrivial.invokeExact(batch.srcSegment, batch.dstSegment, (long) batch.length);
+        return batch.dstSegment;
+    }
+
+    @Benchmark
+    public double[] vsinPanamaTrivialHeap(Batch batch) throws Throwable {
+        vsinTrivial.invokeExact(MemorySegment.ofArray(batch.src), MemorySegment.ofArray(batch.dst), (long) batch.length);
+        return batch.dst;
+    }
+
+    @Benchmark
+    public MemorySegment vsinPanamaPerElement(Batch batch) throws Throwable {
+        for (int i = 0; i < batch.length; i++) {
+            batch.dstSegment.setAtIndex(JAVA_DOUBLE, i, (double) sinTrivial.invokeExact(batch.srcSegment.getAtIndex(JAVA_DOUBLE, i)));
+        }
+        return batch.dstSegment;
+    }
+
+    @Benchmark
+    public double[] vsinMath(Batch batch) {
+        for (int i = 0; i < batch.length; i++) {
+            batch.dst[i] = Math.sin(batch.src[i]);
+        }
+        return batch.dst;
+    }
+
+    @Benchmark
+    public double[] vsinStrictMath(Batch batch) {
+        for (int i = 0; i < batch.length; i++) {
+            batch.dst[i] = StrictMath.sin(batch.src[i]);
+        }
+        return batch.dst;
+    }
+
+    @Benchmark
+    public MemorySegment vsinMathSegment(Batch batch) {
+        for (int i = 0; i < batch.length; i++) {
+            batch.dstSegment.setAtIndex(JAVA_DOUBLE, i, Math.sin(batch.srcSegment.getAtIndex(JAVA_DOUBLE, i)));
+        }
+        return batch.dstSegment;
+    }
+
+    private interface DoubleBenchmark {
+        double run() throws Throwable;
+    }
+
+    private interface VsinBenchmark {
+        Object run() throws Throwable;
+    }
+
+    // The native backends must agree exactly, the JDK implementations only within a few ulps
+    private static void check(String name, double expected, DoubleBenchmark benchmark, boolean exact) throws Throwable {
+        System.out.println("=> Running " + name);
+        double actual = benchmark.run();
+        if (exact ? Double.compare(expected, actual) != 0 : Math.abs(expected - actual) > 2 * Math.ulp(expected)) {
+            throw new AssertionError("expect: " + expected + ", actual: " + actual);
+        }
+    }
+
+    private static void checkVsin(Batch batch, String name, VsinBenchmark run) throws Throwable {
+        System.out.println("=> Running " + name);
+        java.util.Arrays.fill(batch.dst, Double.NaN);
+        batch.dstSegment.fill((byte) 0xff);
+
+        Object result = run.run();
+        for (int i = 0; i < batch.length; i++) {
+            double expected = StrictMath.sin(batch.src[i]);
+            double actual = result instanceof MemorySegment segment ? segment.getAtIndex(JAVA_DOUBLE, i) : ((double[]) result)[i];
+            if (Math.abs(expected - actual) > 2 * Math.ulp(expected)) {
+                throw new AssertionError("expect: " + expected + ", actual: " + actual + ", index: " + i);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Throwable {
+        MathBenchmark benchmark = new MathBenchmark();
+
+        Batch batch = new Batch();
+        batch.length = 1024;
+        batch.setup();
+
+        try {
+            double sinExpected = benchmark.sinJni();
+            check("sinJna", sinExpected, benchmark::sinJna, true);
+            check("sinJnaDirect", sinExpected, benchmark::sinJnaDirect, true);
+            check("sinJnr", sinExpected, benchmark::sinJnr, true);
+            check("sinJnrIgnoreError", sinExpected, benchmark::sinJnrIgnoreError, true);
+            check("sinPanama", sinExpected, benchmark::sinPanama, true);
+            check("sinPanamaTrivial", sinExpected, benchmark::sinPanamaTrivial, true);
+            check("sinMath", sinExpected, benchmark::sinMath, false);
+            check("sinStrictMath", sinExpected, benchmark::sinStrictMath, false);
+
+            double expExpected = benchmark.expJni();
+            check("expJna", expExpected, benchmark::expJna, true);
+            check("expJnaDirect", expExpected, benchmark::expJnaDirect, true);
+            check("expJnr", expExpected, benchmark::expJnr, true);
+            check("expJnrIgnoreError", expExpected, benchmark::expJnrIgnoreError, true);
+            check("expPanama", expExpected, benchmark::expPanama, true);
+            check("expPanamaTrivial", expExpected, benchmark::expPanamaTrivial, true);
+            check("expMath", expExpected, benchmark::expMath, false);
+            check("expStrictMath", expExpected, benchmark::expStrictMath, false);
+
+            double logExpected = benchmark.logJni();
+            check("logJna", logExpected, benchmark::logJna, true);
+            check("logJnaDirect", logExpected, benchmark::logJnaDirect, true);
+            check("logJnr", logExpected, benchmark::logJnr, true);
+            check("logJnrIgnoreError", logExpected, benchmark::logJnrIgnoreError, true);
+            check("logPanama", logExpected, benchmark::logPanama, true);
+            check("logPanamaTrivial", logExpected, benchmark::logPanamaTrivial, true);
+            check("logMath", logExpected, benchmark::logMath, false);
+            check("logStrictMath", logExpected, benchmark::logStrictMath, false);
+
+            double powExpected = benchmark.powJni();
+            check("powJna", powExpected, benchmark::powJna, true);
+            check("powJnaDirect", powExpected, benchmark::powJnaDirect, true);
+            check("powJnr", powExpected, benchmark::powJnr, true);
+            check("powJnrIgnoreError", powExpected, benchmark::powJnrIgnoreError, true);
+            check("powPanama", powExpected, benchmark::powPanama, true);
+            check("powPanamaTrivial", powExpected, benchmark::powPanamaTrivial, true);
+            check("powMath", powExpected, benchmark::powMath, false);
+            check("powStrictMath", powExpected, benchmark::powStrictMath, false);
+
+            double cbrtExpected = benchmark.cbrtJni();
+            check("cbrtJna", cbrtExpected, benchmark::cbrtJna, true);
+            check("cbrtJnaDirect", cbrtExpected, benchmark::cbrtJnaDirect, true);
+            check("cbrtJnr", cbrtExpected, benchmark::cbrtJnr, true);
+            check("cbrtJnrIgnoreError", cbrtExpected, benchmark::cbrtJnrIgnoreError, true);
+            check("cbrtPanama", cbrtExpected, benchmark::cbrtPanama, true);
+            check("cbrtPanamaTrivial", cbrtExpected, benchmark::cbrtPanamaTrivial, true);
+            check("cbrtMath", cbrtExpected, benchmark::cbrtMath, false);
+            check("cbrtStrictMath", cbrtExpected, benchmark::cbrtStrictMath, false);
+
+            double erfExpected = benchmark.erfJni();
+            check("erfJna", erfExpected, benchmark::erfJna, true);
+            check("erfJnaDirect", erfExpected, benchmark::erfJnaDirect, true);
+            check("erfJnr", erfExpected, benchmark::erfJnr, true);
+            check("erfJnrIgnoreError", erfExpected, benchmark::erfJnrIgnoreError, true);
+            check("erfPanama", erfExpected, benchmark::erfPanama, true);
+            check("erfPanamaTrivial", erfExpected, benchmark::erfPanamaTrivial, true);
+
+            checkVsin(batch, "vsinJni", () -> benchmark.vsinJni(batch));
+            checkVsin(batch, "vsinJna", () -> benchmark.vsinJna(batch));
+            checkVsin(batch, "vsinJnr", () -> benchmark.vsinJnr(batch));
+            checkVsin(batch, "vsinPanama", () -> benchmark.vsinPanama(batch));
+            checkVsin(batch, "vsinPanamaTrivial", () -> benchmark.vsinPanamaTrivial(batch));
+            checkVsin(batch, "vsinPanamaTrivialHeap", () -> benchmark.vsinPanamaTrivialHeap(batch));
+            checkVsin(batch, "vsinPanamaPerElement", () -> benchmark.vsinPanamaPerElement(batch));
+            checkVsin(batch, "vsinMath", () -> benchmark.vsinMath(batch));
+            checkVsin(batch, "vsinStrictMath", () -> benchmark.vsinStrictMath(batch));
+            checkVsin(batch, "vsinMathSegment", () -> benchmark.vsinMathSegment(batch));
+        } finally {
+            batch.cleanup();
+        }
+    }
+}
@@ -0,0 +1,782 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.VarHandle;
+
+import static benchmark.Helper.UNSAFE;
+import static java.lang.foreign.ValueLayout.*;
+
+/*
+ * Reads and writes native memory from Java, without any foreign call.
+ *
+ * Every invocation performs ACCESSES accesses (the score is per access) at the offsets
+ * (start + i * step) & (size - 1), where the start continues from the previous invocation:
+ *
+ * - SEQUENTIAL: the step is the element size;
+ * - STRIDED: the step is a cache line (64 bytes);
+ * - RANDOM: the step is an odd multiple of the element size close to size / phi,
+ *   so the offsets visit every element in a scattered order (a Weyl sequence)
+ *   with a stride too large for the hardware prefetchers.
+ */
+public class MemoryAccessBenchmark {
+
+    private static final int ACCESSES = 512;
+    private static final long CACHE_LINE = 64;
+
+    // Array element handles, with (segment, base offset, index) coordinates: JAVA_*.varHandle() is the handle that
+    // MemorySegment.get/set already use, these scale the index through the layout path instead
+    private static final VarHandle BYTE_HANDLE = JAVA_BYTE.arrayElementVarHandle();
+    private static final VarHandle INT_HANDLE = JAVA_INT.arrayElementVarHandle();
+    private static final VarHandle LONG_HANDLE = JAVA_LONG.arrayElementVarHandle();
+    private static final VarHandle DOUBLE_HANDLE = JAVA_DOUBLE.arrayElementVarHandle();
+
+    public enum Type {
+        BYTE(1), INT(4), LONG(8), DOUBLE(8);
+
+        final long size;
+
+        Type(long size) {
+            this.size = size;
+        }
+    }
+
+    public enum Pattern {
+        SEQUENTIAL, STRIDED, RANDOM
+    }
+
+    @State(Scope.Thread)
+    public static class Buffer {
+        // Must be powers of two
+        @Param({"4096", "65536", "1048576", "16777216", "268435456", "1073741824"})
+        long size;
+
+        @Param({"BYTE", "INT", "LONG", "DOUBLE"})
+        Type type;
+
+        Arena arena;
+        MemorySegment segment;
+        long address;
+        long mask;
+        long cursor;
+        com.sun.jna.Pointer jnaPointer;
+        jnr.ffi.Pointer jnrPointer;
+
+        @Setup
+        public void setup() {
+            arena = Arena.ofConfined();
+            segment = arena.allocate(size, 4096);
+            address = segment.address();
+            mask = size - 1;
+            cursor = 0;
+            jnaPointer = new com.sun.jna.Pointer(address);
+            jnrPointer = jnr.ffi.Runtime.getSystemRuntime().getMemoryManager().newPointer(address, size);
+        }
+
+        @TearDown
+        public void cleanup() {
+            arena.close();
+            arena = null;
+            segment = null;
+            address = 0L;
+            jnaPointer = null;
+            jnrPointer = null;
+        }
+
+        long advance(long step) {
+            long start = cursor;
+            cursor = (cursor + ACCESSES * step) & mask;
+            return start;
+        }
+
+        // The next ACCESSES elements, the slices tile the buffer because its size is a multiple of 4096
+        MemorySegment slice() {
+            long length = ACCESSES * type.size;
+            return segment.asSlice(advance(type.size) & ~(length - 1), length);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Walk {
+        @Param({"SEQUENTIAL", "STRIDED", "RANDOM"})
+        Pattern pattern;
+
+        long step(Buffer buffer) {
+            return switch (pattern) {
+                case SEQUENTIAL -> buffer.type.size;
+                case STRIDED -> CACHE_LINE;
+                case RANDOM -> ((long) (buffer.size / buffer.type.size * 0.6180339887498949) | 1L) * buffer.type.size;
+            };
+        }
+    }
+
+    // ========= Segment =========
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public long readSegment(Buffer buffer, Walk walk) {
+        long step = walk.step(buffer);
+        long start = buffer.advance(step);
+        return switch (buffer.type) {
+            case BYTE -> readSegmentBytes(buffer.segment, start, step, buffer.mask);
+            case INT -> readSegmentInts(buffer.segment, start, step, buffer.mask);
+            case LONG -> readSegmentLongs(buffer.segment, start, step, buffer.mask);
+            case DOUBLE -> (long) readSegmentDoubles(buffer.segment, start, step, buffer.mask);
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void writeSegment(Buffer buffer, Walk walk) {
+        long step = walk.step(buffer);
+        long start = buffer.advance(step);
+        switch (buffer.type) {
+            case BYTE -> writeSegmentBytes(buffer.segment, start, step, buffer.mask);
+            case INT -> writeSegmentInts(buffer.segment, start, step, buffer.mask);
+            case LONG -> writeSegmentLongs(buffer.segment, start, step, buffer.mask);
+            case DOUBLE -> writeSegmentDoubles(buffer.segment, start, step, buffer.mask);
+        }
+    }
+
+    private static long readSegmentBytes(MemorySegment segment, long start, long step, long mask) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += segment.get(JAVA_BYTE, (start + i * step) & mask);
+        }
+        return sum;
+    }
+
+    private static void writeSegmentBytes(MemorySegment segment, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            segment.set(JAVA_BYTE, (start + i * step) & mask, (byte) i);
+        }
+    }
+
+    private static long readSegmentInts(MemorySegment segment, long start, long step, long mask) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += segment.get(JAVA_INT, (start + i * step) & mask);
+        }
+        return sum;
+    }
+
+    private static void writeSegmentInts(MemorySegment segment, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            segment.set(JAVA_INT, (start + i * step) & mask, i);
+        }
+    }
+
+    private static long readSegmentLongs(MemorySegment segment, long start, long step, long mask) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += segment.get(JAVA_LONG, (start + i * step) & mask);
+        }
+        return sum;
+    }
+
+    private static void writeSegmentLongs(MemorySegment segment, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            segment.set(JAVA_LONG, (start + i * step) & mask, (long) i);
+        }
+    }
+
+    private static double readSegmentDoubles(MemorySegment segment, long start, long step, long mask) {
+        double sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += segment.get(JAVA_DOUBLE, (start + i * step) & mask);
+        }
+        return sum;
+    }
+
+    private static void writeSegmentDoubles(MemorySegment segment, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            segment.set(JAVA_DOUBLE, (start + i * step) & mask, (double) i);
+        }
+    }
+
+    // ========= SegmentUnaligned =========
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public long readSegmentUnaligned(Buffer buffer, Walk walk) {
+        long step = walk.step(buffer);
+        long start = buffer.advance(step);
+        return switch (buffer.type) {
+            case BYTE -> readSegmentUnalignedBytes(buffer.segment, start, step, buffer.mask);
+            case INT -> readSegmentUnalignedInts(buffer.segment, start, step, buffer.mask);
+            case LONG -> readSegmentUnalignedLongs(buffer.segment, start, step, buffer.mask);
+            case DOUBLE -> (long) readSegmentUnalignedDoubles(buffer.segment, start, step, buffer.mask);
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void writeSegmentUnaligned(Buffer buffer, Walk walk) {
+        long step = walk.step(buffer);
+        long start = buffer.advance(step);
+        switch (buffer.type) {
+            case BYTE -> writeSegmentUnalignedBytes(buffer.segment, start, step, buffer.mask);
+            case INT -> writeSegmentUnalignedInts(buffer.segment, start, step, buffer.mask);
+            case LONG -> writeSegmentUnalignedLongs(buffer.segment, start, step, buffer.mask);
+            case DOUBLE -> writeSegmentUnalignedDoubles(buffer.segment, start, step, buffer.mask);
+        }
+    }
+
+    private static long readSegmentUnalignedBytes(MemorySegment segment, long start, long step, long mask) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += segment.get(JAVA_BYTE, (start + i * step) & mask);
+        }
+        return sum;
+    }
+
+    private static void writeSegmentUnalignedBytes(MemorySegment segment, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            segment.set(JAVA_BYTE, (start + i * step) & mask, (byte) i);
+        }
+    }
+
+    private static long readSegmentUnalignedInts(MemorySegment segment, long start, long step, long mask) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += segment.get(JAVA_INT_UNALIGNED, (start + i * step) & mask);
+        }
+        return sum;
+    }
+
+    private static void writeSegmentUnalignedInts(MemorySegment segment, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            segment.set(JAVA_INT_UNALIGNED, (start + i * step) & mask, i);
+        }
+    }
+
+    private static long readSegmentUnalignedLongs(MemorySegment segment, long start, long step, long mask) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += segment.get(JAVA_LONG_UNALIGNED, (start + i * step) & mask);
+        }
+        return sum;
+    }
+
+    private static void writeSegmentUnalignedLongs(MemorySegment segment, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            segment.set(JAVA_LONG_UNALIGNED, (start + i * step) & mask, (long) i);
+        }
+    }
+
+    private static double readSegmentUnalignedDoubles(MemorySegment segment, long start, long step, long mask) {
+        double sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += segment.get(JAVA_DOUBLE_UNALIGNED, (start + i * step) & mask);
+        }
+        return sum;
+    }
+
+    private static void writeSegmentUnalignedDoubles(MemorySegment segment, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            segment.set(JAVA_DOUBLE_UNALIGNED, (start + i * step) & mask, (double) i);
+        }
+    }
+
+    // ========= VarHandle =========
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public long readVarHandle(Buffer buffer, Walk walk) {
+        long step = walk.step(buffer);
+        long start = buffer.advance(step);
+        return switch (buffer.type) {
+            case BYTE -> readVarHandleBytes(buffer.segment, start, step, buffer.mask);
+            case INT -> readVarHandleInts(buffer.segment, start, step, buffer.mask);
+            case LONG -> readVarHandleLongs(buffer.segment, start, step, buffer.mask);
+            case DOUBLE -> (long) readVarHandleDoubles(buffer.segment, start, step, buffer.mask);
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void writeVarHandle(Buffer buffer, Walk walk) {
+        long step = walk.step(buffer);
+        long start = buffer.advance(step);
+        switch (buffer.type) {
+            case BYTE -> writeVarHandleBytes(buffer.segment, start, step, buffer.mask);
+            case INT -> writeVarHandleInts(buffer.segment, start, step, buffer.mask);
+            case LONG -> writeVarHandleLongs(buffer.segment, start, step, buffer.mask);
+            case DOUBLE -> writeVarHandleDoubles(buffer.segment, start, step, buffer.mask);
+        }
+    }
+
+    private static long readVarHandleBytes(MemorySegment segment, long start, long step, long mask) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += (byte) BYTE_HANDLE.get(segment, 0L, (start + i * step) & mask);
+        }
+        return sum;
+    }
+
+    private static void writeVarHandleBytes(MemorySegment segment, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            BYTE_HANDLE.set(segment, 0L, (start + i * step) & mask, (byte) i);
+        }
+    }
+
+    private static long readVarHandleInts(MemorySegment segment, long start, long step, long mask) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += (int) INT_HANDLE.get(segment, 0L, ((start + i * step) & mask) >>> 2);
+        }
+        return sum;
+    }
+
+    private static void writeVarHandleInts(MemorySegment segment, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            INT_HANDLE.set(segment, 0L, ((start + i * step) & mask) >>> 2, i);
+        }
+    }
+
+    private static long readVarHandleLongs(MemorySegment segment, long start, long step, long mask) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += (long) LONG_HANDLE.get(segment, 0L, ((start + i * step) & mask) >>> 3);
+        }
+        return sum;
+    }
+
+    private static void writeVarHandleLongs(MemorySegment segment, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            LONG_HANDLE.set(segment, 0L, ((start + i * step) & mask) >>> 3, (long) i);
+        }
+    }
+
+    private static double readVarHandleDoubles(MemorySegment segment, long start, long step, long mask) {
+        double sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += (double) DOUBLE_HANDLE.get(segment, 0L, ((start + i * step) & mask) >>> 3);
+        }
+        return sum;
+    }
+
+    private static void writeVarHandleDoubles(MemorySegment segment, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            DOUBLE_HANDLE.set(segment, 0L, ((start + i * step) & mask) >>> 3, (double) i);
+        }
+    }
+
+    // ========= Unsafe =========
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public long readUnsafe(Buffer buffer, Walk walk) {
+        long step = walk.step(buffer);
+        long start = buffer.advance(step);
+        return switch (buffer.type) {
+            case BYTE -> readUnsafeBytes(buffer.address, start, step, buffer.mask);
+            case INT -> readUnsafeInts(buffer.address, start, step, buffer.mask);
+            case LONG -> readUnsafeLongs(buffer.address, start, step, buffer.mask);
+            case DOUBLE -> (long) readUnsafeDoubles(buffer.address, start, step, buffer.mask);
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void writeUnsafe(Buffer buffer, Walk walk) {
+        long step = walk.step(buffer);
+        long start = buffer.advance(step);
+        switch (buffer.type) {
+            case BYTE -> writeUnsafeBytes(buffer.address, start, step, buffer.mask);
+            case INT -> writeUnsafeInts(buffer.address, start, step, buffer.mask);
+            case LONG -> writeUnsafeLongs(buffer.address, start, step, buffer.mask);
+            case DOUBLE -> writeUnsafeDoubles(buffer.address, start, step, buffer.mask);
+        }
+    }
+
+    private static long readUnsafeBytes(long address, long start, long step, long mask) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += UNSAFE.getByte(address + ((start + i * step) & mask));
+        }
+        return sum;
+    }
+
+    private static void writeUnsafeBytes(long address, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            UNSAFE.putByte(address + ((start + i * step) & mask), (byte) i);
+        }
+    }
+
+    private static long readUnsafeInts(long address, long start, long step, long mask) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += UNSAFE.getInt(address + ((start + i * step) & mask));
+        }
+        return sum;
+    }
+
+    private static void writeUnsafeInts(long address, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            UNSAFE.putInt(address + ((start + i * step) & mask), i);
+        }
+    }
+
+    private static long readUnsafeLongs(long address, long start, long step, long mask) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += UNSAFE.getLong(address + ((start + i * step) & mask));
+        }
+        return sum;
+    }
+
+    private static void writeUnsafeLongs(long address, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            UNSAFE.putLong(address + ((start + i * step) & mask), (long) i);
+        }
+    }
+
+    private static double readUnsafeDoubles(long address, long start, long step, long mask) {
+        double sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += UNSAFE.getDouble(address + ((start + i * step) & mask));
+        }
+        return sum;
+    }
+
+    private static void writeUnsafeDoubles(long address, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            UNSAFE.putDouble(address + ((start + i * step) & mask), (double) i);
+        }
+    }
+
+    // ========= Jna =========
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public long readJna(Buffer buffer, Walk walk) {
+        long step = walk.step(buffer);
+        long start = buffer.advance(step);
+        return switch (buffer.type) {
+            case BYTE -> readJnaBytes(buffer.jnaPointer, start, step, buffer.mask);
+            case INT -> readJnaInts(buffer.jnaPointer, start, step, buffer.mask);
+            case LONG -> readJnaLongs(buffer.jnaPointer, start, step, buffer.mask);
+            case DOUBLE -> (long) readJnaDoubles(buffer.jnaPointer, start, step, buffer.mask);
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void writeJna(Buffer buffer, Walk walk) {
+        long step = walk.step(buffer);
+        long start = buffer.advance(step);
+        switch (buffer.type) {
+            case BYTE -> writeJnaBytes(buffer.jnaPointer, start, step, buffer.mask);
+            case INT -> writeJnaInts(buffer.jnaPointer, start, step, buffer.mask);
+            case LONG -> writeJnaLongs(buffer.jnaPointer, start, step, buffer.mask);
+            case DOUBLE -> writeJnaDoubles(buffer.jnaPointer, start, step, buffer.mask);
+        }
+    }
+
+    private static long readJnaBytes(com.sun.jna.Pointer pointer, long start, long step, long mask) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += pointer.getByte((start + i * step) & mask);
+        }
+        return sum;
+    }
+
+    private static void writeJnaBytes(com.sun.jna.Pointer pointer, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            pointer.setByte((start + i * step) & mask, (byte) i);
+        }
+    }
+
+    private static long readJnaInts(com.sun.jna.Pointer pointer, long start, long step, long mask) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += pointer.getInt((start + i * step) & mask);
+        }
+        return sum;
+    }
+
+    private static void writeJnaInts(com.sun.jna.Pointer pointer, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            pointer.setInt((start + i * step) & mask, i);
+        }
+    }
+
+    private static long readJnaLongs(com.sun.jna.Pointer pointer, long start, long step, long mask) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += pointer.getLong((start + i * step) & mask);
+        }
+        return sum;
+    }
+
+    private static void writeJnaLongs(com.sun.jna.Pointer pointer, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            pointer.setLong((start + i * step) & mask, (long) i);
+        }
+    }
+
+    private static double readJnaDoubles(com.sun.jna.Pointer pointer, long start, long step, long mask) {
+        double sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += pointer.getDouble((start + i * step) & mask);
+        }
+        return sum;
+    }
+
+    private static void writeJnaDoubles(com.sun.jna.Pointer pointer, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            pointer.setDouble((start + i * step) & mask, (double) i);
+        }
+    }
+
+    // ========= Jnr =========
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public long readJnr(Buffer buffer, Walk walk) {
+        long step = walk.step(buffer);
+        long start = buffer.advance(step);
+        return switch (buffer.type) {
+            case BYTE -> readJnrBytes(buffer.jnrPointer, start, step, buffer.mask);
+            case INT -> readJnrInts(buffer.jnrPointer, start, step, buffer.mask);
+            case LONG -> readJnrLongs(buffer.jnrPointer, start, step, buffer.mask);
+            case DOUBLE -> (long) readJnrDoubles(buffer.jnrPointer, start, step, buffer.mask);
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void writeJnr(Buffer buffer, Walk walk) {
+        long step = walk.step(buffer);
+        long start = buffer.advance(step);
+        switch (buffer.type) {
+            case BYTE -> writeJnrBytes(buffer.jnrPointer, start, step, buffer.mask);
+            case INT -> writeJnrInts(buffer.jnrPointer, start, step, buffer.mask);
+            case LONG -> writeJnrLongs(buffer.jnrPointer, start, step, buffer.mask);
+            case DOUBLE -> writeJnrDoubles(buffer.jnrPointer, start, step, buffer.mask);
+        }
+    }
+
+    private static long readJnrBytes(jnr.ffi.Pointer pointer, long start, long step, long mask) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += pointer.getByte((start + i * step) & mask);
+        }
+        return sum;
+    }
+
+    private static void writeJnrBytes(jnr.ffi.Pointer pointer, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            pointer.putByte((start + i * step) & mask, (byte) i);
+        }
+    }
+
+    private static long readJnrInts(jnr.ffi.Pointer pointer, long start, long step, long mask) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += pointer.getInt((start + i * step) & mask);
+        }
+        return sum;
+    }
+
+    private static void writeJnrInts(jnr.ffi.Pointer pointer, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            pointer.putInt((start + i * step) & mask, i);
+        }
+    }
+
+    private static long readJnrLongs(jnr.ffi.Pointer pointer, long start, long step, long mask) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += pointer.getLongLong((start + i * step) & mask);
+        }
+        return sum;
+    }
+
+    private static void writeJnrLongs(jnr.ffi.Pointer pointer, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            pointer.putLongLong((start + i * step) & mask, (long) i);
+        }
+    }
+
+    private static double readJnrDoubles(jnr.ffi.Pointer pointer, long start, long step, long mask) {
+        double sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += pointer.getDouble((start + i * step) & mask);
+        }
+        return sum;
+    }
+
+    private static void writeJnrDoubles(jnr.ffi.Pointer pointer, long start, long step, long mask) {
+        for (int i = 0; i < ACCESSES; i++) {
+            pointer.putDouble((start + i * step) & mask, (double) i);
+        }
+    }
+
+    // ========= Bounds check elimination =========
+
+    /*
+     * The offsets above are masked, so the JIT compiler has to check the bounds of every access.
+     * Here the loop is counted and the offset is linear in the induction variable,
+     * so the checks can be hoisted out of the loop (compare with readUnsafe/writeUnsafe with the SEQUENTIAL pattern).
+     */
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public long readSegmentHoisted(Buffer buffer) {
+        MemorySegment slice = buffer.slice();
+        return switch (buffer.type) {
+            case BYTE -> readSegmentHoistedBytes(slice);
+            case INT -> readSegmentHoistedInts(slice);
+            case LONG -> readSegmentHoistedLongs(slice);
+            case DOUBLE -> (long) readSegmentHoistedDoubles(slice);
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void writeSegmentHoisted(Buffer buffer) {
+        MemorySegment slice = buffer.slice();
+        switch (buffer.type) {
+            case BYTE -> writeSegmentHoistedBytes(slice);
+            case INT -> writeSegmentHoistedInts(slice);
+            case LONG -> writeSegmentHoistedLongs(slice);
+            case DOUBLE -> writeSegmentHoistedDoubles(slice);
+        }
+    }
+
+    private static long readSegmentHoistedBytes(MemorySegment slice) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += slice.get(JAVA_BYTE, i);
+        }
+        return sum;
+    }
+
+    private static void writeSegmentHoistedBytes(MemorySegment slice) {
+        for (int i = 0; i < ACCESSES; i++) {
+            slice.set(JAVA_BYTE, i, (byte) i);
+        }
+    }
+
+    private static long readSegmentHoistedInts(MemorySegment slice) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += slice.get(JAVA_INT, i * 4L);
+        }
+        return sum;
+    }
+
+    private static void writeSegmentHoistedInts(MemorySegment slice) {
+        for (int i = 0; i < ACCESSES; i++) {
+            slice.set(JAVA_INT, i * 4L, i);
+        }
+    }
+
+    private static long readSegmentHoistedLongs(MemorySegment slice) {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += slice.get(JAVA_LONG, i * 8L);
+        }
+        return sum;
+    }
+
+    private static void writeSegmentHoistedLongs(MemorySegment slice) {
+        for (int i = 0; i < ACCESSES; i++) {
+            slice.set(JAVA_LONG, i * 8L, (long) i);
+        }
+    }
+
+    private static double readSegmentHoistedDoubles(MemorySegment slice) {
+        double sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += slice.get(JAVA_DOUBLE, i * 8L);
+        }
+        return sum;
+    }
+
+    private static void writeSegmentHoistedDoubles(MemorySegment slice) {
+        for (int i = 0; i < ACCESSES; i++) {
+            slice.set(JAVA_DOUBLE, i * 8L, (double) i);
+        }
+    }
+
+    public static void main(String[] args) {
+        MemoryAccessBenchmark benchmark = new MemoryAccessBenchmark();
+
+        for (long size : new long[]{4096, 65536}) {
+            for (Type type : Type.values()) {
+                for (Pattern pattern : Pattern.values()) {
+                    System.out.println("# size = " + size + ", type = " + type + ", pattern = " + pattern);
+
+                    Buffer buffer = new Buffer();
+                    buffer.size = size;
+                    buffer.type = type;
+                    buffer.setup();
+
+                    Walk walk = new Walk();
+                    walk.pattern = pattern;
+
+                    try {
+                        String[] writers = pattern == Pattern.SEQUENTIAL
+                                ? new String[]{"Segment", "SegmentUnaligned", "VarHandle", "Unsafe", "Jna", "Jnr", "SegmentHoisted"}
+                                : new String[]{"Segment", "SegmentUnaligned", "VarHandle", "Unsafe", "Jna", "Jnr"};
+                        for (String name : writers) {
+                            System.out.println("=> Running write" + name);
+                            buffer.segment.fill((byte) 0);
+                            buffer.cursor = 0;
+                            switch (name) {
+                                case "Segment" -> benchmark.writeSegment(buffer, walk);
+                                case "SegmentUnaligned" -> benchmark.writeSegmentUnaligned(buffer, walk);
+                                case "VarHandle" -> benchmark.writeVarHandle(buffer, walk);
+                                case "Unsafe" -> benchmark.writeUnsafe(buffer, walk);
+                                case "Jna" -> benchmark.writeJna(buffer, walk);
+                                case "Jnr" -> benchmark.writeJnr(buffer, walk);
+                                case "SegmentHoisted" -> benchmark.writeSegmentHoisted(buffer);
+                            }
+
+                            // All accessors must see what was written
+                            long[] results = new long[7];
+                            buffer.cursor = 0;
+                            results[0] = benchmark.readSegment(buffer, walk);
+                            buffer.cursor = 0;
+                            results[1] = benchmark.readSegmentUnaligned(buffer, walk);
+                            buffer.cursor = 0;
+                            results[2] = benchmark.readVarHandle(buffer, walk);
+                            buffer.cursor = 0;
+                            results[3] = benchmark.readUnsafe(buffer, walk);
+                            buffer.cursor = 0;
+                            results[4] = benchmark.readJna(buffer, walk);
+                            buffer.cursor = 0;
+                            results[5] = benchmark.readJnr(buffer, walk);
+
+                            System.out.println("=> Running read*");
+                            for (int i = 1; i < 6; i++) {
+                                if (results[i] != results[0]) {
+                                    throw new AssertionError("expect: " + results[0] + ", actual: " + results[i]);
+                                }
+                            }
+
+                            if (pattern == Pattern.SEQUENTIAL) {
+                                buffer.cursor = 0;
+                                results[6] = benchmark.readSegmentHoisted(buffer);
+                                if (results[6] != results[0]) {
+                                    throw new AssertionError("expect: " + results[0] + ", actual: " + results[6]);
+                                }
+                            }
+
+                            if (results[0] == 0) {
+                                throw new AssertionError("Nothing was written");
+                            }
+                        }
+                    } finally {
+                        buffer.cleanup();
+                    }
+                }
+            }
+        }
+    }
+}
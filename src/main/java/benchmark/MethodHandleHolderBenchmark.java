@@ -0,0 +1,280 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MutableCallSite;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static benchmark.Helper.downcallHandle;
+import static benchmark.SysinfoBenchmark.memUnitHandle;
+import static benchmark.SysinfoBenchmark.sysinfoLayout;
+import static java.lang.foreign.ValueLayout.ADDRESS;
+
+/*
+ * The other benchmarks keep their downcall handles in static final fields, which C2 treats as constants,
+ * so it can inline the whole downcall. This benchmark calls the handles of NoopBenchmark.noopPanama and
+ * SysinfoBenchmark.getMemUnitPanamaNoAllocate from the places binding libraries usually keep them:
+ *
+ * - StaticFinal: a static final field (the baseline);
+ * - InstanceFinal: a final instance field, which C2 does not trust to be constant;
+ * - StaticRecord / InstanceRecord: a record, whose fields are trusted, held by a static final or an instance field;
+ * - HolderClass: a static final field of a lazily initialized holder class;
+ * - Lazy: a non-final static field initialized on first use. jdk.internal.vm.annotation.Stable would make it constant,
+ *   but it is only honored in JDK classes;
+ * - Map: a ConcurrentHashMap keyed by symbol name;
+ * - MutableCallSite / ConstantCallSite: the dynamic invoker of a call site, as linked by an invokedynamic instruction.
+ */
+@State(Scope.Benchmark)
+public class MethodHandleHolderBenchmark {
+
+    private static final FunctionDescriptor NOOP_DESCRIPTOR = FunctionDescriptor.ofVoid();
+    private static final FunctionDescriptor SYSINFO_DESCRIPTOR = FunctionDescriptor.ofVoid(ADDRESS.withTargetLayout(sysinfoLayout));
+
+    record Bindings(MethodHandle noop, MethodHandle sysinfo) {
+        static Bindings create() {
+            return new Bindings(
+                    downcallHandle("ffi_benchmark_noop", NOOP_DESCRIPTOR, false),
+                    downcallHandle("ffi_benchmark_sysinfo", SYSINFO_DESCRIPTOR, false)
+            );
+        }
+    }
+
+    private static final MethodHandle noop = downcallHandle("ffi_benchmark_noop", NOOP_DESCRIPTOR, false);
+    private static final MethodHandle sysinfo = downcallHandle("ffi_benchmark_sysinfo", SYSINFO_DESCRIPTOR, false);
+
+    private static final Bindings STATIC_BINDINGS = Bindings.create();
+
+    private static final class Holder {
+        static final MethodHandle noop = downcallHandle("ffi_benchmark_noop", NOOP_DESCRIPTOR, false);
+        static final MethodHandle sysinfo = downcallHandle("ffi_benchmark_sysinfo", SYSINFO_DESCRIPTOR, false);
+    }
+
+    private static MethodHandle lazyNoop;
+    private static MethodHandle lazySysinfo;
+
+    private static MethodHandle lazyNoop() {
+        MethodHandle handle = lazyNoop;
+        if (handle == null) {
+            handle = downcallHandle("ffi_benchmark_noop", NOOP_DESCRIPTOR, false);
+            lazyNoop = handle;
+        }
+        return handle;
+    }
+
+    private static MethodHandle lazySysinfo() {
+        MethodHandle handle = lazySysinfo;
+        if (handle == null) {
+            handle = downcallHandle("ffi_benchmark_sysinfo", SYSINFO_DESCRIPTOR, false);
+            lazySysinfo = handle;
+        }
+        return handle;
+    }
+
+    private static final ConcurrentHashMap<String, MethodHandle> HANDLES = new ConcurrentHashMap<>();
+
+    private static MethodHandle lookup(String name, FunctionDescriptor function) {
+        return HANDLES.computeIfAbsent(name, n -> downcallHandle(n, function, false));
+    }
+
+    private static final MutableCallSite NOOP_MUTABLE_SITE = new MutableCallSite(noop);
+    private static final MutableCallSite SYSINFO_MUTABLE_SITE = new MutableCallSite(sysinfo);
+
+    private static final MethodHandle noopMutable = NOOP_MUTABLE_SITE.dynamicInvoker();
+    private static final MethodHandle sysinfoMutable = SYSINFO_MUTABLE_SITE.dynamicInvoker();
+
+    private static final MethodHandle noopConstant = new ConstantCallSite(noop).dynamicInvoker();
+    private static final MethodHandle sysinfoConstant = new ConstantCallSite(sysinfo).dynamicInvoker();
+
+    final MethodHandle instanceNoop = downcallHandle("ffi_benchmark_noop", NOOP_DESCRIPTOR, false);
+    final MethodHandle instanceSysinfo = downcallHandle("ffi_benchmark_sysinfo", SYSINFO_DESCRIPTOR, false);
+    final Bindings instanceBindings = Bindings.create();
+
+    Arena benchmarkArena;
+    MemorySegment info;
+
+    @Setup
+    public void setup() {
+        benchmarkArena = Arena.ofConfined();
+        info = benchmarkArena.allocate(sysinfoLayout);
+    }
+
+    @TearDown
+    public void cleanup() {
+        benchmarkArena.close();
+        benchmarkArena = null;
+        info = null;
+    }
+
+    // ========= noop =========
+
+    @Benchmark
+    public void noopStaticFinal() throws Throwable {
+        noop.invokeExact();
+    }
+
+    @Benchmark
+    public void noopInstanceFinal() throws Throwable {
+        instanceNoop.invokeExact();
+    }
+
+    @Benchmark
+    public void noopStaticRecord() throws Throwable {
+        STATIC_BINDINGS.noop().invokeExact();
+    }
+
+    @Benchmark
+    public void noopInstanceRecord() throws Throwable {
+        instanceBindings.noop().invokeExact();
+    }
+
+    @Benchmark
+    public void noopHolderClass() throws Throwable {
+        Holder.noop.invokeExact();
+    }
+
+    @Benchmark
+    public void noopLazy() throws Throwable {
+        lazyNoop().invokeExact();
+    }
+
+    @Benchmark
+    public void noopMap() throws Throwable {
+        lookup("ffi_benchmark_noop", NOOP_DESCRIPTOR).invokeExact();
+    }
+
+    @Benchmark
+    public void noopMutableCallSite() throws Throwable {
+        noopMutable.invokeExact();
+    }
+
+    @Benchmark
+    public void noopConstantCallSite() throws Throwable {
+        noopConstant.invokeExact();
+    }
+
+    // ========= sysinfo =========
+
+    @Benchmark
+    public int getMemUnitStaticFinal() throws Throwable {
+        sysinfo.invokeExact(info);
+        return (int) memUnitHandle.get(info, 0L);
+    }
+
+    @Benchmark
+    public int getMemUnitInstanceFinal() throws Throwable {
+        instanceSysinfo.invokeExact(info);
+        return (int) memUnitHandle.get(info, 0L);
+    }
+
+    @Benchmark
+    public int getMemUnitStaticRecord() throws Throwable {
+        STATIC_BINDINGS.sysinfo().invokeExact(info);
+        return (int) memUnitHandle.get(info, 0L);
+    }
+
+    @Benchmark
+    public int getMemUnitInstanceRecord() throws Throwable {
+        instanceBindings.sysinfo().invokeExact(info);
+        return (int) memUnitHandle.get(info, 0L);
+    }
+
+    @Benchmark
+    public int getMemUnitHolderClass() throws Throwable {
+        Holder.sysinfo.invokeExact(info);
+        return (int) memUnitHandle.get(info, 0L);
+    }
+
+    @Benchmark
+    public int getMemUnitLazy() throws Throwable {
+        lazySysinfo().invokeExact(info);
+        return (int) memUnitHandle.get(info, 0L);
+    }
+
+    @Benchmark
+    public int getMemUnitMap() throws Throwable {
+        lookup("ffi_benchmark_sysinfo", SYSINFO_DESCRIPTOR).invokeExact(info);
+        return (int) memUnitHandle.get(info, 0L);
+    }
+
+    @Benchmark
+    public int getMemUnitMutableCallSite() throws Throwable {
+        sysinfoMutable.invokeExact(info);
+        return (int) memUnitHandle.get(info, 0L);
+    }
+
+    @Benchmark
+    public int getMemUnitConstantCallSite() throws Throwable {
+        sysinfoConstant.invokeExact(info);
+        return (int) memUnitHandle.get(info, 0L);
+    }
+
+    private interface MemUnitCall {
+        int run() throws Throwable;
+    }
+
+    private interface NoopCall {
+        void run() throws Throwable;
+    }
+
+    public static void main(String[] args) throws Throwable {
+        var jnaInfo = new com.sun.jna.platform.linux.LibC.Sysinfo();
+        com.sun.jna.platform.linux.LibC.INSTANCE.sysinfo(jnaInfo);
+        int memUnit = jnaInfo.mem_unit;
+
+        MethodHandleHolderBenchmark benchmark = new MethodHandleHolderBenchmark();
+        benchmark.setup();
+
+        try {
+            String[] holders = {
+                    "StaticFinal", "InstanceFinal", "StaticRecord", "InstanceRecord", "HolderClass",
+                    "Lazy", "Map", "MutableCallSite", "ConstantCallSite"
+            };
+
+            for (String holder : holders) {
+                System.out.println("=> Running noop" + holder);
+                NoopCall noop = switch (holder) {
+                    case "StaticFinal" -> benchmark::noopStaticFinal;
+                    case "InstanceFinal" -> benchmark::noopInstanceFinal;
+                    case "StaticRecord" -> benchmark::noopStaticRecord;
+                    case "InstanceRecord" -> benchmark::noopInstanceRecord;
+                    case "HolderClass" -> benchmark::noopHolderClass;
+                    case "Lazy" -> benchmark::noopLazy;
+                    case "Map" -> benchmark::noopMap;
+                    case "MutableCallSite" -> benchmark::noopMutableCallSite;
+                    case "ConstantCallSite" -> benchmark::noopConstantCallSite;
+                    default -> throw new AssertionError(holder);
+                };
+                noop.run();
+            }
+
+            for (String holder : holders) {
+                System.out.println("=> Running getMemUnit" + holder);
+                MemUnitCall getMemUnit = switch (holder) {
+                    case "StaticFinal" -> benchmark::getMemUnitStaticFinal;
+                    case "InstanceFinal" -> benchmark::getMemUnitInstanceFinal;
+                    case "StaticRecord" -> benchmark::getMemUnitStaticRecord;
+                    case "InstanceRecord" -> benchmark::getMemUnitInstanceRecord;
+                    case "HolderClass" -> benchmark::getMemUnitHolderClass;
+                    case "Lazy" -> benchmark::getMemUnitLazy;
+                    case "Map" -> benchmark::getMemUnitMap;
+                    case "MutableCallSite" -> benchmark::getMemUnitMutableCallSite;
+                    case "ConstantCallSite" -> benchmark::getMemUnitConstantCallSite;
+                    default -> throw new AssertionError(holder);
+                };
+
+                benchmark.info.fill((byte) 0);
+                int actual = getMemUnit.run();
+                if (actual != memUnit) {
+                    throw new AssertionError("expect: " + memUnit + ", actual: " + actual);
+                }
+            }
+        } finally {
+            benchmark.cleanup();
+        }
+    }
+}
@@ -1,15 +1,37 @@
 package benchmark;
 
 import java.lang.foreign.*;
+import java.lang.invoke.MethodHandle;
 import java.lang.ref.Cleaner;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Locale;
 import java.util.concurrent.locks.ReentrantLock;
 
+import static java.lang.foreign.ValueLayout.*;
+
 public final class NativeStack implements SegmentAllocator, AutoCloseable {
 
-    private static final long STACK_SIZE = Long.getLong("NativeStack.stackSize", 1024 * 1024);
+    /*
+     * Where the memory of the stacks comes from:
+     *
+     * - ARENA: Arena.allocate, which zeroes (and so commits) the whole stack up front;
+     * - MMAP: an anonymous MAP_NORESERVE mapping, pages are committed on first touch;
+     * - HUGEPAGE: like MMAP, but 2 MiB aligned and advised with MADV_HUGEPAGE,
+     *   so that transparent huge pages can back it (the stack size is rounded up to 2 MiB).
+     *
+     * With MMAP and HUGEPAGE, the pages above NativeStack.trimThreshold that were touched by a stack
+     * are returned to the OS with MADV_DONTNEED when the stack goes back to the cache pool.
+     */
+    enum Memory {
+        ARENA, MMAP, HUGEPAGE
+    }
+
+    static final Memory MEMORY = Memory.valueOf(System.getProperty("NativeStack.memory", "arena").toUpperCase(Locale.ROOT));
+
+    static final long STACK_SIZE = Long.getLong("NativeStack.stackSize", 1024 * 1024);
     private static final int CACHE_LIMIT = Integer.getInteger("NativeStack.cacheLimit", Integer.max(Runtime.getRuntime().availableProcessors(), 8));
+    static final long TRIM_THRESHOLD = Long.getLong("NativeStack.trimThreshold", 64 * 1024);
 
     private static final ThreadLocal<NativeStack> threadStack = new ThreadLocal<>();
     private static final Cleaner CLEANER = Cleaner.create();
@@ -26,6 +48,7 @@ public final class NativeStack implements SegmentAllocator, AutoCloseable {
 
     private final MemorySegment segment;
     private long offset = 0L;
+    private long highWater = 0L;
     private long[] frames = new long[8];
     private int frameIndex = 0;
 
@@ -45,23 +68,38 @@ public final class NativeStack implements SegmentAllocator, AutoCloseable {
         if (thread.isVirtual()) {
             cachePoolLock.lock();
             try {
-                if (cachePool.isEmpty()) {
-                    stack = new NativeStack(thread, sharedArena.allocate(STACK_SIZE), true);
-                } else {
+                if (!cachePool.isEmpty()) {
                     stack = cachePool.removeLast();
                     stack.changeOwner(thread);
                 }
             } finally {
                 cachePoolLock.unlock();
             }
+
+            if (stack == null) {
+                stack = newStack(thread, true);
+            }
+        } else {
+            stack = newStack(thread, false);
+        }
+
+        threadStack.set(stack);
+        return stack;
+    }
+
+    private static NativeStack newStack(Thread owner, boolean shared) {
+        NativeStack stack;
+        if (MEMORY != Memory.ARENA) {
+            // The slices returned by allocate keep the automatic arena, and so the mapping, reachable
+            stack = new NativeStack(owner, Mmap.map(STACK_SIZE, MEMORY == Memory.HUGEPAGE, Arena.ofAuto()), shared);
+        } else if (shared) {
+            stack = new NativeStack(owner, sharedArena.allocate(STACK_SIZE), true);
         } else {
             //noinspection resource
             Arena arena = Arena.ofConfined();
-            stack = new NativeStack(thread, arena.allocate(STACK_SIZE), false);
+            stack = new NativeStack(owner, arena.allocate(STACK_SIZE), false);
             CLEANER.register(stack, arena::close);
         }
-
-        threadStack.set(stack);
         return stack;
     }
 
@@ -106,6 +144,9 @@ public final class NativeStack implements SegmentAllocator, AutoCloseable {
         if (prevIndex == 0 && shared) {
             threadStack.set(null);
             this.owner = null;
+            if (MEMORY != Memory.ARENA) {
+                trim();
+            }
             cachePoolLock.lock();
             try {
                 if (cachePool.size() < CACHE_LIMIT) {
@@ -142,6 +183,114 @@ public final class NativeStack implements SegmentAllocator, AutoCloseable {
         long start = alignUp(address + offset, byteAlignment) - address;
         MemorySegment slice = segment.asSlice(start, byteSize, byteAlignment);
         offset = start + byteSize;
+        if (offset > highWater) {
+            highWater = offset;
+        }
         return slice;
     }
+
+    private void trim() {
+        long from = alignUp(TRIM_THRESHOLD, Mmap.PAGE_SIZE);
+        long to = alignUp(highWater, Mmap.PAGE_SIZE);
+        if (to > from) {
+            Mmap.discard(segment, from, to - from);
+        }
+        highWater = Long.min(highWater, from);
+    }
+
+    /*
+     * Anonymous mappings for the MMAP and HUGEPAGE modes, only initialized when they are used.
+     * The constants are the same on x86_64 and aarch64 Linux.
+     */
+    static final class Mmap {
+        static final long PAGE_SIZE = Helper.UNSAFE.pageSize();
+        static final long HUGE_PAGE_SIZE = 2 * 1024 * 1024;
+
+        private static final int PROT_READ = 0x1;
+        private static final int PROT_WRITE = 0x2;
+        private static final int MAP_PRIVATE = 0x02;
+        private static final int MAP_ANONYMOUS = 0x20;
+        private static final int MAP_NORESERVE = 0x4000;
+        private static final int MADV_DONTNEED = 4;
+        private static final int MADV_HUGEPAGE = 14;
+
+        private static final MethodHandle mmap = Helper.libcDowncallHandle("mmap",
+                FunctionDescriptor.of(JAVA_LONG, JAVA_LONG, JAVA_LONG, JAVA_INT, JAVA_INT, JAVA_INT, JAVA_LONG), false);
+        private static final MethodHandle munmap = Helper.libcDowncallHandle("munmap",
+                FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_LONG), false);
+        private static final MethodHandle madvise = Helper.libcDowncallHandle("madvise",
+                FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_LONG, JAVA_INT), false);
+
+        private Mmap() {
+        }
+
+        // The mapping is unmapped when the arena is closed
+        static MemorySegment map(long byteSize, boolean hugePages, Arena arena) {
+            try {
+                if (!hugePages) {
+                    byteSize = alignUp(byteSize, PAGE_SIZE);
+                    return MemorySegment.ofAddress(reserve(byteSize)).reinterpret(byteSize, arena, Mmap::unmap);
+                }
+
+                // Over-reserve, then unmap the parts outside of the aligned range
+                byteSize = alignUp(byteSize, HUGE_PAGE_SIZE);
+                long reserved = reserve(byteSize + HUGE_PAGE_SIZE);
+                long address = alignUp(reserved, HUGE_PAGE_SIZE);
+                if (address > reserved) {
+                    release(reserved, address - reserved);
+                }
+                release(address + byteSize, reserved + HUGE_PAGE_SIZE - address);
+
+                // Succeeds even if transparent huge pages are set to `never` (the mapping then uses regular pages),
+                // it only fails if the kernel doesn't support them
+                if ((int) madvise.invokeExact(address, byteSize, MADV_HUGEPAGE) != 0) {
+                    release(address, byteSize);
+                    throw new UnsupportedOperationException("Transparent huge pages are not supported");
+                }
+                return MemorySegment.ofAddress(address).reinterpret(byteSize, arena, Mmap::unmap);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        private static long reserve(long byteSize) throws Throwable {
+            long address = (long) mmap.invokeExact(0L, byteSize, PROT_READ | PROT_WRITE,
+                    MAP_PRIVATE | MAP_ANONYMOUS | MAP_NORESERVE, -1, 0L);
+            if (address == -1L) {
+                throw new OutOfMemoryError("Failed to map " + byteSize + " bytes");
+            }
+            return address;
+        }
+
+        private static void release(long address, long byteSize) throws Throwable {
+            if ((int) munmap.invokeExact(address, byteSize) != 0) {
+                throw new IllegalStateException("Failed to unmap " + byteSize + " bytes at 0x" + Long.toHexString(address));
+            }
+        }
+
+        private static void unmap(MemorySegment segment) {
+            try {
+                release(segment.address(), segment.byteSize());
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        // The pages read as zero on the next touch
+        static void discard(MemorySegment segment, long offset, long byteSize) {
+            try {
+                if ((int) madvise.invokeExact(segment.address() + offset, byteSize, MADV_DONTNEED) != 0) {
+                    throw new IllegalStateException("Failed to discard " + byteSize + " bytes at offset " + offset);
+                }
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
 }
@@ -0,0 +1,114 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+
+/*
+ * Compares the memory modes of NativeStack (see NativeStack.Memory):
+ *
+ * - newStack: allocates the memory of a new stack, touches its first `touched` bytes and frees it,
+ *   which is the cost of the first native call on a new thread. In the ARENA mode, glibc serves the 1 MiB malloc
+ *   from a fresh mapping only the first time: once it is freed, the mmap threshold grows above it and the next ones come
+ *   from the already resident heap, so this measures zeroing resident memory rather than first touch;
+ * - reuseStack: pushes a frame on the stack of the current virtual thread, which NativeStack takes from its cache pool,
+ *   touches its first `touched` bytes and pops it, so that the stack goes back to the pool. In the MMAP and HUGEPAGE modes,
+ *   this trims the pages touched above NativeStack.trimThreshold. It runs on the virtual threads of JMH (jmh.executor=VIRTUAL).
+ *
+ * NativeStack reads its mode when it is initialized, so setup sets NativeStack.memory before it is used:
+ * this relies on JMH running every parameter combination in its own fork.
+ *
+ * The RSS of the modes is reported by FootprintReport (the NATIVE_STACK columns).
+ */
+@State(Scope.Thread)
+public class NativeStackMemoryBenchmark {
+
+    @Param({"ARENA", "MMAP", "HUGEPAGE"})
+    String memory;
+
+    @Param({"4096", "65536", "1048576"})
+    long touched;
+
+    NativeStack.Memory mode;
+
+    @Setup
+    public void setup() {
+        System.setProperty("NativeStack.memory", memory);
+        mode = NativeStack.Memory.valueOf(memory);
+        if (NativeStack.MEMORY != mode) {
+            throw new IllegalStateException("NativeStack is already initialized with NativeStack.memory=" + NativeStack.MEMORY);
+        }
+    }
+
+    // Writes one byte per page, as the frames of a stack growing to `touched` bytes would
+    private static void touch(MemorySegment segment, long touched) {
+        for (long offset = 0; offset < touched; offset += NativeStack.Mmap.PAGE_SIZE) {
+            segment.set(JAVA_BYTE, offset, (byte) 1);
+        }
+    }
+
+    @Benchmark
+    public MemorySegment newStack() {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment segment = mode == NativeStack.Memory.ARENA
+                    ? arena.allocate(NativeStack.STACK_SIZE)
+                    : NativeStack.Mmap.map(NativeStack.STACK_SIZE, mode == NativeStack.Memory.HUGEPAGE, arena);
+            touch(segment, touched);
+            return segment;
+        }
+    }
+
+    @Benchmark
+    @Fork(jvmArgsAppend = "-Djmh.executor=VIRTUAL")
+    public MemorySegment reuseStack() {
+        try (NativeStack stack = NativeStack.pushStack()) {
+            MemorySegment frame = stack.allocate(touched, 8);
+            touch(frame, touched);
+            return frame;
+        }
+    }
+
+    // Run with -DNativeStack.memory=mmap or hugepage to check the other modes
+    public static void main(String[] args) throws Throwable {
+        String memory = NativeStack.MEMORY.name();
+        for (long touched : new long[]{4096, 65536, 1048576}) {
+            System.out.println("# memory = " + memory + ", touched = " + touched);
+
+            NativeStackMemoryBenchmark benchmark = new NativeStackMemoryBenchmark();
+            benchmark.memory = memory;
+            benchmark.touched = touched;
+            benchmark.setup();
+
+            System.out.println("=> Running newStack");
+            benchmark.newStack();
+
+            System.out.println("=> Running reuseStack");
+            Throwable[] failure = new Throwable[1];
+            Thread.ofVirtual().start(() -> {
+                try {
+                    MemorySegment first = benchmark.reuseStack();
+                    MemorySegment second = benchmark.reuseStack();
+                    if (first.address() != second.address()) {
+                        throw new AssertionError("The stack was not reused");
+                    }
+
+                    // The pages trimmed when the stack went back to the pool read as zero, the others keep their content
+                    long last = touched - NativeStack.Mmap.PAGE_SIZE;
+                    byte expected = benchmark.mode != NativeStack.Memory.ARENA && last >= NativeStack.TRIM_THRESHOLD ? (byte) 0 : (byte) 1;
+                    if (second.get(JAVA_BYTE, 0) != 1 || second.get(JAVA_BYTE, last) != expected) {
+                        throw new AssertionError("Unexpected content of the reused stack");
+                    }
+                } catch (Throwable e) {
+                    failure[0] = e;
+                }
+            }).join();
+
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+    }
+}
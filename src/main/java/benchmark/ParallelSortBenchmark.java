@@ -0,0 +1,468 @@
+package benchmark;
+
+import com.sun.jna.Callback;
+import com.sun.jna.Library;
+
+import jnr.ffi.annotations.Delegate;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static benchmark.Helper.UNSAFE;
+import static benchmark.Helper.downcallHandle;
+
+import static java.lang.foreign.ValueLayout.*;
+
+/*
+ * Splits a native array into one chunk per thread, sorts the chunks at the same time with the C function `qsort`
+ * and a Java comparator (through the same paths as QSortBenchmark), then merges the sorted chunks.
+ *
+ * This measures whether upcalls scale across cores: the JNI path attaches the current thread for every comparison,
+ * and JNA maps the native thread of every callback to a Java thread.
+ * Arrays.parallelSort on a heap copy of the native array is the baseline,
+ * it always uses the common pool, so it ignores the `threads` parameter.
+ */
+@State(Scope.Benchmark)
+public class ParallelSortBenchmark {
+
+    public enum Type {
+        INT(4), LONG(8);
+
+        final long size;
+
+        Type(long size) {
+            this.size = size;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkSorter {
+        void sort(long address, long elements) throws Throwable;
+    }
+
+    public interface JnaLib extends Library {
+        interface IntComparator extends Callback {
+            IntComparator INSTANCE = (a, b) -> Integer.compare(a.getInt(0), b.getInt(0));
+
+            int invoke(com.sun.jna.Pointer a, com.sun.jna.Pointer b);
+        }
+
+        interface LongComparator extends Callback {
+            LongComparator INSTANCE = (a, b) -> Long.compare(a.getLong(0), b.getLong(0));
+
+            int invoke(com.sun.jna.Pointer a, com.sun.jna.Pointer b);
+        }
+
+        void ffi_benchmark_qsort(com.sun.jna.Pointer data, long elements, IntComparator comparator);
+
+        void ffi_benchmark_qsort_longs(com.sun.jna.Pointer data, long elements, LongComparator comparator);
+    }
+
+    public interface JnrLib {
+        interface IntComparator {
+            IntComparator INSTANCE = (a, b) -> Integer.compare(a.getInt(0), b.getInt(0));
+
+            @Delegate
+            int invoke(jnr.ffi.Pointer a, jnr.ffi.Pointer b);
+        }
+
+        interface LongComparator {
+            LongComparator INSTANCE = (a, b) -> Long.compare(a.getLongLong(0), b.getLongLong(0));
+
+            @Delegate
+            int invoke(jnr.ffi.Pointer a, jnr.ffi.Pointer b);
+        }
+
+        void ffi_benchmark_qsort(jnr.ffi.Pointer data, long elements, IntComparator comparator);
+
+        void ffi_benchmark_qsort_longs(jnr.ffi.Pointer data, long elements, LongComparator comparator);
+    }
+
+    private static final class JnaDirect {
+        public static native void ffi_benchmark_qsort(com.sun.jna.Pointer data, long elements, JnaLib.IntComparator comparator);
+
+        public static native void ffi_benchmark_qsort_longs(com.sun.jna.Pointer data, long elements, JnaLib.LongComparator comparator);
+    }
+
+    static {
+        Helper.registerJnaDirect(JnaDirect.class);
+        initJni();
+    }
+
+    private static final JnaLib JNA = Helper.loadJna(JnaLib.class);
+    private static final JnrLib JNR = Helper.loadJnr(JnrLib.class);
+    private static final JnrLib JNR_IGNORE_ERROR = Helper.loadJnrIgnoreError(JnrLib.class);
+
+    private static native void initJni();
+
+    private static native void qsortInts(long address, long elements);
+
+    private static native void qsortLongs(long address, long elements);
+
+    private static int compareInts(long a, long b) {
+        return Integer.compare(UNSAFE.getInt(a), UNSAFE.getInt(b));
+    }
+
+    private static int compareLongs(long a, long b) {
+        return Long.compare(UNSAFE.getLong(a), UNSAFE.getLong(b));
+    }
+
+    private static int compareInts(MemorySegment a, MemorySegment b) {
+        return Integer.compare(a.get(JAVA_INT, 0), b.get(JAVA_INT, 0));
+    }
+
+    private static int compareLongs(MemorySegment a, MemorySegment b) {
+        return Long.compare(a.get(JAVA_LONG, 0), b.get(JAVA_LONG, 0));
+    }
+
+    private static final MethodHandle qsortInts = downcallHandle("ffi_benchmark_qsort",
+            FunctionDescriptor.ofVoid(ADDRESS, JAVA_LONG, ADDRESS),
+            false);
+
+    private static final MethodHandle qsortLongs = downcallHandle("ffi_benchmark_qsort_longs",
+            FunctionDescriptor.ofVoid(ADDRESS, JAVA_LONG, ADDRESS),
+            false);
+
+    private static final MemorySegment intComparator;
+    private static final MemorySegment longComparator;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodType type = MethodType.methodType(int.class, MemorySegment.class, MemorySegment.class);
+        try {
+            intComparator = Helper.upcallStub(lookup.findStatic(ParallelSortBenchmark.class, "compareInts", type),
+                    FunctionDescriptor.of(JAVA_INT, ADDRESS.withTargetLayout(JAVA_INT), ADDRESS.withTargetLayout(JAVA_INT)),
+                    Arena.global());
+            longComparator = Helper.upcallStub(lookup.findStatic(ParallelSortBenchmark.class, "compareLongs", type),
+                    FunctionDescriptor.of(JAVA_INT, ADDRESS.withTargetLayout(JAVA_LONG), ADDRESS.withTargetLayout(JAVA_LONG)),
+                    Arena.global());
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Param({"65536", "1048576"})
+    long length;
+
+    @Param({"INT", "LONG"})
+    Type type;
+
+    @Param({"1", "2", "4", "8"})
+    int threads;
+
+    ForkJoinPool pool;
+    Arena benchmarkArena;
+    MemorySegment source;
+    MemorySegment data;
+    MemorySegment buffer;
+
+    // The bounds of the chunks, in elements
+    long[] bounds;
+
+    @Setup
+    public void setup() {
+        pool = new ForkJoinPool(threads);
+        benchmarkArena = Arena.ofShared();
+
+        long byteSize = length * type.size;
+        source = benchmarkArena.allocate(byteSize, 8);
+        data = benchmarkArena.allocate(byteSize, 8);
+        buffer = benchmarkArena.allocate(byteSize, 8);
+
+        Random random = new Random(0);
+        for (long i = 0; i < length; i++) {
+            switch (type) {
+                case INT -> source.setAtIndex(JAVA_INT, i, random.nextInt());
+                case LONG -> source.setAtIndex(JAVA_LONG, i, random.nextLong());
+            }
+        }
+
+        bounds = new long[threads + 1];
+        for (int i = 0; i <= threads; i++) {
+            bounds[i] = length * i / threads;
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void reset() {
+        MemorySegment.copy(source, 0, data, 0, source.byteSize());
+    }
+
+    @TearDown
+    public void cleanup() {
+        pool.shutdown();
+        pool = null;
+
+        benchmarkArena.close();
+        benchmarkArena = null;
+        source = null;
+        data = null;
+        buffer = null;
+    }
+
+    private void invokeAll(List<Callable<Void>> tasks) throws Throwable {
+        for (Future<Void> future : pool.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private MemorySegment sort(ChunkSorter sorter) throws Throwable {
+        long address = data.address();
+
+        List<Callable<Void>> tasks = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            long from = bounds[i];
+            long to = bounds[i + 1];
+            tasks.add(() -> {
+                try {
+                    sorter.sort(address + from * type.size, to - from);
+                } catch (Throwable e) {
+                    throw new AssertionError(e);
+                }
+                return null;
+            });
+        }
+        invokeAll(tasks);
+
+        return merge();
+    }
+
+    // Merges adjacent runs in parallel, halving the number of runs in every round
+    private MemorySegment merge() throws Throwable {
+        MemorySegment src = data;
+        MemorySegment dst = buffer;
+        long[] runBounds = bounds;
+        int runs = threads;
+
+        while (runs > 1) {
+            int mergedRuns = (runs + 1) / 2;
+            long[] mergedBounds = new long[mergedRuns + 1];
+            List<Callable<Void>> tasks = new ArrayList<>(mergedRuns);
+
+            for (int r = 0; r < runs; r += 2) {
+                MemorySegment from = src;
+                MemorySegment to = dst;
+                long start = runBounds[r];
+                long mid = runBounds[Math.min(r + 1, runs)];
+                long end = runBounds[Math.min(r + 2, runs)];
+
+                mergedBounds[r / 2] = start;
+                tasks.add(() -> {
+                    switch (type) {
+                        case INT -> mergeInts(from, to, start, mid, end);
+                        case LONG -> mergeLongs(from, to, start, mid, end);
+                    }
+                    return null;
+                });
+            }
+            mergedBounds[mergedRuns] = runBounds[runs];
+            invokeAll(tasks);
+
+            MemorySegment tmp = src;
+            src = dst;
+            dst = tmp;
+            runBounds = mergedBounds;
+            runs = mergedRuns;
+        }
+
+        return src;
+    }
+
+    private static void mergeInts(MemorySegment src, MemorySegment dst, long start, long mid, long end) {
+        long i = start;
+        long j = mid;
+        long k = start;
+        while (i < mid && j < end) {
+            int a = src.getAtIndex(JAVA_INT, i);
+            int b = src.getAtIndex(JAVA_INT, j);
+            if (a <= b) {
+                dst.setAtIndex(JAVA_INT, k++, a);
+                i++;
+            } else {
+                dst.setAtIndex(JAVA_INT, k++, b);
+                j++;
+            }
+        }
+        MemorySegment.copy(src, i * 4, dst, k * 4, (mid - i) * 4);
+        MemorySegment.copy(src, j * 4, dst, (k + mid - i) * 4, (end - j) * 4);
+    }
+
+    private static void mergeLongs(MemorySegment src, MemorySegment dst, long start, long mid, long end) {
+        long i = start;
+        long j = mid;
+        long k = start;
+        while (i < mid && j < end) {
+            long a = src.getAtIndex(JAVA_LONG, i);
+            long b = src.getAtIndex(JAVA_LONG, j);
+            if (a <= b) {
+                dst.setAtIndex(JAVA_LONG, k++, a);
+                i++;
+            } else {
+                dst.setAtIndex(JAVA_LONG, k++, b);
+                j++;
+            }
+        }
+        MemorySegment.copy(src, i * 8, dst, k * 8, (mid - i) * 8);
+        MemorySegment.copy(src, j * 8, dst, (k + mid - i) * 8, (end - j) * 8);
+    }
+
+    @Benchmark
+    public MemorySegment sortJni() throws Throwable {
+        return sort(switch (type) {
+            case INT -> ParallelSortBenchmark::qsortInts;
+            case LONG -> ParallelSortBenchmark::qsortLongs;
+        });
+    }
+
+    @Benchmark
+    public MemorySegment sortJna() throws Throwable {
+        return sort(switch (type) {
+            case INT -> (address, elements) -> JNA.ffi_benchmark_qsort(new com.sun.jna.Pointer(address), elements, JnaLib.IntComparator.INSTANCE);
+            case LONG -> (address, elements) -> JNA.ffi_benchmark_qsort_longs(new com.sun.jna.Pointer(address), elements, JnaLib.LongComparator.INSTANCE);
+        });
+    }
+
+    @Benchmark
+    public MemorySegment sortJnaDirect() throws Throwable {
+        return sort(switch (type) {
+            case INT -> (address, elements) -> JnaDirect.ffi_benchmark_qsort(new com.sun.jna.Pointer(address), elements, JnaLib.IntComparator.INSTANCE);
+            case LONG -> (address, elements) -> JnaDirect.ffi_benchmark_qsort_longs(new com.sun.jna.Pointer(address), elements, JnaLib.LongComparator.INSTANCE);
+        });
+    }
+
+    private static jnr.ffi.Pointer jnrPointer(long address) {
+        return jnr.ffi.Runtime.getSystemRuntime().getMemoryManager().newPointer(address);
+    }
+
+    @Benchmark
+    public MemorySegment sortJnr() throws Throwable {
+        return sort(switch (type) {
+            case INT -> (address, elements) -> JNR.ffi_benchmark_qsort(jnrPointer(address), elements, JnrLib.IntComparator.INSTANCE);
+            case LONG -> (address, elements) -> JNR.ffi_benchmark_qsort_longs(jnrPointer(address), elements, JnrLib.LongComparator.INSTANCE);
+        });
+    }
+
+    @Benchmark
+    public MemorySegment sortJnrIgnoreError() throws Throwable {
+        return sort(switch (type) {
+            case INT -> (address, elements) -> JNR_IGNORE_ERROR.ffi_benchmark_qsort(jnrPointer(address), elements, JnrLib.IntComparator.INSTANCE);
+            case LONG -> (address, elements) -> JNR_IGNORE_ERROR.ffi_benchmark_qsort_longs(jnrPointer(address), elements, JnrLib.LongComparator.INSTANCE);
+        });
+    }
+
+    @Benchmark
+    public MemorySegment sortPanama() throws Throwable {
+        return sort(switch (type) {
+            case INT -> (address, elements) -> {
+                qsortInts.invokeExact(MemorySegment.ofAddress(address), elements, intComparator);
+            };
+            case LONG -> (address, elements) -> {
+                qsortLongs.invokeExact(MemorySegment.ofAddress(address), elements, longComparator);
+            };
+        });
+    }
+
+    @Benchmark
+    public Object sortJavaParallel() {
+        switch (type) {
+            case INT -> {
+                int[] array = data.toArray(JAVA_INT);
+                Arrays.parallelSort(array);
+                return array;
+            }
+            case LONG -> {
+                long[] array = data.toArray(JAVA_LONG);
+                Arrays.parallelSort(array);
+                return array;
+            }
+        }
+        throw new AssertionError(type);
+    }
+
+    private void assertSorted(MemorySegment result) {
+        switch (type) {
+            case INT -> {
+                int[] expected = source.toArray(JAVA_INT);
+                Arrays.sort(expected);
+                if (!Arrays.equals(expected, result.toArray(JAVA_INT))) {
+                    throw new AssertionError("Not sorted");
+                }
+            }
+            case LONG -> {
+                long[] expected = source.toArray(JAVA_LONG);
+                Arrays.sort(expected);
+                if (!Arrays.equals(expected, result.toArray(JAVA_LONG))) {
+                    throw new AssertionError("Not sorted");
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Throwable {
+        for (Type type : Type.values()) {
+            for (int threads : new int[]{1, 3, 4}) {
+                System.out.println("# type = " + type + ", threads = " + threads);
+
+                ParallelSortBenchmark benchmark = new ParallelSortBenchmark();
+                benchmark.length = 10000;
+                benchmark.type = type;
+                benchmark.threads = threads;
+                benchmark.setup();
+
+                try {
+                    System.out.println("=> Running sortJni");
+                    benchmark.reset();
+                    benchmark.assertSorted(benchmark.sortJni());
+
+                    System.out.println("=> Running sortJna");
+                    benchmark.reset();
+                    benchmark.assertSorted(benchmark.sortJna());
+
+                    System.out.println("=> Running sortJnaDirect");
+                    benchmark.reset();
+                    benchmark.assertSorted(benchmark.sortJnaDirect());
+
+                    System.out.println("=> Running sortJnr");
+                    benchmark.reset();
+                    benchmark.assertSorted(benchmark.sortJnr());
+
+                    System.out.println("=> Running sortJnrIgnoreError");
+                    benchmark.reset();
+                    benchmark.assertSorted(benchmark.sortJnrIgnoreError());
+
+                    System.out.println("=> Running sortPanama");
+                    benchmark.reset();
+                    benchmark.assertSorted(benchmark.sortPanama());
+
+                    System.out.println("=> Running sortJavaParallel");
+                    benchmark.reset();
+                    Object array = benchmark.sortJavaParallel();
+                    benchmark.assertSorted(switch (type) {
+                        case INT -> MemorySegment.ofArray((int[]) array);
+                        case LONG -> MemorySegment.ofArray((long[]) array);
+                    });
+                } finally {
+                    benchmark.cleanup();
+                }
+            }
+        }
+    }
+}
@@ -65,32 +65,71 @@ public class QSortBenchmark {
         return Integer.compare(elem1.get(JAVA_INT, 0), elem2.get(JAVA_INT, 0));
     }
 
+    /*
+     * A comparator that captures state, it can't be bound to a single static upcall stub.
+     */
+    @FunctionalInterface
+    interface IntComparator {
+        int compare(int a, int b);
+    }
+
+    private static int qsortCompare(IntComparator comparator, MemorySegment elem1, MemorySegment elem2) {
+        return comparator.compare(elem1.get(JAVA_INT, 0), elem2.get(JAVA_INT, 0));
+    }
+
+    // The trampoline gets the comparator back from the context argument
+    private static int qsortCompareWithContext(MemorySegment elem1, MemorySegment elem2, MemorySegment context) {
+        IntComparator comparator = (IntComparator) ContextHandles.get(context);
+        return comparator.compare(elem1.get(JAVA_INT, 0), elem2.get(JAVA_INT, 0));
+    }
+
     private static final MethodHandle qsort = downcallHandle("ffi_benchmark_qsort",
             FunctionDescriptor.ofVoid(ADDRESS, JAVA_LONG, ADDRESS),
             false);
 
-    private static final MemorySegment qsortComparator = qsortComparator(Arena.global());
+    private static final MethodHandle qsortWithContext = downcallHandle("ffi_benchmark_qsort_r",
+            FunctionDescriptor.ofVoid(ADDRESS, JAVA_LONG, ADDRESS, ADDRESS),
+            false);
 
-    private static MemorySegment qsortComparator(Arena arena) {
+    private static final FunctionDescriptor COMPARATOR_DESCRIPTOR = FunctionDescriptor.of(JAVA_INT,
+            ADDRESS.withTargetLayout(JAVA_INT),
+            ADDRESS.withTargetLayout(JAVA_INT));
+
+    private static final FunctionDescriptor COMPARATOR_WITH_CONTEXT_DESCRIPTOR = FunctionDescriptor.of(JAVA_INT,
+            ADDRESS.withTargetLayout(JAVA_INT),
+            ADDRESS.withTargetLayout(JAVA_INT),
+            ADDRESS);
+
+    private static final MethodHandle qsortCompareHandle;
+    private static final MethodHandle qsortCompareCapturingHandle;
+    private static final MethodHandle qsortCompareWithContextHandle;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
         try {
-            MethodHandle compareHandle = MethodHandles.lookup()
-                    .findStatic(QSortBenchmark.class, "qsortCompare",
-                            MethodType.methodType(int.class,
-                                    MemorySegment.class,
-                                    MemorySegment.class));
-
-            return Helper.upcallStub(compareHandle, FunctionDescriptor.of(JAVA_INT,
-                            ADDRESS.withTargetLayout(JAVA_INT),
-                            ADDRESS.withTargetLayout(JAVA_INT)),
-                    arena);
+            qsortCompareHandle = lookup.findStatic(QSortBenchmark.class, "qsortCompare",
+                    MethodType.methodType(int.class, MemorySegment.class, MemorySegment.class));
+            qsortCompareCapturingHandle = lookup.findStatic(QSortBenchmark.class, "qsortCompare",
+                    MethodType.methodType(int.class, IntComparator.class, MemorySegment.class, MemorySegment.class));
+            qsortCompareWithContextHandle = lookup.findStatic(QSortBenchmark.class, "qsortCompareWithContext",
+                    MethodType.methodType(int.class, MemorySegment.class, MemorySegment.class, MemorySegment.class));
         } catch (NoSuchMethodException | IllegalAccessException e) {
             throw new AssertionError(e);
         }
     }
 
+    private static final MemorySegment qsortComparator = qsortComparator(Arena.global());
+    private static final MemorySegment qsortTrampoline = Helper.upcallStub(qsortCompareWithContextHandle, COMPARATOR_WITH_CONTEXT_DESCRIPTOR, Arena.global());
+
+    private static MemorySegment qsortComparator(Arena arena) {
+        return Helper.upcallStub(qsortCompareHandle, COMPARATOR_DESCRIPTOR, arena);
+    }
+
     @Param({"0", "8", "16", "32", "64", "128"})
     long length;
 
+    int direction = 1;
+
     Arena benchmarkArena;
     MemorySegment segment;
     long address;
@@ -152,13 +191,44 @@ public class QSortBenchmark {
         qsort.invokeExact(segment, length, qsortComparator);
     }
 
-    // @Benchmark
+    // Creates a new upcall stub for every call
+    @Benchmark
     public void qsortPanamaSlow() throws Throwable {
         try (Arena arena = Arena.ofConfined()) {
             qsort.invokeExact(segment, length, qsortComparator(arena));
         }
     }
 
+    @Benchmark
+    public void qsortPanamaCached() throws Throwable {
+        qsort.invokeExact(segment, length, UpcallStubCache.get(qsortCompareHandle, COMPARATOR_DESCRIPTOR, benchmarkArena));
+    }
+
+    private IntComparator newComparator() {
+        int direction = this.direction;
+        return (a, b) -> Integer.compare(a, b) * direction;
+    }
+
+    // A capturing comparator needs its own upcall stub
+    @Benchmark
+    public void qsortPanamaCapturingSlow() throws Throwable {
+        MethodHandle target = qsortCompareCapturingHandle.bindTo(newComparator());
+        try (Arena arena = Arena.ofConfined()) {
+            qsort.invokeExact(segment, length, Helper.upcallStub(target, COMPARATOR_DESCRIPTOR, arena));
+        }
+    }
+
+    // A capturing comparator passed through the context argument of a shared trampoline
+    @Benchmark
+    public void qsortPanamaCapturingTrampoline() throws Throwable {
+        long handle = ContextHandles.register(newComparator());
+        try {
+            qsortWithContext.invokeExact(segment, length, qsortTrampoline, MemorySegment.ofAddress(handle));
+        } finally {
+            ContextHandles.unregister(handle);
+        }
+    }
+
     private void assertStatus() {
         for (int i = 0; i < length; i++) {
             if (segment.get(JAVA_INT, i * 4L) != i) {
@@ -205,9 +275,27 @@ public class QSortBenchmark {
                 System.out.println("=> Running qsortPanamaSlow");
                 benchmark.qsortPanamaSlow();
                 benchmark.assertStatus();
+
+                System.out.println("=> Running qsortPanamaCached");
+                benchmark.qsortPanamaCached();
+                benchmark.qsortPanamaCached();
+                benchmark.assertStatus();
+
+                System.out.println("=> Running qsortPanamaCapturingSlow");
+                benchmark.qsortPanamaCapturingSlow();
+                benchmark.assertStatus();
+
+                System.out.println("=> Running qsortPanamaCapturingTrampoline");
+                benchmark.qsortPanamaCapturingTrampoline();
+                benchmark.assertStatus();
             } finally {
                 benchmark.cleanup();
             }
         }
+
+        UpcallStubCache.evictClosed();
+        if (UpcallStubCache.size() != 0) {
+            throw new AssertionError("Stubs of closed arenas are still cached: " + UpcallStubCache.size());
+        }
     }
 }
@@ -0,0 +1,246 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static benchmark.Helper.downcallHandle;
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+/*
+ * Closing a shared arena needs a handshake with every Java thread in the JVM.
+ *
+ * closeSharedArena measures the close latency while `callers` background threads keep calling a foreign function
+ * with segments from their own shared arenas. It runs in sample time mode, so that the percentiles show the tail
+ * latency of the handshake; closeConfinedArena is the same without a handshake.
+ *
+ * accept/acceptTrivial measure the throughput of the calling threads while a background thread closes
+ * `closesPerSecond` shared arenas per second. Run them with `-t N` to scale the number of calling threads.
+ */
+@State(Scope.Benchmark)
+public class SharedArenaBenchmark {
+
+    private static final MethodHandle accept = downcallHandle("ffi_benchmark_accept_buffer", FunctionDescriptor.of(JAVA_LONG, ADDRESS, JAVA_LONG), false);
+    private static final MethodHandle acceptTrivial = downcallHandle("ffi_benchmark_accept_buffer", FunctionDescriptor.of(JAVA_LONG, ADDRESS, JAVA_LONG), true);
+
+    private static final long SEGMENT_SIZE = 64;
+
+    private static long call(MethodHandle handle, MemorySegment segment) {
+        try {
+            return (long) handle.invokeExact(segment, segment.byteSize());
+        } catch (Throwable e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static MemorySegment allocate(Arena arena) {
+        MemorySegment segment = arena.allocate(SEGMENT_SIZE);
+        segment.set(JAVA_LONG, 0, 1);
+        return segment;
+    }
+
+    @State(Scope.Benchmark)
+    public static class CallerLoad {
+        @Param({"0", "1", "2", "4", "8", "16"})
+        int callers;
+
+        @Param({"false", "true"})
+        boolean trivial;
+
+        volatile boolean running;
+        List<Thread> threads;
+
+        @Setup
+        public void setup() {
+            running = true;
+            threads = new ArrayList<>();
+
+            MethodHandle handle = trivial ? acceptTrivial : accept;
+            for (int i = 0; i < callers; i++) {
+                Thread thread = new Thread(() -> {
+                    try (Arena arena = Arena.ofShared()) {
+                        MemorySegment segment = allocate(arena);
+                        while (running) {
+                            call(handle, segment);
+                        }
+                    }
+                }, "caller-" + i);
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
+            }
+        }
+
+        @TearDown
+        public void cleanup() throws InterruptedException {
+            running = false;
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            threads = null;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class CloserLoad {
+        // 0 means no closing thread
+        @Param({"0", "1000", "10000", "100000"})
+        int closesPerSecond;
+
+        volatile boolean running;
+        Thread thread;
+
+        @Setup
+        public void setup() {
+            if (closesPerSecond == 0) {
+                return;
+            }
+
+            running = true;
+
+            long interval = 1_000_000_000L / closesPerSecond;
+            thread = new Thread(() -> {
+                long next = System.nanoTime();
+                while (running) {
+                    Arena arena = Arena.ofShared();
+                    allocate(arena);
+                    arena.close();
+
+                    // parkNanos is too coarse for the higher rates, so spin until the next deadline
+                    next += interval;
+                    while (running && System.nanoTime() < next) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }, "closer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @TearDown
+        public void cleanup() throws InterruptedException {
+            if (thread != null) {
+                running = false;
+                thread.join();
+                thread = null;
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class CallerSegment {
+        Arena arena;
+        MemorySegment segment;
+
+        @Setup
+        public void setup() {
+            arena = Arena.ofShared();
+            segment = allocate(arena);
+        }
+
+        @TearDown
+        public void cleanup() {
+            arena.close();
+            arena = null;
+            segment = null;
+        }
+    }
+
+    // ========= close latency =========
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void closeSharedArena(CallerLoad load) {
+        Arena arena = Arena.ofShared();
+        allocate(arena);
+        arena.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void closeConfinedArena(CallerLoad load) {
+        Arena arena = Arena.ofConfined();
+        allocate(arena);
+        arena.close();
+    }
+
+    // ========= caller throughput =========
+
+    @Benchmark
+    public long accept(CloserLoad load, CallerSegment caller) throws Throwable {
+        return (long) accept.invokeExact(caller.segment, caller.segment.byteSize());
+    }
+
+    @Benchmark
+    public long acceptTrivial(CloserLoad load, CallerSegment caller) throws Throwable {
+        return (long) acceptTrivial.invokeExact(caller.segment, caller.segment.byteSize());
+    }
+
+    public static void main(String[] args) throws Throwable {
+        SharedArenaBenchmark benchmark = new SharedArenaBenchmark();
+
+        for (int callers : new int[]{0, 2}) {
+            for (boolean trivial : new boolean[]{false, true}) {
+                System.out.println("# callers = " + callers + ", trivial = " + trivial);
+
+                CallerLoad load = new CallerLoad();
+                load.callers = callers;
+                load.trivial = trivial;
+                load.setup();
+                try {
+                    System.out.println("=> Running closeSharedArena");
+                    for (int i = 0; i < 100; i++) {
+                        benchmark.closeSharedArena(load);
+                    }
+
+                    System.out.println("=> Running closeConfinedArena");
+                    for (int i = 0; i < 100; i++) {
+                        benchmark.closeConfinedArena(load);
+                    }
+                } finally {
+                    load.cleanup();
+                }
+            }
+        }
+
+        for (int closesPerSecond : new int[]{0, 10000}) {
+            System.out.println("# closesPerSecond = " + closesPerSecond);
+
+            CloserLoad load = new CloserLoad();
+            load.closesPerSecond = closesPerSecond;
+            load.setup();
+
+            CallerSegment caller = new CallerSegment();
+            caller.setup();
+            try {
+                System.out.println("=> Running accept");
+                for (int i = 0; i < 100; i++) {
+                    long v = benchmark.accept(load, caller);
+                    if (v != 1) {
+                        throw new AssertionError("expect: 1, actual: " + v);
+                    }
+                }
+
+                System.out.println("=> Running acceptTrivial");
+                for (int i = 0; i < 100; i++) {
+                    long v = benchmark.acceptTrivial(load, caller);
+                    if (v != 1) {
+                        throw new AssertionError("expect: 1, actual: " + v);
+                    }
+                }
+            } finally {
+                caller.cleanup();
+                load.cleanup();
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package benchmark;
+
+import benchmark.generator.GenerateBenchmark;
+
+import java.lang.foreign.MemorySegment;
+
+/*
+ * No-op functions with 0 to 16 arguments: all int, all double, and mixed int, long, double and pointer arguments.
+ * Under the System V AMD64 ABI, arguments after the 6th integer/pointer argument or the 8th floating-point argument
+ * are passed on the stack.
+ *
+ * The C functions are generated with the JNI stubs.
+ */
+@GenerateBenchmark(value = "SignatureBenchmark", noop = true)
+interface Signatures {
+    void ffi_benchmark_ints_0();
+
+    void ffi_benchmark_ints_1(int a0);
+
+    void ffi_benchmark_ints_2(int a0, int a1);
+
+    void ffi_benchmark_ints_3(int a0, int a1, int a2);
+
+    void ffi_benchmark_ints_4(int a0, int a1, int a2, int a3);
+
+    void ffi_benchmark_ints_5(int a0, int a1, int a2, int a3, int a4);
+
+    void ffi_benchmark_ints_6(int a0, int a1, int a2, int a3, int a4, int a5);
+
+    void ffi_benchmark_ints_7(int a0, int a1, int a2, int a3, int a4, int a5, int a6);
+
+    void ffi_benchmark_ints_8(int a0, int a1, int a2, int a3, int a4, int a5, int a6, int a7);
+
+    void ffi_benchmark_ints_9(int a0, int a1, int a2, int a3, int a4, int a5, int a6, int a7, int a8);
+
+    void ffi_benchmark_ints_10(int a0, int a1, int a2, int a3, int a4, int a5, int a6, int a7, int a8, int a9);
+
+    void ffi_benchmark_ints_11(int a0, int a1, int a2, int a3, int a4, int a5, int a6, int a7, int a8, int a9, int a10);
+
+    void ffi_benchmark_ints_12(int a0, int a1, int a2, int a3, int a4, int a5, int a6, int a7, int a8, int a9, int a10, int a11);
+
+    void ffi_benchmark_ints_13(int a0, int a1, int a2, int a3, int a4, int a5, int a6, int a7, int a8, int a9, int a10, int a11, int a12);
+
+    void ffi_benchmark_ints_14(int a0, int a1, int a2, int a3, int a4, int a5, int a6, int a7, int a8, int a9, int a10, int a11, int a12, int a13);
+
+    void ffi_benchmark_ints_15(int a0, int a1, int a2, int a3, int a4, int a5, int a6, int a7, int a8, int a9, int a10, int a11, int a12, int a13, int a14);
+
+    void ffi_benchmark_ints_16(int a0, int a1, int a2, int a3, int a4, int a5, int a6, int a7, int a8, int a9, int a10, int a11, int a12, int a13, int a14, int a15);
+
+    void ffi_benchmark_doubles_1(double a0);
+
+    void ffi_benchmark_doubles_2(double a0, double a1);
+
+    void ffi_benchmark_doubles_3(double a0, double a1, double a2);
+
+    void ffi_benchmark_doubles_4(double a0, double a1, double a2, double a3);
+
+    void ffi_benchmark_doubles_5(double a0, double a1, double a2, double a3, double a4);
+
+    void ffi_benchmark_doubles_6(double a0, double a1, double a2, double a3, double a4, double a5);
+
+    void ffi_benchmark_doubles_7(double a0, double a1, double a2, double a3, double a4, double a5, double a6);
+
+    void ffi_benchmark_doubles_8(double a0, double a1, double a2, double a3, double a4, double a5, double a6, double a7);
+
+    void ffi_benchmark_doubles_9(double a0, double a1, double a2, double a3, double a4, double a5, double a6, double a7, double a8);
+
+    void ffi_benchmark_doubles_10(double a0, double a1, double a2, double a3, double a4, double a5, double a6, double a7, double a8, double a9);
+
+    void ffi_benchmark_doubles_11(double a0, double a1, double a2, double a3, double a4, double a5, double a6, double a7, double a8, double a9, double a10);
+
+    void ffi_benchmark_doubles_12(double a0, double a1, double a2, double a3, double a4, double a5, double a6, double a7, double a8, double a9, double a10, double a11);
+
+    void ffi_benchmark_doubles_13(double a0, double a1, double a2, double a3, double a4, double a5, double a6, double a7, double a8, double a9, double a10, double a11, double a12);
+
+    void ffi_benchmark_doubles_14(double a0, double a1, double a2, double a3, double a4, double a5, double a6, double a7, double a8, double a9, double a10, double a11, double a12, double a13);
+
+    void ffi_benchmark_doubles_15(double a0, double a1, double a2, double a3, double a4, double a5, double a6, double a7, double a8, double a9, double a10, double a11, double a12, double a13, double a14);
+
+    void ffi_benchmark_doubles_16(double a0, double a1, double a2, double a3, double a4, double a5, double a6, double a7, double a8, double a9, double a10, double a11, double a12, double a13, double a14, double a15);
+
+    void ffi_benchmark_mixed_1(int a0);
+
+    void ffi_benchmark_mixed_2(int a0, long a1);
+
+    void ffi_benchmark_mixed_3(int a0, long a1, double a2);
+
+    void ffi_benchmark_mixed_4(int a0, long a1, double a2, MemorySegment a3);
+
+    void ffi_benchmark_mixed_5(int a0, long a1, double a2, MemorySegment a3, int a4);
+
+    void ffi_benchmark_mixed_6(int a0, long a1, double a2, MemorySegment a3, int a4, long a5);
+
+    void ffi_benchmark_mixed_7(int a0, long a1, double a2, MemorySegment a3, int a4, long a5, double a6);
+
+    void ffi_benchmark_mixed_8(int a0, long a1, double a2, MemorySegment a3, int a4, long a5, double a6, MemorySegment a7);
+
+    void ffi_benchmark_mixed_9(int a0, long a1, double a2, MemorySegment a3, int a4, long a5, double a6, MemorySegment a7, int a8);
+
+    void ffi_benchmark_mixed_10(int a0, long a1, double a2, MemorySegment a3, int a4, long a5, double a6, MemorySegment a7, int a8, long a9);
+
+    void ffi_benchmark_mixed_11(int a0, long a1, double a2, MemorySegment a3, int a4, long a5, double a6, MemorySegment a7, int a8, long a9, double a10);
+
+    void ffi_benchmark_mixed_12(int a0, long a1, double a2, MemorySegment a3, int a4, long a5, double a6, MemorySegment a7, int a8, long a9, double a10, MemorySegment a11);
+
+    void ffi_benchmark_mixed_13(int a0, long a1, double a2, MemorySegment a3, int a4, long a5, double a6, MemorySegment a7, int a8, long a9, double a10, MemorySegment a11, int a12);
+
+    void ffi_benchmark_mixed_14(int a0, long a1, double a2, MemorySegment a3, int a4, long a5, double a6, MemorySegment a7, int a8, long a9, double a10, MemorySegment a11, int a12, long a13);
+
+    void ffi_benchmark_mixed_15(int a0, long a1, double a2, MemorySegment a3, int a4, long a5, double a6, MemorySegment a7, int a8, long a9, double a10, MemorySegment a11, int a12, long a13, double a14);
+
+    void ffi_benchmark_mixed_16(int a0, long a1, double a2, MemorySegment a3, int a4, long a5, double a6, MemorySegment a7, int a8, long a9, double a10, MemorySegment a11, int a12, long a13, double a14, MemorySegment a15);
+}
@@ -0,0 +1,133 @@
+package benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.BenchmarkResult;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.util.ListStatistics;
+import org.openjdk.jmh.util.Statistics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * Runs JMH with the given command line options (used by run.sh with RIGOROUS=true), then reports for every benchmark:
+ *
+ * - the mean and the confidence interval of the fork means. The iterations of a fork share its JIT decisions,
+ *   memory layout and frequency, so they are not independent samples: only the forks are;
+ * - the coefficient of variation (standard deviation / mean) of the fork means;
+ * - for information, the coefficient of variation of all the iterations.
+ *
+ * A result is UNSTABLE when the coefficient of variation of the fork means is above benchmark.stability.maxCv (default 2%):
+ * differences of that size between it and other results are noise.
+ * A result of a single fork has no fork CV nor CI, so it is marked INSUFFICIENT FORKS rather than passing as stable.
+ */
+public final class StabilityReport {
+
+    private static final double CONFIDENCE = Double.parseDouble(System.getProperty("benchmark.stability.confidence", "0.99"));
+    private static final double MAX_CV = Double.parseDouble(System.getProperty("benchmark.stability.maxCv", "0.02"));
+
+    private StabilityReport() {
+    }
+
+    private static String name(BenchmarkParams params) {
+        StringBuilder builder = new StringBuilder(params.getBenchmark().substring("benchmark.".length()));
+        if (!params.getParamsKeys().isEmpty()) {
+            builder.append(" (");
+            boolean first = true;
+            for (String key : params.getParamsKeys()) {
+                if (!first) {
+                    builder.append(", ");
+                }
+                first = false;
+                builder.append(key).append('=').append(params.getParam(key));
+            }
+            builder.append(')');
+        }
+        return builder.toString();
+    }
+
+    private static double coefficientOfVariation(Statistics statistics) {
+        return statistics.getN() > 1 ? statistics.getStandardDeviation() / Math.abs(statistics.getMean()) : 0.0;
+    }
+
+    private static String percent(double value) {
+        return String.format(Locale.ROOT, "%.2f%%", value * 100);
+    }
+
+    private static String score(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    static List<String> report(Collection<RunResult> results) {
+        List<String> lines = new ArrayList<>();
+        lines.add("| Benchmark | Mode | Forks | Samples | Score | " + percent(CONFIDENCE) + " CI | Unit | Fork CV | Iteration CV | |");
+        lines.add("|---|---|---:|---:|---:|---|---|---:|---:|---|");
+
+        int unstable = 0;
+        int insufficient = 0;
+        for (RunResult result : results) {
+            Statistics statistics = result.getPrimaryResult().getStatistics();
+
+            ListStatistics forkMeans = new ListStatistics();
+            for (BenchmarkResult fork : result.getBenchmarkResults()) {
+                forkMeans.addValue(fork.getPrimaryResult().getScore());
+            }
+
+            double forkCv = coefficientOfVariation(forkMeans);
+            double iterationCv = coefficientOfVariation(statistics);
+            boolean isInsufficient = forkMeans.getN() < 2;
+            boolean isUnstable = forkCv > MAX_CV;
+            if (isInsufficient) {
+                insufficient++;
+            } else if (isUnstable) {
+                unstable++;
+            }
+
+            double[] interval = !isInsufficient
+                    ? forkMeans.getConfidenceIntervalAt(CONFIDENCE)
+                    : new double[]{Double.NaN, Double.NaN};
+
+            lines.add("| " + name(result.getParams())
+                      + " | " + result.getParams().getMode().shortLabel()
+                      + " | " + forkMeans.getN()
+                      + " | " + statistics.getN()
+                      + " | " + score(forkMeans.getMean())
+                      + " | [" + score(interval[0]) + ", " + score(interval[1]) + "]"
+                      + " | " + result.getPrimaryResult().getScoreUnit()
+                      + " | " + percent(forkCv)
+                      + " | " + percent(iterationCv)
+                      + " | " + (isInsufficient ? "INSUFFICIENT FORKS" : isUnstable ? "UNSTABLE" : "") + " |");
+        }
+
+        lines.add("");
+        lines.add(unstable + " of " + results.size() + " results have a coefficient of variation of the fork means above " + percent(MAX_CV) + ".");
+        if (insufficient > 0) {
+            lines.add(insufficient + " of " + results.size() + " results have less than 2 forks, their stability is unknown.");
+        }
+        return lines;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Collection<RunResult> results = new Runner(new CommandLineOptions(args)).run();
+
+        List<String> lines = report(results);
+        System.out.println();
+        lines.forEach(System.out::println);
+
+        String output = System.getProperty("benchmark.stability.output");
+        if (output != null) {
+            try {
+                Files.write(Path.of(output), lines);
+            } catch (IOException e) {
+                System.err.println("Failed to write " + output + ": " + e);
+            }
+        }
+    }
+}
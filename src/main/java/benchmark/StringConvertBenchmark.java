@@ -7,32 +7,43 @@ import java.lang.foreign.Arena;
 import java.lang.foreign.FunctionDescriptor;
 import java.lang.foreign.MemorySegment;
 import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.util.function.Consumer;
 import java.nio.charset.StandardCharsets;
 
 import static benchmark.Helper.downcallHandle;
 import static java.lang.foreign.ValueLayout.ADDRESS;
 import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
 
 @State(Scope.Benchmark)
 public class StringConvertBenchmark {
     public interface NativeLib extends Library {
         void ffi_benchmark_accept_string(String str);
 
-        String ffi_benchmark_get_string(int length);
+        String ffi_benchmark_get_string(int length, int content);
     }
 
     private static final class JnaDirect {
         public static native void ffi_benchmark_accept_string(String str);
 
-        public static native String ffi_benchmark_get_string(int length);
+        public static native String ffi_benchmark_get_string(int length, int content);
     }
 
     static {
         Helper.registerJnaDirect(JnaDirect.class);
     }
 
-    private static native String getString(int length);
+    private static native void acceptString(String str);
+
+    private static native String getString(int length, int content);
+
+    private static native byte[] getStringBytes(int length, int content);
 
     private static final NativeLib JNA = Helper.loadJna(NativeLib.class);
     private static final NativeLib JNR = Helper.loadJnr(NativeLib.class);
@@ -41,25 +52,60 @@ public class StringConvertBenchmark {
     private static final MethodHandle acceptString = downcallHandle("ffi_benchmark_accept_string", FunctionDescriptor.ofVoid(ADDRESS), false);
     private static final MethodHandle acceptStringTrivial = downcallHandle("ffi_benchmark_accept_string", FunctionDescriptor.ofVoid(ADDRESS), true);
 
-    private static final MethodHandle getString = downcallHandle("ffi_benchmark_get_string", FunctionDescriptor.of(ADDRESS, JAVA_INT), false);
-    private static final MethodHandle getStringTrivial = downcallHandle("ffi_benchmark_get_string", FunctionDescriptor.of(ADDRESS, JAVA_INT), true);
+    private static final MethodHandle getString = downcallHandle("ffi_benchmark_get_string", FunctionDescriptor.of(ADDRESS, JAVA_INT, JAVA_INT), false);
+    private static final MethodHandle getStringTrivial = downcallHandle("ffi_benchmark_get_string", FunctionDescriptor.of(ADDRESS, JAVA_INT, JAVA_INT), true);
+
+    private static final MethodHandle strlenTrivial = downcallHandle("ffi_benchmark_strlen", FunctionDescriptor.of(JAVA_LONG, ADDRESS), true);
+
+    /**
+     * The characters that make up the test strings.
+     * <p>
+     * Must be kept in sync with {@code get_string_code_point} in {@code library.c}.
+     */
+    public enum Content {
+        ASCII, LATIN1, CJK, SUPPLEMENTARY, MIXED;
+
+        int codePointAt(int index) {
+            return switch (this) {
+                case ASCII -> 'A' + index % 26;
+                case LATIN1 -> 0xC0 + index % 64;
+                case CJK -> 0x4E00 + index % 0x5200;
+                case SUPPLEMENTARY -> 0x1F600 + index % 0x50;
+                case MIXED -> switch (index % 8) {
+                    case 5 -> LATIN1.codePointAt(index);
+                    case 6 -> CJK.codePointAt(index);
+                    case 7 -> SUPPLEMENTARY.codePointAt(index);
+                    default -> ASCII.codePointAt(index);
+                };
+            };
+        }
+    }
 
-    @Param({"0", "16", "64", "256", "1024", "4096"})
+    // The number of code points, up to 64 Mi
+    @Param({"0", "16", "64", "256", "1024", "4096", "65536", "1048576", "16777216", "67108864"})
     int length;
 
+    @Param({"ASCII", "LATIN1", "CJK", "SUPPLEMENTARY", "MIXED"})
+    Content content;
+
     String testString;
 
-    private static String testStr(int length) {
+    static String testStr(int length, Content content) {
         StringBuilder builder = new StringBuilder(length);
         for (int i = 0; i < length; i++) {
-            builder.append((char) ((i % 26) + 'A'));
+            builder.appendCodePoint(content.codePointAt(i));
         }
-         return builder.toString();
+        return builder.toString();
     }
 
     @Setup
     public void setup() {
-        testString = testStr(length);
+        testString = testStr(length, content);
+    }
+
+    @Benchmark
+    public void passStringToNativeJni() {
+        acceptString(testString);
     }
 
     @Benchmark
@@ -98,99 +144,185 @@ public class StringConvertBenchmark {
 
     @Benchmark
     public String getStringFromNativeJni() {
-        return getString(length);
+        return getString(length, content.ordinal());
+    }
+
+    @Benchmark
+    public String getStringFromNativeJniByteArray() {
+        return new String(getStringBytes(length, content.ordinal()), StandardCharsets.UTF_8);
     }
 
     @Benchmark
     public String getStringFromNativeJna() {
-        return JNA.ffi_benchmark_get_string(length);
+        return JNA.ffi_benchmark_get_string(length, content.ordinal());
     }
 
     @Benchmark
     public String getStringFromNativeJnaDirect() {
-        return JnaDirect.ffi_benchmark_get_string(length);
+        return JnaDirect.ffi_benchmark_get_string(length, content.ordinal());
     }
 
     @Benchmark
     public String getStringFromNativeJnr() {
-        return JNR.ffi_benchmark_get_string(length);
+        return JNR.ffi_benchmark_get_string(length, content.ordinal());
     }
 
     @Benchmark
     public String getStringFromNativeJnrIgnoreError() {
-        return JNR_IGNORE_ERROR.ffi_benchmark_get_string(length);
+        return JNR_IGNORE_ERROR.ffi_benchmark_get_string(length, content.ordinal());
     }
 
     @Benchmark
     public String getStringFromNativePanama() throws Throwable {
-        return ((MemorySegment) getString.invokeExact(length)).reinterpret(Long.MAX_VALUE).getString(0, StandardCharsets.UTF_8);
+        return ((MemorySegment) getString.invokeExact(length, content.ordinal())).reinterpret(Long.MAX_VALUE).getString(0, StandardCharsets.UTF_8);
     }
 
     @Benchmark
     public String getStringFromNativePanamaTrivial() throws Throwable {
-        return ((MemorySegment) getStringTrivial.invokeExact(length)).reinterpret(Long.MAX_VALUE).getString(0, StandardCharsets.UTF_8);
+        return ((MemorySegment) getStringTrivial.invokeExact(length, content.ordinal())).reinterpret(Long.MAX_VALUE).getString(0, StandardCharsets.UTF_8);
+    }
+
+    private static final int DECODE_CHUNK_SIZE = 8192;
+
+    /**
+     * Decodes a UTF-8 string of {@code byteSize} bytes from native memory into a {@code String},
+     * {@code DECODE_CHUNK_SIZE} bytes at a time, without copying the whole string into a {@code byte[]} first.
+     */
+    static String decodeChunked(MemorySegment str, long byteSize) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        // Not pre-sized: byteSize chars are twice the bytes of the input once non-Latin-1 content inflates the builder
+        // to UTF-16, and the UTF-8 decoder estimates one char per byte
+        StringBuilder builder = new StringBuilder();
+        CharBuffer out = CharBuffer.allocate(DECODE_CHUNK_SIZE);
+
+        long offset = 0;
+        boolean endOfInput;
+        do {
+            long remaining = byteSize - offset;
+            endOfInput = remaining <= DECODE_CHUNK_SIZE;
+
+            ByteBuffer in = str.asSlice(offset, Math.min(remaining, DECODE_CHUNK_SIZE)).asByteBuffer();
+            CoderResult result;
+            do {
+                result = decoder.decode(in, out, endOfInput);
+                builder.append(out.flip());
+                out.clear();
+            } while (result.isOverflow());
+
+            // Incomplete sequences at the end of the chunk are left in the input and decoded with the next chunk
+            offset += in.position();
+        } while (!endOfInput);
+
+        decoder.flush(out);
+        builder.append(out.flip());
+        return builder.toString();
+    }
+
+    /**
+     * Decodes a UTF-8 string of {@code byteSize} bytes from native memory into a {@code CharBuffer},
+     * reading directly from native memory.
+     */
+    static CharSequence decodeCharSequence(MemorySegment str, long byteSize) throws CharacterCodingException {
+        return StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(str.asSlice(0, byteSize).asByteBuffer());
+    }
+
+    @Benchmark
+    public String getStringFromNativePanamaChunked() throws Throwable {
+        MemorySegment str = ((MemorySegment) getString.invokeExact(length, content.ordinal())).reinterpret(Long.MAX_VALUE);
+        return decodeChunked(str, (long) strlenTrivial.invokeExact(str));
+    }
+
+    @Benchmark
+    public CharSequence getCharSequenceFromNativePanama() throws Throwable {
+        MemorySegment str = ((MemorySegment) getString.invokeExact(length, content.ordinal())).reinterpret(Long.MAX_VALUE);
+        return decodeCharSequence(str, (long) strlenTrivial.invokeExact(str));
     }
 
 //    @Benchmark
 //    public String getStringFromNativePanamaOptimized() throws Throwable {
-//        return GetStringUTF8Benchmark.getUtf8String(((MemorySegment) getString.invokeExact(length)).reinterpret(Long.MAX_VALUE));
+//        return GetStringUTF8Benchmark.getUtf8String(((MemorySegment) getString.invokeExact(length, content.ordinal())).reinterpret(Long.MAX_VALUE));
 //    }
 
     public static void main(String[] args) throws Throwable {
-        int[] lengths = {0, 16, 64, 256, 1024, 4096};
-        for (int length : lengths) {
-            System.out.println("# length = " + length);
+        int[] lengths = {0, 16, 64, 256, 1024, 4096, 65536, 1048576};
+        for (Content content : Content.values()) {
+            for (int length : lengths) {
+                System.out.println("# content = " + content + ", length = " + length);
+
+                StringConvertBenchmark benchmark = new StringConvertBenchmark();
+                benchmark.length = length;
+                benchmark.content = content;
+
+                benchmark.setup();
 
-            StringConvertBenchmark benchmark = new StringConvertBenchmark();
-            benchmark.length = length;
+                System.out.println("=> Running passStringToNativeJni");
+                benchmark.passStringToNativeJni();
 
-            benchmark.setup();
+                System.out.println("=> Running passStringToNativeJna");
+                benchmark.passStringToNativeJna();
 
-            System.out.println("=> Running passStringToNativeJna");
-            benchmark.passStringToNativeJna();
+                System.out.println("=> Running passStringToNativeJnaDirect");
+                benchmark.passStringToNativeJnaDirect();
 
-            System.out.println("=> Running passStringToNativeJnaDirect");
-            benchmark.passStringToNativeJnaDirect();
+                System.out.println("=> Running passStringToNativeJnr");
+                benchmark.passStringToNativeJnr();
 
-            System.out.println("=> Running passStringToNativeJnr");
-            benchmark.passStringToNativeJnr();
+                System.out.println("=> Running passStringToNativeJnrIgnoreError");
+                benchmark.passStringToNativeJnrIgnoreError();
 
-            System.out.println("=> Running passStringToNativeJnrIgnoreError");
-            benchmark.passStringToNativeJnrIgnoreError();
+                System.out.println("=> Running passStringToNativePanama");
+                benchmark.passStringToNativePanama();
 
-            System.out.println("=> Running passStringToNativePanama");
-            benchmark.passStringToNativePanama();
+                System.out.println("=> Running passStringToNativePanamaTrivial");
+                benchmark.passStringToNativePanamaTrivial();
 
-            System.out.println("=> Running passStringToNativePanamaTrivial");
-            benchmark.passStringToNativePanamaTrivial();
+                String expect = testStr(length, content);
+                Consumer<String> checker = v -> {
+                    if (!expect.equals(v)) {
+                        throw new AssertionError("expect: " + expect + ", actual: " + v);
+                    }
+                };
 
-            String expect = testStr(length);
-            Consumer<String> checker = v -> {
-                if (!expect.equals(v)) {
-                    throw new AssertionError("expect: " + expect + ", actual: " + v);
+                System.out.println("=> Running getStringFromNativeJni");
+                String jniResult = benchmark.getStringFromNativeJni();
+                // NewStringUTF expects modified UTF-8, which encodes supplementary characters as surrogate pairs
+                if (content != Content.SUPPLEMENTARY && content != Content.MIXED) {
+                    checker.accept(jniResult);
                 }
-            };
 
-            System.out.println("=> Running getStringFromNativeJni");
-            checker.accept(benchmark.getStringFromNativeJni());
+                System.out.println("=> Running getStringFromNativeJniByteArray");
+                checker.accept(benchmark.getStringFromNativeJniByteArray());
+
+                System.out.println("=> Running getStringFromNativeJna");
+                checker.accept(benchmark.getStringFromNativeJna());
+
+                System.out.println("=> Running getStringFromNativeJnaDirect");
+                checker.accept(benchmark.getStringFromNativeJnaDirect());
 
-            System.out.println("=> Running getStringFromNativeJna");
-            checker.accept(benchmark.getStringFromNativeJna());
+                System.out.println("=> Running getStringFromNativeJnr");
+                checker.accept(benchmark.getStringFromNativeJnr());
 
-            System.out.println("=> Running getStringFromNativeJnaDirect");
-            checker.accept(benchmark.getStringFromNativeJnaDirect());
+                System.out.println("=> Running getStringFromNativeJnrIgnoreError");
+                checker.accept(benchmark.getStringFromNativeJnrIgnoreError());
 
-            System.out.println("=> Running getStringFromNativeJnr");
-            checker.accept(benchmark.getStringFromNativeJnr());
+                System.out.println("=> Running getStringFromNativePanama");
+                checker.accept(benchmark.getStringFromNativePanama());
 
-            System.out.println("=> Running getStringFromNativeJnrIgnoreError");
-            checker.accept(benchmark.getStringFromNativeJnrIgnoreError());
+                System.out.println("=> Running getStringFromNativePanamaTrivial");
+                checker.accept(benchmark.getStringFromNativePanamaTrivial());
 
-            System.out.println("=> Running getStringFromNativePanama");
-            checker.accept(benchmark.getStringFromNativePanama());
+                System.out.println("=> Running getStringFromNativePanamaChunked");
+                checker.accept(benchmark.getStringFromNativePanamaChunked());
 
-            System.out.println("=> Running getStringFromNativePanamaTrivial");
-            checker.accept(benchmark.getStringFromNativePanamaTrivial());
+                System.out.println("=> Running getCharSequenceFromNativePanama");
+                checker.accept(benchmark.getCharSequenceFromNativePanama().toString());
+            }
         }
     }
 }
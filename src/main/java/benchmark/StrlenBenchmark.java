@@ -0,0 +1,256 @@
+package benchmark;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import jnr.ffi.LibraryLoader;
+import jnr.ffi.LibraryOption;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteOrder;
+import java.util.Map;
+import java.util.Random;
+
+import static benchmark.Helper.libcDowncallHandle;
+import static java.lang.foreign.ValueLayout.*;
+
+/*
+ * Finds the NUL terminator of a native string, the first step of every conversion of a C string to a Java string
+ * (see StringConvertBenchmark). The string starts `misalignment` bytes after a 64-byte boundary.
+ *
+ * The native backends call the strlen of libc, the Java ones scan the segment byte by byte,
+ * eight bytes at a time (SWAR) or a vector at a time with the Vector API.
+ *
+ * Like a C string returned by a native function (see StringConvertBenchmark), the segment is unbounded,
+ * so the length is only known by finding the terminator. As in the C implementations, the word and vector reads
+ * are aligned to their size, so they may read past the terminator, but never into the next page.
+ */
+@State(Scope.Benchmark)
+@Fork(jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class StrlenBenchmark {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    private static final ValueLayout.OfLong WORD = JAVA_LONG.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+
+    public interface JnaLibC extends Library {
+        JnaLibC INSTANCE = Native.load("c", JnaLibC.class);
+
+        long strlen(com.sun.jna.Pointer str);
+    }
+
+    private static final class JnaDirect {
+        static {
+            Native.register(JnaDirect.class, "c");
+        }
+
+        static native long strlen(com.sun.jna.Pointer str);
+    }
+
+    public interface JnrLibC {
+        long strlen(jnr.ffi.Pointer str);
+    }
+
+    private static final JnrLibC JNR = LibraryLoader.create(JnrLibC.class).load("c");
+    private static final JnrLibC JNR_IGNORE_ERROR = LibraryLoader.loadLibrary(
+            JnrLibC.class,
+            Map.of(LibraryOption.IgnoreError, true),
+            "c"
+    );
+
+    private static native long strlen(long address);
+
+    private static final MethodHandle strlen = libcDowncallHandle("strlen", FunctionDescriptor.of(JAVA_LONG, ADDRESS), false);
+    private static final MethodHandle strlenTrivial = libcDowncallHandle("strlen", FunctionDescriptor.of(JAVA_LONG, ADDRESS), true);
+
+    @Param({"0", "16", "64", "256", "4096", "65536", "1048576", "16777216"})
+    int length;
+
+    @Param({"0", "1", "7"})
+    int misalignment;
+
+    Arena benchmarkArena;
+    MemorySegment str;
+    long address;
+    com.sun.jna.Pointer jnaPointer;
+    jnr.ffi.Pointer jnrPointer;
+
+    @Setup
+    public void setup() {
+        benchmarkArena = Arena.ofConfined();
+
+        MemorySegment buffer = benchmarkArena.allocate(misalignment + length + 1, 64);
+
+        Random random = new Random(0);
+        for (long i = 0; i < length; i++) {
+            buffer.set(JAVA_BYTE, misalignment + i, (byte) ('A' + random.nextInt(26)));
+        }
+        buffer.set(JAVA_BYTE, misalignment + length, (byte) 0);
+
+        str = MemorySegment.ofAddress(buffer.address() + misalignment).reinterpret(Long.MAX_VALUE);
+
+        address = str.address();
+        jnaPointer = new com.sun.jna.Pointer(address);
+        jnrPointer = jnr.ffi.Runtime.getSystemRuntime().getMemoryManager().newPointer(address);
+    }
+
+    @TearDown
+    public void cleanup() {
+        benchmarkArena.close();
+        benchmarkArena = null;
+
+        str = null;
+        address = 0L;
+        jnaPointer = null;
+        jnrPointer = null;
+    }
+
+    // ========= Native =========
+
+    @Benchmark
+    public long strlenJni() {
+        return strlen(address);
+    }
+
+    @Benchmark
+    public long strlenJna() {
+        return JnaLibC.INSTANCE.strlen(jnaPointer);
+    }
+
+    @Benchmark
+    public long strlenJnaDirect() {
+        return JnaDirect.strlen(jnaPointer);
+    }
+
+    @Benchmark
+    public long strlenJnr() {
+        return JNR.strlen(jnrPointer);
+    }
+
+    @Benchmark
+    public long strlenJnrIgnoreError() {
+        return JNR_IGNORE_ERROR.strlen(jnrPointer);
+    }
+
+    @Benchmark
+    public long strlenPanama() throws Throwable {
+        return (long) strlen.invokeExact(str);
+    }
+
+    @Benchmark
+    public long strlenPanamaTrivial() throws Throwable {
+        return (long) strlenTrivial.invokeExact(str);
+    }
+
+    // ========= Java =========
+
+    @Benchmark
+    public long strlenJava() {
+        MemorySegment str = this.str;
+        long i = 0;
+        while (str.get(JAVA_BYTE, i) != 0) {
+            i++;
+        }
+        return i;
+    }
+
+    @Benchmark
+    public long strlenJavaSwar() {
+        MemorySegment str = this.str;
+        long i = 0;
+
+        // Byte by byte up to an 8-byte boundary, so that the word reads never cross a page boundary
+        for (; ((str.address() + i) & 7) != 0; i++) {
+            if (str.get(JAVA_BYTE, i) == 0) {
+                return i;
+            }
+        }
+
+        for (; ; i += 8) {
+            long word = str.get(WORD, i);
+            long zeros = (word - ONES) & ~word & HIGHS;
+            if (zeros != 0) {
+                return i + (Long.numberOfTrailingZeros(zeros) >>> 3);
+            }
+        }
+    }
+
+    @Benchmark
+    public long strlenVector() {
+        MemorySegment str = this.str;
+        int vectorSize = SPECIES.vectorByteSize();
+        long i = 0;
+
+        // Byte by byte up to a vector boundary, so that the vector reads never cross a page boundary
+        for (; ((str.address() + i) & (vectorSize - 1)) != 0; i++) {
+            if (str.get(JAVA_BYTE, i) == 0) {
+                return i;
+            }
+        }
+
+        for (; ; i += vectorSize) {
+            int index = ByteVector.fromMemorySegment(SPECIES, str, i, ByteOrder.nativeOrder())
+                    .compare(VectorOperators.EQ, (byte) 0)
+                    .firstTrue();
+            if (index < SPECIES.length()) {
+                return i + index;
+            }
+        }
+    }
+
+    private interface StrlenCall {
+        long run() throws Throwable;
+    }
+
+    public static void main(String[] args) throws Throwable {
+        for (int length : new int[]{0, 1, 7, 8, 9, 16, 63, 64, 65, 4096, 1048576}) {
+            for (int misalignment : new int[]{0, 1, 7}) {
+                System.out.println("# length = " + length + ", misalignment = " + misalignment);
+
+                StrlenBenchmark benchmark = new StrlenBenchmark();
+                benchmark.length = length;
+                benchmark.misalignment = misalignment;
+                benchmark.setup();
+
+                try {
+                    String[] names = {
+                            "strlenJni", "strlenJna", "strlenJnaDirect", "strlenJnr", "strlenJnrIgnoreError",
+                            "strlenPanama", "strlenPanamaTrivial", "strlenJava", "strlenJavaSwar", "strlenVector"
+                    };
+                    for (String name : names) {
+                        System.out.println("=> Running " + name);
+                        StrlenCall call = switch (name) {
+                            case "strlenJni" -> benchmark::strlenJni;
+                            case "strlenJna" -> benchmark::strlenJna;
+                            case "strlenJnaDirect" -> benchmark::strlenJnaDirect;
+                            case "strlenJnr" -> benchmark::strlenJnr;
+                            case "strlenJnrIgnoreError" -> benchmark::strlenJnrIgnoreError;
+                            case "strlenPanama" -> benchmark::strlenPanama;
+                            case "strlenPanamaTrivial" -> benchmark::strlenPanamaTrivial;
+                            case "strlenJava" -> benchmark::strlenJava;
+                            case "strlenJavaSwar" -> benchmark::strlenJavaSwar;
+                            case "strlenVector" -> benchmark::strlenVector;
+                            default -> throw new AssertionError(name);
+                        };
+
+                        long actual = call.run();
+                        if (actual != length) {
+                            throw new AssertionError("expect: " + length + ", actual: " + actual);
+                        }
+                    }
+                } finally {
+                    benchmark.cleanup();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package benchmark;
+
+import com.sun.jna.Structure;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.VarHandle;
+
+import static benchmark.Helper.downcallHandle;
+import static java.lang.foreign.MemoryLayout.PathElement.groupElement;
+import static java.lang.foreign.ValueLayout.*;
+
+/*
+ * Sums the `value` field of a native array of 32-byte records (struct ffi_benchmark_record in library.h),
+ * filled by ffi_benchmark_fill_records.
+ *
+ * JNA and JNR map every element to a Java object, so they get their own state limited to 1M elements:
+ * 100M records would take a few GB of native memory, but tens of GB of heap as Structure objects.
+ */
+public class StructArrayBenchmark {
+
+    private static final StructLayout RECORD = MemoryLayout.structLayout(
+            JAVA_LONG.withName("timestamp"),
+            JAVA_INT.withName("id"),
+            JAVA_INT.withName("flags"),
+            JAVA_LONG.withName("value"),
+            JAVA_DOUBLE.withName("weight")
+    ).withName("ffi_benchmark_record");
+
+    private static final long RECORD_SIZE = RECORD.byteSize();
+    private static final long VALUE_OFFSET = RECORD.byteOffset(groupElement("value"));
+
+    // (segment, base offset, index) coordinates. A sequence layout handle would check that the segment holds
+    // the whole sequence, so it could not be shared by all the counts
+    private static final VarHandle VALUE_HANDLE = RECORD.arrayElementVarHandle(groupElement("value"));
+
+    private static final MethodHandle fillRecords =
+            downcallHandle("ffi_benchmark_fill_records", FunctionDescriptor.ofVoid(ADDRESS, JAVA_LONG), false);
+
+    private static native long sumValues(long address, long count);
+
+    @Structure.FieldOrder({"timestamp", "id", "flags", "value", "weight"})
+    public static final class JnaRecord extends Structure {
+        public long timestamp;
+        public int id;
+        public int flags;
+        public long value;
+        public double weight;
+
+        public JnaRecord() {
+        }
+
+        public JnaRecord(com.sun.jna.Pointer pointer) {
+            super(pointer);
+        }
+    }
+
+    public static final class JnrRecord extends jnr.ffi.Struct {
+        public final Signed64 timestamp = new Signed64();
+        public final Signed32 id = new Signed32();
+        public final Signed32 flags = new Signed32();
+        public final Signed64 value = new Signed64();
+        public final Double weight = new Double();
+
+        JnrRecord(jnr.ffi.Runtime runtime) {
+            super(runtime);
+        }
+    }
+
+    private static MemorySegment allocateRecords(Arena arena, long count) {
+        MemorySegment records = arena.allocate(RECORD_SIZE * count, 64);
+        try {
+            fillRecords.invokeExact(records, count);
+        } catch (Throwable e) {
+            throw new AssertionError(e);
+        }
+        return records;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Records {
+        @Param({"1000", "1000000", "100000000"})
+        long count;
+
+        Arena arena;
+        MemorySegment records;
+
+        @Setup
+        public void setup() {
+            // Shared, so that the parallel streams can access it
+            arena = Arena.ofShared();
+            records = allocateRecords(arena, count);
+        }
+
+        @TearDown
+        public void cleanup() {
+            arena.close();
+            arena = null;
+            records = null;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class RecordObjects {
+        @Param({"1000", "1000000"})
+        int objectCount;
+
+        Arena arena;
+        MemorySegment records;
+        com.sun.jna.Pointer jnaPointer;
+        JnaRecord[] jnaRecords;
+        JnrRecord[] jnrRecords;
+
+        @Setup
+        public void setup() {
+            arena = Arena.ofShared();
+            records = allocateRecords(arena, objectCount);
+            jnaPointer = new com.sun.jna.Pointer(records.address());
+            jnaRecords = (JnaRecord[]) new JnaRecord(jnaPointer).toArray(objectCount);
+
+            jnr.ffi.Runtime runtime = jnr.ffi.Runtime.getSystemRuntime();
+            jnr.ffi.Pointer jnrPointer = runtime.getMemoryManager().newPointer(records.address(), records.byteSize());
+            jnrRecords = new JnrRecord[objectCount];
+            for (int i = 0; i < objectCount; i++) {
+                jnrRecords[i] = new JnrRecord(runtime);
+                jnrRecords[i].useMemory(jnrPointer.slice(i * RECORD_SIZE));
+            }
+        }
+
+        @TearDown
+        public void cleanup() {
+            arena.close();
+            arena = null;
+            records = null;
+            jnaPointer = null;
+            jnaRecords = null;
+            jnrRecords = null;
+        }
+    }
+
+    // ========= Panama =========
+
+    @Benchmark
+    public long sumVarHandle(Records state) {
+        MemorySegment records = state.records;
+        long sum = 0;
+        for (long i = 0; i < state.count; i++) {
+            sum += (long) VALUE_HANDLE.get(records, 0L, i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long sumOffsets(Records state) {
+        MemorySegment records = state.records;
+        long end = state.count * RECORD_SIZE;
+        long sum = 0;
+        for (long offset = VALUE_OFFSET; offset < end; offset += RECORD_SIZE) {
+            sum += records.get(JAVA_LONG, offset);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long sumElements(Records state) {
+        return state.records.elements(RECORD)
+                .mapToLong(record -> record.get(JAVA_LONG, VALUE_OFFSET))
+                .sum();
+    }
+
+    @Benchmark
+    public long sumElementsParallel(Records state) {
+        return state.records.elements(RECORD)
+                .parallel()
+                .mapToLong(record -> record.get(JAVA_LONG, VALUE_OFFSET))
+                .sum();
+    }
+
+    // ========= JNI =========
+
+    @Benchmark
+    public long sumJni(Records state) {
+        return sumValues(state.records.address(), state.count);
+    }
+
+    // ========= JNA =========
+
+    @Benchmark
+    public long sumJna(RecordObjects state) {
+        long sum = 0;
+        for (JnaRecord record : state.jnaRecords) {
+            record.read();
+            sum += record.value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long sumJnaReadField(RecordObjects state) {
+        long sum = 0;
+        for (JnaRecord record : state.jnaRecords) {
+            sum += (long) record.readField("value");
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long sumJnaToArray(RecordObjects state) {
+        long sum = 0;
+        for (Structure record : new JnaRecord(state.jnaPointer).toArray(state.objectCount)) {
+            sum += ((JnaRecord) record).value;
+        }
+        return sum;
+    }
+
+    // ========= JNR =========
+
+    @Benchmark
+    public long sumJnr(RecordObjects state) {
+        long sum = 0;
+        for (JnrRecord record : state.jnrRecords) {
+            sum += record.value.get();
+        }
+        return sum;
+    }
+
+    // The values written by ffi_benchmark_fill_records are i % 1000
+    private static long expectedSum(long count) {
+        long cycles = count / 1000;
+        long rest = count % 1000;
+        return cycles * (999 * 1000 / 2) + rest * (rest - 1) / 2;
+    }
+
+    private static void check(long expected, long actual) {
+        if (expected != actual) {
+            throw new AssertionError("expect: " + expected + ", actual: " + actual);
+        }
+    }
+
+    public static void main(String[] args) throws Throwable {
+        StructArrayBenchmark benchmark = new StructArrayBenchmark();
+
+        // Keep the smoke test small, 100M records take 3.2 GB
+        for (int count : new int[]{1000, 1000000}) {
+            System.out.println("# count = " + count);
+            long expected = expectedSum(count);
+
+            Records records = new Records();
+            records.count = count;
+            records.setup();
+            try {
+                System.out.println("=> Running sumVarHandle");
+                check(expected, benchmark.sumVarHandle(records));
+
+                System.out.println("=> Running sumOffsets");
+                check(expected, benchmark.sumOffsets(records));
+
+                System.out.println("=> Running sumElements");
+                check(expected, benchmark.sumElements(records));
+
+                System.out.println("=> Running sumElementsParallel");
+                check(expected, benchmark.sumElementsParallel(records));
+
+                System.out.println("=> Running sumJni");
+                check(expected, benchmark.sumJni(records));
+            } finally {
+                records.cleanup();
+            }
+
+            RecordObjects objects = new RecordObjects();
+            objects.objectCount = count;
+            objects.setup();
+            try {
+                System.out.println("=> Running sumJna");
+                check(expected, benchmark.sumJna(objects));
+
+                System.out.println("=> Running sumJnaReadField");
+                check(expected, benchmark.sumJnaReadField(objects));
+
+                System.out.println("=> Running sumJnaToArray");
+                check(expected, benchmark.sumJnaToArray(objects));
+
+                System.out.println("=> Running sumJnr");
+                check(expected, benchmark.sumJnr(objects));
+            } finally {
+                objects.cleanup();
+            }
+        }
+    }
+}
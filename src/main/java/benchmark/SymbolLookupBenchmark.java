@@ -0,0 +1,250 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+
+/*
+ * Looks up the symbols of a library exporting 10 to 10,000 functions (libsymbols-<n>.so, built by the Makefile),
+ * cycling through all of them.
+ *
+ * JNR resolves symbols through jffi's Library.getSymbolAddress, which is measured directly here.
+ * JNA's NativeLibrary caches the Function objects, so it only calls dlsym the first time for every name.
+ *
+ * The open* benchmarks load and unload a copy of the library, so that it isn't already loaded by the other lookups.
+ */
+@State(Scope.Benchmark)
+public class SymbolLookupBenchmark {
+
+    private static final FunctionDescriptor SYMBOL_DESCRIPTOR = FunctionDescriptor.of(JAVA_INT);
+
+    // Throws IllegalStateException with the message of dlerror when dlopen fails,
+    // so that dlsym never gets a null handle, which it would treat as RTLD_DEFAULT
+    private static native long dlopen(String path);
+
+    private static native long dlsym(long handle, String name);
+
+    private static native int dlclose(long handle);
+
+    @Param({"10", "100", "1000", "10000"})
+    int symbols;
+
+    Path path;
+    Path copy;
+    String[] names;
+    int next;
+
+    Arena benchmarkArena;
+    SymbolLookup loaderLookup;
+    SymbolLookup cachedLoaderLookup;
+    SymbolLookup libraryLookup;
+    SymbolLookup cachedLibraryLookup;
+    com.sun.jna.NativeLibrary jnaLibrary;
+    com.kenai.jffi.Library jffiLibrary;
+    long handle;
+
+    @Setup
+    public void setup() throws IOException {
+        path = Helper.nativeFile("libsymbols-" + symbols + ".so").toAbsolutePath();
+        copy = Files.createTempFile("libsymbols-", ".so");
+        Files.copy(path, copy, StandardCopyOption.REPLACE_EXISTING);
+
+        names = new String[symbols];
+        for (int i = 0; i < symbols; i++) {
+            names[i] = "ffi_benchmark_symbol_" + i;
+        }
+        next = 0;
+
+        System.load(path.toString());
+        loaderLookup = SymbolLookup.loaderLookup();
+        cachedLoaderLookup = new CachingSymbolLookup(loaderLookup);
+
+        benchmarkArena = Arena.ofShared();
+        libraryLookup = SymbolLookup.libraryLookup(path, benchmarkArena);
+        cachedLibraryLookup = new CachingSymbolLookup(libraryLookup);
+
+        jnaLibrary = com.sun.jna.NativeLibrary.getInstance(path.toString());
+        jffiLibrary = com.kenai.jffi.Library.getCachedInstance(path.toString(), com.kenai.jffi.Library.LAZY | com.kenai.jffi.Library.LOCAL);
+        handle = dlopen(path.toString());
+    }
+
+    @TearDown
+    public void cleanup() {
+        dlclose(handle);
+        handle = 0L;
+
+        benchmarkArena.close();
+        benchmarkArena = null;
+        loaderLookup = null;
+        cachedLoaderLookup = null;
+        libraryLookup = null;
+        cachedLibraryLookup = null;
+        jnaLibrary = null;
+        jffiLibrary = null;
+
+        try {
+            Files.deleteIfExists(copy);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String nextName() {
+        String name = names[next];
+        if (++next == names.length) {
+            next = 0;
+        }
+        return name;
+    }
+
+    // ========= Lookup =========
+
+    @Benchmark
+    public Optional<MemorySegment> lookupLoaderLookup() {
+        return loaderLookup.find(nextName());
+    }
+
+    @Benchmark
+    public Optional<MemorySegment> lookupLoaderLookupCached() {
+        return cachedLoaderLookup.find(nextName());
+    }
+
+    @Benchmark
+    public Optional<MemorySegment> lookupLibraryLookup() {
+        return libraryLookup.find(nextName());
+    }
+
+    @Benchmark
+    public Optional<MemorySegment> lookupLibraryLookupCached() {
+        return cachedLibraryLookup.find(nextName());
+    }
+
+    @Benchmark
+    public com.sun.jna.Function lookupJna() {
+        return jnaLibrary.getFunction(nextName());
+    }
+
+    @Benchmark
+    public long lookupJnr() {
+        return jffiLibrary.getSymbolAddress(nextName());
+    }
+
+    @Benchmark
+    public long lookupJni() {
+        return dlsym(handle, nextName());
+    }
+
+    // ========= Lookup and bind =========
+
+    @Benchmark
+    public MethodHandle bindPanama() {
+        return Linker.nativeLinker().downcallHandle(libraryLookup.find(nextName()).orElseThrow(), SYMBOL_DESCRIPTOR);
+    }
+
+    @Benchmark
+    public MethodHandle bindPanamaCached() {
+        return Linker.nativeLinker().downcallHandle(cachedLibraryLookup.find(nextName()).orElseThrow(), SYMBOL_DESCRIPTOR);
+    }
+
+    // ========= Open =========
+
+    @Benchmark
+    public boolean openLibraryLookup() {
+        try (Arena arena = Arena.ofConfined()) {
+            return SymbolLookup.libraryLookup(copy, arena).find(names[0]).isPresent();
+        }
+    }
+
+    @Benchmark
+    public long openJni() {
+        long handle = dlopen(copy.toString());
+        try {
+            return dlsym(handle, names[0]);
+        } finally {
+            dlclose(handle);
+        }
+    }
+
+    public static void main(String[] args) throws Throwable {
+        for (int symbols : new int[]{10, 100, 1000, 10000}) {
+            System.out.println("# symbols = " + symbols);
+
+            SymbolLookupBenchmark benchmark = new SymbolLookupBenchmark();
+            benchmark.symbols = symbols;
+            benchmark.setup();
+
+            try {
+                long[] expected = new long[symbols];
+                for (int i = 0; i < symbols; i++) {
+                    MemorySegment symbol = benchmark.libraryLookup.find(benchmark.names[i]).orElseThrow();
+                    MethodHandle handle = Linker.nativeLinker().downcallHandle(symbol, SYMBOL_DESCRIPTOR);
+                    if ((int) handle.invokeExact() != i) {
+                        throw new AssertionError("Wrong symbol: " + benchmark.names[i]);
+                    }
+                    expected[i] = symbol.address();
+                }
+
+                String[] lookups = {
+                        "lookupLoaderLookup", "lookupLoaderLookupCached", "lookupLibraryLookup", "lookupLibraryLookupCached",
+                        "lookupJna", "lookupJnr", "lookupJni", "bindPanama", "bindPanamaCached"
+                };
+                for (String name : lookups) {
+                    // The loader lookup also sees the libraries loaded by the previous iterations, they export the same names
+                    if (name.startsWith("lookupLoaderLookup") && symbols != 10) {
+                        continue;
+                    }
+
+                    System.out.println("=> Running " + name);
+
+                    // Go through every symbol twice, the second time hits the caches
+                    benchmark.next = 0;
+                    for (int i = 0; i < symbols * 2; i++) {
+                        long expectedAddress = expected[i % symbols];
+                        switch (name) {
+                            case "lookupLoaderLookup" -> check(expectedAddress, benchmark.lookupLoaderLookup().orElseThrow().address());
+                            case "lookupLoaderLookupCached" -> check(expectedAddress, benchmark.lookupLoaderLookupCached().orElseThrow().address());
+                            case "lookupLibraryLookup" -> check(expectedAddress, benchmark.lookupLibraryLookup().orElseThrow().address());
+                            case "lookupLibraryLookupCached" -> check(expectedAddress, benchmark.lookupLibraryLookupCached().orElseThrow().address());
+                            case "lookupJna" -> check(expectedAddress, com.sun.jna.Pointer.nativeValue(benchmark.lookupJna()));
+                            case "lookupJnr" -> check(expectedAddress, benchmark.lookupJnr());
+                            case "lookupJni" -> check(expectedAddress, benchmark.lookupJni());
+                            case "bindPanama" -> benchmark.bindPanama();
+                            case "bindPanamaCached" -> benchmark.bindPanamaCached();
+                        }
+                    }
+                }
+
+                System.out.println("=> Running openLibraryLookup");
+                if (!benchmark.openLibraryLookup()) {
+                    throw new AssertionError("Symbol not found");
+                }
+
+                System.out.println("=> Running openJni");
+                if (benchmark.openJni() == 0L) {
+                    throw new AssertionError("Symbol not found");
+                }
+            } finally {
+                benchmark.cleanup();
+            }
+        }
+    }
+
+    private static void check(long expected, long actual) {
+        if (expected != actual) {
+            throw new AssertionError("expect: " + expected + ", actual: " + actual);
+        }
+    }
+}
@@ -7,7 +7,10 @@ import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Scope;
@@ -23,7 +26,7 @@ import jnr.ffi.annotations.Out;
 @State(Scope.Benchmark)
 public class SysinfoBenchmark {
 
-    private static final MemoryLayout sysinfoLayout = MemoryLayout.structLayout(
+    static final MemoryLayout sysinfoLayout = MemoryLayout.structLayout(
             ValueLayout.JAVA_LONG.withName("uptime"),
             MemoryLayout.sequenceLayout(3, ValueLayout.JAVA_LONG).withName("loads"),
             ValueLayout.JAVA_LONG.withName("totalram"),
@@ -33,11 +36,11 @@ public class SysinfoBenchmark {
             ValueLayout.JAVA_LONG.withName("totalswap"),
             ValueLayout.JAVA_LONG.withName("freeswap"),
             ValueLayout.JAVA_SHORT.withName("procs").withByteAlignment(8),
-            MemoryLayout.paddingLayout(48),
+            MemoryLayout.paddingLayout(6),
             ValueLayout.JAVA_LONG.withName("totalhigh").withByteAlignment(8),
             ValueLayout.JAVA_LONG.withName("freehigh"),
             ValueLayout.JAVA_INT.withName("mem_unit"),
-            MemoryLayout.paddingLayout(32).withName("_f")
+            MemoryLayout.paddingLayout(4).withName("_f")
     ).withName("sysinfo");
 
     public static final class JnrSysInfo extends jnr.ffi.Struct {
@@ -86,15 +89,58 @@ public class SysinfoBenchmark {
     private static final MethodHandle getMemUnitTrivial =
             Helper.downcallHandle("ffi_benchmark_sysinfo", FunctionDescriptor.ofVoid(ValueLayout.ADDRESS.withTargetLayout(sysinfoLayout)), true);
 
-    private static final VarHandle memUnitHandle = sysinfoLayout.varHandle(MemoryLayout.PathElement.groupElement("mem_unit"));
+    static final VarHandle memUnitHandle = sysinfoLayout.varHandle(MemoryLayout.PathElement.groupElement("mem_unit"));
+
+    /*
+     * A thread-safe pool of structures, for callers that can't keep a structure per thread.
+     */
+    private static final class StructPool<T> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayList<T> pool = new ArrayList<>();
+        private final Supplier<T> factory;
+
+        StructPool(Supplier<T> factory) {
+            this.factory = factory;
+        }
+
+        T acquire() {
+            lock.lock();
+            try {
+                if (!pool.isEmpty()) {
+                    return pool.removeLast();
+                }
+            } finally {
+                lock.unlock();
+            }
+            return factory.get();
+        }
+
+        void release(T struct) {
+            lock.lock();
+            try {
+                pool.addLast(struct);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final StructPool<com.sun.jna.platform.linux.LibC.Sysinfo> jnaPool =
+            new StructPool<>(com.sun.jna.platform.linux.LibC.Sysinfo::new);
+    private static final StructPool<JnrSysInfo> jnrPool =
+            new StructPool<>(() -> new JnrSysInfo(jnr.ffi.Runtime.getSystemRuntime()));
 
     private Arena sharedArena;
     private MemorySegment info;
+    private com.sun.jna.platform.linux.LibC.Sysinfo jnaInfo;
+    private JnrSysInfo jnrInfo;
 
     @Setup
     public void setup() {
         sharedArena = Arena.ofConfined();
         info = sharedArena.allocate(sysinfoLayout);
+        jnaInfo = new com.sun.jna.platform.linux.LibC.Sysinfo();
+        jnrInfo = new JnrSysInfo(jnr.ffi.Runtime.getSystemRuntime());
     }
 
     @TearDown
@@ -102,6 +148,8 @@ public class SysinfoBenchmark {
         sharedArena.close();
         sharedArena = null;
         info = null;
+        jnaInfo = null;
+        jnrInfo = null;
     }
 
     @Benchmark
@@ -137,12 +185,80 @@ public class SysinfoBenchmark {
         return info.mem_unit.intValue();
     }
 
+    @Benchmark
+    public int getMemUnitJnaReuse() {
+        JNA.ffi_benchmark_sysinfo(jnaInfo);
+        return jnaInfo.mem_unit;
+    }
+
+    @Benchmark
+    public int getMemUnitJnaDirectReuse() {
+        JnaDirect.ffi_benchmark_sysinfo(jnaInfo);
+        return jnaInfo.mem_unit;
+    }
+
+    @Benchmark
+    public int getMemUnitJnrReuse() {
+        JNR.ffi_benchmark_sysinfo(jnrInfo);
+        return jnrInfo.mem_unit.intValue();
+    }
+
+    @Benchmark
+    public int getMemUnitJnrIgnoreErrorReuse() {
+        JNR_IGNORE_ERROR.ffi_benchmark_sysinfo(jnrInfo);
+        return jnrInfo.mem_unit.intValue();
+    }
+
+    @Benchmark
+    public int getMemUnitJnaPooled() {
+        var info = jnaPool.acquire();
+        try {
+            JNA.ffi_benchmark_sysinfo(info);
+            return info.mem_unit;
+        } finally {
+            jnaPool.release(info);
+        }
+    }
+
+    @Benchmark
+    public int getMemUnitJnaDirectPooled() {
+        var info = jnaPool.acquire();
+        try {
+            JnaDirect.ffi_benchmark_sysinfo(info);
+            return info.mem_unit;
+        } finally {
+            jnaPool.release(info);
+        }
+    }
+
+    @Benchmark
+    public int getMemUnitJnrPooled() {
+        var info = jnrPool.acquire();
+        try {
+            JNR.ffi_benchmark_sysinfo(info);
+            return info.mem_unit.intValue();
+        } finally {
+            jnrPool.release(info);
+        }
+    }
+
+    @Benchmark
+    public int getMemUnitJnrIgnoreErrorPooled() {
+        var info = jnrPool.acquire();
+        try {
+            JNR_IGNORE_ERROR.ffi_benchmark_sysinfo(info);
+            return info.mem_unit.intValue();
+        } finally {
+            jnrPool.release(info);
+        }
+    }
+
     @Benchmark
     public int getMemUnitPanama() throws Throwable {
         try (Arena arena = Arena.ofConfined()) {
             MemorySegment info = arena.allocate(sysinfoLayout);
             getMemUnit.invokeExact(info);
-            return (int) memUnitHandle.get(info);
+            return (int) memUnitHandle.get(info, 0L);
         }
     }
 
@@ -151,20 +267,20 @@ public class SysinfoBenchmark {
         try (Arena arena = Arena.ofConfined()) {
             MemorySegment info = arena.allocate(sysinfoLayout);
             getMemUnitTrivial.invokeExact(info);
-            return (int) memUnitHandle.get(info);
+            return (int) memUnitHandle.get(info, 0L);
         }
     }
 
     @Benchmark
     public int getMemUnitPanamaNoAllocate() throws Throwable {
         getMemUnit.invokeExact(info);
-        return (int) memUnitHandle.get(info);
+        return (int) memUnitHandle.get(info, 0L);
     }
 
     @Benchmark
     public int getMemUnitPanamaTrivialNoAllocate() throws Throwable {
         getMemUnitTrivial.invokeExact(info);
-        return (int) memUnitHandle.get(info);
+        return (int) memUnitHandle.get(info, 0L);
     }
 
     @Benchmark
@@ -172,7 +288,7 @@ public class SysinfoBenchmark {
         try (NativeStack stack = NativeStack.pushStack()) {
             MemorySegment info = stack.allocate(sysinfoLayout);
             getMemUnit.invokeExact(info);
-            return (int) memUnitHandle.get(info);
+            return (int) memUnitHandle.get(info, 0L);
         }
     }
 
@@ -206,6 +322,30 @@ public class SysinfoBenchmark {
             System.out.println("=> Running getMemUnitJnrIgnoreError");
             checker.accept(benchmark.getMemUnitJnrIgnoreError());
 
+            System.out.println("=> Running getMemUnitJnaReuse");
+            checker.accept(benchmark.getMemUnitJnaReuse());
+
+            System.out.println("=> Running getMemUnitJnaDirectReuse");
+            checker.accept(benchmark.getMemUnitJnaDirectReuse());
+
+            System.out.println("=> Running getMemUnitJnrReuse");
+            checker.accept(benchmark.getMemUnitJnrReuse());
+
+            System.out.println("=> Running getMemUnitJnrIgnoreErrorReuse");
+            checker.accept(benchmark.getMemUnitJnrIgnoreErrorReuse());
+
+            System.out.println("=> Running getMemUnitJnaPooled");
+            checker.accept(benchmark.getMemUnitJnaPooled());
+
+            System.out.println("=> Running getMemUnitJnaDirectPooled");
+            checker.accept(benchmark.getMemUnitJnaDirectPooled());
+
+            System.out.println("=> Running getMemUnitJnrPooled");
+            checker.accept(benchmark.getMemUnitJnrPooled());
+
+            System.out.println("=> Running getMemUnitJnrIgnoreErrorPooled");
+            checker.accept(benchmark.getMemUnitJnrIgnoreErrorPooled());
+
             System.out.println("=> Running getMemUnitPanama");
             checker.accept(benchmark.getMemUnitPanama());
 
@@ -217,6 +357,9 @@ public class SysinfoBenchmark {
 
             System.out.println("=> Running getMemUnitPanamaTrivialNoAllocate");
             checker.accept(benchmark.getMemUnitPanamaTrivialNoAllocate());
+
+            System.out.println("=> Running getMemUnitPanamaNativeStack");
+            checker.accept(benchmark.getMemUnitPanamaNativeStack());
         } finally {
             benchmark.cleanup();
         }
@@ -0,0 +1,96 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import static java.lang.foreign.ValueLayout.*;
+
+/*
+ * The cost of getting an upcall stub, without calling it:
+ * creating a new stub, looking up a cached stub, and registering a context for a shared trampoline.
+ *
+ * See QSortBenchmark for the cost of calling them.
+ */
+@State(Scope.Benchmark)
+public class UpcallStubBenchmark {
+
+    private static final FunctionDescriptor DESCRIPTOR = FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_INT);
+
+    private static final MethodHandle target;
+
+    static {
+        try {
+            target = MethodHandles.lookup().findStatic(Integer.class, "compare", MethodType.methodType(int.class, int.class, int.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private final Object context = new Object();
+
+    Arena benchmarkArena;
+
+    @Setup
+    public void setup() {
+        benchmarkArena = Arena.ofConfined();
+    }
+
+    @TearDown
+    public void cleanup() {
+        benchmarkArena.close();
+        benchmarkArena = null;
+        UpcallStubCache.evictClosed();
+    }
+
+    @Benchmark
+    public long createUpcallStub() {
+        try (Arena arena = Arena.ofConfined()) {
+            return Helper.upcallStub(target, DESCRIPTOR, arena).address();
+        }
+    }
+
+    @Benchmark
+    public MemorySegment lookupCachedUpcallStub() {
+        return UpcallStubCache.get(target, DESCRIPTOR, benchmarkArena);
+    }
+
+    @Benchmark
+    public Object registerContextHandle() {
+        long handle = ContextHandles.register(context);
+        try {
+            return ContextHandles.get(handle);
+        } finally {
+            ContextHandles.unregister(handle);
+        }
+    }
+
+    public static void main(String[] args) {
+        UpcallStubBenchmark benchmark = new UpcallStubBenchmark();
+        benchmark.setup();
+        try {
+            System.out.println("=> Running createUpcallStub");
+            if (benchmark.createUpcallStub() == 0L) {
+                throw new AssertionError("Null stub");
+            }
+
+            System.out.println("=> Running lookupCachedUpcallStub");
+            MemorySegment stub = benchmark.lookupCachedUpcallStub();
+            if (!stub.equals(benchmark.lookupCachedUpcallStub())) {
+                throw new AssertionError("Stub is not cached");
+            }
+
+            System.out.println("=> Running registerContextHandle");
+            if (benchmark.registerContextHandle() != benchmark.context) {
+                throw new AssertionError("Wrong context");
+            }
+        } finally {
+            benchmark.cleanup();
+        }
+    }
+}
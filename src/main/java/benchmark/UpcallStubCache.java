@@ -0,0 +1,67 @@
+package benchmark;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches upcall stubs by {@link FunctionDescriptor} and target method handle.
+ * <p>
+ * Stubs are allocated in the arena passed to {@link #get(MethodHandle, FunctionDescriptor, Arena)} and cached per arena,
+ * so a stub never outlives the arena it belongs to. The entries of a closed arena are evicted on the next cache miss,
+ * or explicitly with {@link #evictClosed()}.
+ * <p>
+ * Only pass arenas that are closed explicitly, or the global arena. The cache holds the scope of an arena strongly
+ * (the cached stubs refer to it too), so the scope of an {@link Arena#ofAuto() automatic arena} would never become
+ * unreachable and its stubs would never be freed.
+ * <p>
+ * Method handles are compared by identity, so the target should be a constant (e.g. a {@code static final} field).
+ * Callbacks that capture state should use a single stub and pass the state through a context pointer instead,
+ * see {@link ContextHandles}.
+ */
+public final class UpcallStubCache {
+
+    private record Key(MethodHandle target, FunctionDescriptor function) {
+    }
+
+    private static final Map<MemorySegment.Scope, Map<Key, MemorySegment>> caches = new ConcurrentHashMap<>();
+
+    private UpcallStubCache() {
+    }
+
+    public static MemorySegment get(MethodHandle target, FunctionDescriptor function, Arena arena) {
+        MemorySegment.Scope scope = arena.scope();
+        Key key = new Key(target, function);
+
+        Map<Key, MemorySegment> cache = caches.get(scope);
+        if (cache != null) {
+            MemorySegment stub = cache.get(key);
+            if (stub != null && scope.isAlive()) {
+                return stub;
+            }
+        }
+
+        if (!scope.isAlive()) {
+            throw new IllegalStateException("Already closed");
+        }
+
+        evictClosed();
+        return caches.computeIfAbsent(scope, s -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key, k -> Helper.upcallStub(target, function, arena));
+    }
+
+    public static void evictClosed() {
+        caches.keySet().removeIf(scope -> !scope.isAlive());
+    }
+
+    static int size() {
+        int size = 0;
+        for (Map<Key, MemorySegment> cache : caches.values()) {
+            size += cache.size();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,395 @@
+package benchmark;
+
+import com.sun.jna.Library;
+import com.sun.jna.WString;
+import jnr.ffi.annotations.In;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static benchmark.Helper.downcallHandle;
+import static benchmark.StringConvertBenchmark.Content;
+import static benchmark.StringConvertBenchmark.testStr;
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+
+/*
+ * char16_t strings are UTF-16LE and wchar_t strings are UTF-32LE (Linux on little-endian machines).
+ */
+@State(Scope.Benchmark)
+public class WideStringBenchmark {
+    private static final Charset UTF_16LE = StandardCharsets.UTF_16LE;
+    private static final Charset UTF_32LE = StandardCharsets.UTF_32LE;
+
+    public interface JnaLib extends Library {
+        void ffi_benchmark_accept_u16string(byte[] str);
+
+        com.sun.jna.Pointer ffi_benchmark_get_u16string(int length, int content);
+
+        void ffi_benchmark_accept_wstring(WString str);
+
+        WString ffi_benchmark_get_wstring(int length, int content);
+    }
+
+    /*
+     * JNR's @Encoding mapping only handles single-byte terminators for wide charsets
+     * (it drops the last character of returned strings and writes a one-byte terminator),
+     * so strings are passed as terminated byte arrays and returned as pointers.
+     */
+    public interface JnrLib {
+        void ffi_benchmark_accept_u16string(@In byte[] str);
+
+        jnr.ffi.Pointer ffi_benchmark_get_u16string(int length, int content);
+
+        void ffi_benchmark_accept_wstring(@In byte[] str);
+
+        jnr.ffi.Pointer ffi_benchmark_get_wstring(int length, int content);
+    }
+
+    private static final class JnaDirect {
+        public static native void ffi_benchmark_accept_wstring(WString str);
+
+        public static native WString ffi_benchmark_get_wstring(int length, int content);
+    }
+
+    static {
+        Helper.registerJnaDirect(JnaDirect.class);
+    }
+
+    private static native void acceptU16String(String str);
+
+    private static native String getU16String(int length, int content);
+
+    private static native void acceptWString(String str);
+
+    private static native String getWString(int length, int content);
+
+    private static final JnaLib JNA = Helper.loadJna(JnaLib.class);
+    private static final JnrLib JNR = Helper.loadJnr(JnrLib.class);
+    private static final JnrLib JNR_IGNORE_ERROR = Helper.loadJnrIgnoreError(JnrLib.class);
+
+    private static final MethodHandle acceptU16String = downcallHandle("ffi_benchmark_accept_u16string", FunctionDescriptor.ofVoid(ADDRESS), false);
+    private static final MethodHandle acceptU16StringTrivial = downcallHandle("ffi_benchmark_accept_u16string", FunctionDescriptor.ofVoid(ADDRESS), true);
+
+    private static final MethodHandle getU16String = downcallHandle("ffi_benchmark_get_u16string", FunctionDescriptor.of(ADDRESS, JAVA_INT, JAVA_INT), false);
+    private static final MethodHandle getU16StringTrivial = downcallHandle("ffi_benchmark_get_u16string", FunctionDescriptor.of(ADDRESS, JAVA_INT, JAVA_INT), true);
+
+    private static final MethodHandle acceptWString = downcallHandle("ffi_benchmark_accept_wstring", FunctionDescriptor.ofVoid(ADDRESS), false);
+    private static final MethodHandle acceptWStringTrivial = downcallHandle("ffi_benchmark_accept_wstring", FunctionDescriptor.ofVoid(ADDRESS), true);
+
+    private static final MethodHandle getWString = downcallHandle("ffi_benchmark_get_wstring", FunctionDescriptor.of(ADDRESS, JAVA_INT, JAVA_INT), false);
+    private static final MethodHandle getWStringTrivial = downcallHandle("ffi_benchmark_get_wstring", FunctionDescriptor.of(ADDRESS, JAVA_INT, JAVA_INT), true);
+
+    // The number of code points
+    @Param({"0", "16", "64", "256", "1024", "4096"})
+    int length;
+
+    @Param({"ASCII", "CJK", "SUPPLEMENTARY", "MIXED"})
+    Content content;
+
+    String testString;
+    WString testWString;
+
+    @Setup
+    public void setup() {
+        testString = testStr(length, content);
+        testWString = new WString(testString);
+    }
+
+    // Encode the string and add the terminator manually
+    private static byte[] toU16Bytes(String str) {
+        byte[] bytes = str.getBytes(UTF_16LE);
+        return Arrays.copyOf(bytes, bytes.length + 2);
+    }
+
+    private static byte[] toWBytes(String str) {
+        byte[] bytes = str.getBytes(UTF_32LE);
+        return Arrays.copyOf(bytes, bytes.length + 4);
+    }
+
+    private static String fromJnaU16String(com.sun.jna.Pointer pointer) {
+        long length = 0;
+        while (pointer.getShort(length) != 0) {
+            length += 2;
+        }
+        return new String(pointer.getByteArray(0, (int) length), UTF_16LE);
+    }
+
+    private static String fromJnrU16String(jnr.ffi.Pointer pointer) {
+        int length = 0;
+        while (pointer.getShort(length) != 0) {
+            length += 2;
+        }
+        byte[] bytes = new byte[length];
+        pointer.get(0, bytes, 0, length);
+        return new String(bytes, UTF_16LE);
+    }
+
+    private static String fromJnrWString(jnr.ffi.Pointer pointer) {
+        int length = 0;
+        while (pointer.getInt(length) != 0) {
+            length += 4;
+        }
+        byte[] bytes = new byte[length];
+        pointer.get(0, bytes, 0, length);
+        return new String(bytes, UTF_32LE);
+    }
+
+    // ========= char16_t =========
+
+    @Benchmark
+    public void passU16StringToNativeJni() {
+        acceptU16String(testString);
+    }
+
+    @Benchmark
+    public void passU16StringToNativeJna() {
+        JNA.ffi_benchmark_accept_u16string(toU16Bytes(testString));
+    }
+
+    @Benchmark
+    public void passU16StringToNativeJnr() {
+        JNR.ffi_benchmark_accept_u16string(toU16Bytes(testString));
+    }
+
+    @Benchmark
+    public void passU16StringToNativeJnrIgnoreError() {
+        JNR_IGNORE_ERROR.ffi_benchmark_accept_u16string(toU16Bytes(testString));
+    }
+
+    @Benchmark
+    public void passU16StringToNativePanama() throws Throwable {
+        try (Arena arena = Arena.ofConfined()) {
+            acceptU16String.invokeExact(arena.allocateFrom(testString, UTF_16LE));
+        }
+    }
+
+    @Benchmark
+    public void passU16StringToNativePanamaTrivial() throws Throwable {
+        try (Arena arena = Arena.ofConfined()) {
+            acceptU16StringTrivial.invokeExact(arena.allocateFrom(testString, UTF_16LE));
+        }
+    }
+
+    @Benchmark
+    public String getU16StringFromNativeJni() {
+        return getU16String(length, content.ordinal());
+    }
+
+    @Benchmark
+    public String getU16StringFromNativeJna() {
+        return fromJnaU16String(JNA.ffi_benchmark_get_u16string(length, content.ordinal()));
+    }
+
+    @Benchmark
+    public String getU16StringFromNativeJnr() {
+        return fromJnrU16String(JNR.ffi_benchmark_get_u16string(length, content.ordinal()));
+    }
+
+    @Benchmark
+    public String getU16StringFromNativeJnrIgnoreError() {
+        return fromJnrU16String(JNR_IGNORE_ERROR.ffi_benchmark_get_u16string(length, content.ordinal()));
+    }
+
+    @Benchmark
+    public String getU16StringFromNativePanama() throws Throwable {
+        return ((MemorySegment) getU16String.invokeExact(length, content.ordinal())).reinterpret(Long.MAX_VALUE).getString(0, UTF_16LE);
+    }
+
+    @Benchmark
+    public String getU16StringFromNativePanamaTrivial() throws Throwable {
+        return ((MemorySegment) getU16StringTrivial.invokeExact(length, content.ordinal())).reinterpret(Long.MAX_VALUE).getString(0, UTF_16LE);
+    }
+
+    // ========= wchar_t =========
+
+    @Benchmark
+    public void passWStringToNativeJni() {
+        acceptWString(testString);
+    }
+
+    @Benchmark
+    public void passWStringToNativeJna() {
+        JNA.ffi_benchmark_accept_wstring(testWString);
+    }
+
+    @Benchmark
+    public void passWStringToNativeJnaDirect() {
+        JnaDirect.ffi_benchmark_accept_wstring(testWString);
+    }
+
+    @Benchmark
+    public void passWStringToNativeJnr() {
+        JNR.ffi_benchmark_accept_wstring(toWBytes(testString));
+    }
+
+    @Benchmark
+    public void passWStringToNativeJnrIgnoreError() {
+        JNR_IGNORE_ERROR.ffi_benchmark_accept_wstring(toWBytes(testString));
+    }
+
+    @Benchmark
+    public void passWStringToNativePanama() throws Throwable {
+        try (Arena arena = Arena.ofConfined()) {
+            acceptWString.invokeExact(arena.allocateFrom(testString, UTF_32LE));
+        }
+    }
+
+    @Benchmark
+    public void passWStringToNativePanamaTrivial() throws Throwable {
+        try (Arena arena = Arena.ofConfined()) {
+            acceptWStringTrivial.invokeExact(arena.allocateFrom(testString, UTF_32LE));
+        }
+    }
+
+    @Benchmark
+    public String getWStringFromNativeJni() {
+        return getWString(length, content.ordinal());
+    }
+
+    @Benchmark
+    public String getWStringFromNativeJna() {
+        return JNA.ffi_benchmark_get_wstring(length, content.ordinal()).toString();
+    }
+
+    @Benchmark
+    public String getWStringFromNativeJnaDirect() {
+        return JnaDirect.ffi_benchmark_get_wstring(length, content.ordinal()).toString();
+    }
+
+    @Benchmark
+    public String getWStringFromNativeJnr() {
+        return fromJnrWString(JNR.ffi_benchmark_get_wstring(length, content.ordinal()));
+    }
+
+    @Benchmark
+    public String getWStringFromNativeJnrIgnoreError() {
+        return fromJnrWString(JNR_IGNORE_ERROR.ffi_benchmark_get_wstring(length, content.ordinal()));
+    }
+
+    @Benchmark
+    public String getWStringFromNativePanama() throws Throwable {
+        return ((MemorySegment) getWString.invokeExact(length, content.ordinal())).reinterpret(Long.MAX_VALUE).getString(0, UTF_32LE);
+    }
+
+    @Benchmark
+    public String getWStringFromNativePanamaTrivial() throws Throwable {
+        return ((MemorySegment) getWStringTrivial.invokeExact(length, content.ordinal())).reinterpret(Long.MAX_VALUE).getString(0, UTF_32LE);
+    }
+
+    public static void main(String[] args) throws Throwable {
+        int[] lengths = {0, 16, 64, 256, 1024, 4096};
+        for (Content content : new Content[]{Content.ASCII, Content.CJK, Content.SUPPLEMENTARY, Content.MIXED}) {
+            for (int length : lengths) {
+                System.out.println("# content = " + content + ", length = " + length);
+
+                WideStringBenchmark benchmark = new WideStringBenchmark();
+                benchmark.length = length;
+                benchmark.content = content;
+
+                benchmark.setup();
+
+                System.out.println("=> Running passU16StringToNativeJni");
+                benchmark.passU16StringToNativeJni();
+
+                System.out.println("=> Running passU16StringToNativeJna");
+                benchmark.passU16StringToNativeJna();
+
+                System.out.println("=> Running passU16StringToNativeJnr");
+                benchmark.passU16StringToNativeJnr();
+
+                System.out.println("=> Running passU16StringToNativeJnrIgnoreError");
+                benchmark.passU16StringToNativeJnrIgnoreError();
+
+                System.out.println("=> Running passU16StringToNativePanama");
+                benchmark.passU16StringToNativePanama();
+
+                System.out.println("=> Running passU16StringToNativePanamaTrivial");
+                benchmark.passU16StringToNativePanamaTrivial();
+
+                System.out.println("=> Running passWStringToNativeJni");
+                benchmark.passWStringToNativeJni();
+
+                System.out.println("=> Running passWStringToNativeJna");
+                benchmark.passWStringToNativeJna();
+
+                System.out.println("=> Running passWStringToNativeJnaDirect");
+                benchmark.passWStringToNativeJnaDirect();
+
+                System.out.println("=> Running passWStringToNativeJnr");
+                benchmark.passWStringToNativeJnr();
+
+                System.out.println("=> Running passWStringToNativeJnrIgnoreError");
+                benchmark.passWStringToNativeJnrIgnoreError();
+
+                System.out.println("=> Running passWStringToNativePanama");
+                benchmark.passWStringToNativePanama();
+
+                System.out.println("=> Running passWStringToNativePanamaTrivial");
+                benchmark.passWStringToNativePanamaTrivial();
+
+                String expect = testStr(length, content);
+                Consumer<String> checker = v -> {
+                    if (!expect.equals(v)) {
+                        throw new AssertionError("expect: " + expect + ", actual: " + v);
+                    }
+                };
+
+                System.out.println("=> Running getU16StringFromNativeJni");
+                checker.accept(benchmark.getU16StringFromNativeJni());
+
+                System.out.println("=> Running getU16StringFromNativeJna");
+                checker.accept(benchmark.getU16StringFromNativeJna());
+
+                System.out.println("=> Running getU16StringFromNativeJnr");
+                checker.accept(benchmark.getU16StringFromNativeJnr());
+
+                System.out.println("=> Running getU16StringFromNativeJnrIgnoreError");
+                checker.accept(benchmark.getU16StringFromNativeJnrIgnoreError());
+
+                System.out.println("=> Running getU16StringFromNativePanama");
+                checker.accept(benchmark.getU16StringFromNativePanama());
+
+                System.out.println("=> Running getU16StringFromNativePanamaTrivial");
+                checker.accept(benchmark.getU16StringFromNativePanamaTrivial());
+
+                System.out.println("=> Running getWStringFromNativeJni");
+                checker.accept(benchmark.getWStringFromNativeJni());
+
+                // JNA converts wchar_t strings one UTF-16 unit at a time, so supplementary characters are lost
+                boolean bmpOnly = content != Content.SUPPLEMENTARY && content != Content.MIXED;
+
+                System.out.println("=> Running getWStringFromNativeJna");
+                String jnaResult = benchmark.getWStringFromNativeJna();
+                if (bmpOnly) {
+                    checker.accept(jnaResult);
+                }
+
+                System.out.println("=> Running getWStringFromNativeJnaDirect");
+                String jnaDirectResult = benchmark.getWStringFromNativeJnaDirect();
+                if (bmpOnly) {
+                    checker.accept(jnaDirectResult);
+                }
+
+                System.out.println("=> Running getWStringFromNativeJnr");
+                checker.accept(benchmark.getWStringFromNativeJnr());
+
+                System.out.println("=> Running getWStringFromNativeJnrIgnoreError");
+                checker.accept(benchmark.getWStringFromNativeJnrIgnoreError());
+
+                System.out.println("=> Running getWStringFromNativePanama");
+                checker.accept(benchmark.getWStringFromNativePanama());
+
+                System.out.println("=> Running getWStringFromNativePanamaTrivial");
+                checker.accept(benchmark.getWStringFromNativePanamaTrivial());
+            }
+        }
+    }
+}
@@ -0,0 +1,644 @@
+package benchmark;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Structure;
+import jnr.ffi.LibraryLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static benchmark.Helper.downcallHandle;
+import static java.lang.foreign.MemoryLayout.PathElement.groupElement;
+import static java.lang.foreign.ValueLayout.*;
+
+/*
+ * Compresses and decompresses generated text with the system zlib.
+ *
+ * Each benchmark reports the number of uncompressed bytes processed as the secondary result "bytes",
+ * so with "-tu ms", bytes/ms divided by 1000 is MB/s.
+ */
+@State(Scope.Benchmark)
+public class ZlibBenchmark {
+
+    private static final int LEVEL = Deflater.DEFAULT_COMPRESSION;
+    private static final int Z_OK = 0;
+    private static final int Z_STREAM_END = 1;
+    private static final int Z_FINISH = 4;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        public long bytes;
+    }
+
+    // ========= JNA =========
+
+    @Structure.FieldOrder({"next_in", "avail_in", "total_in", "next_out", "avail_out", "total_out",
+            "msg", "state", "zalloc", "zfree", "opaque", "data_type", "adler", "reserved"})
+    public static final class JnaZStream extends Structure {
+        public com.sun.jna.Pointer next_in;
+        public int avail_in;
+        public NativeLong total_in;
+        public com.sun.jna.Pointer next_out;
+        public int avail_out;
+        public NativeLong total_out;
+        public com.sun.jna.Pointer msg;
+        public com.sun.jna.Pointer state;
+        public com.sun.jna.Pointer zalloc;
+        public com.sun.jna.Pointer zfree;
+        public com.sun.jna.Pointer opaque;
+        public int data_type;
+        public NativeLong adler;
+        public NativeLong reserved;
+    }
+
+    public interface JnaZlib extends Library {
+        String zlibVersion();
+
+        int deflateInit_(JnaZStream strm, int level, String version, int streamSize);
+
+        int deflateReset(JnaZStream strm);
+
+        int deflate(JnaZStream strm, int flush);
+
+        int deflateEnd(JnaZStream strm);
+
+        int inflateInit_(JnaZStream strm, String version, int streamSize);
+
+        int inflateReset(JnaZStream strm);
+
+        int inflate(JnaZStream strm, int flush);
+
+        int inflateEnd(JnaZStream strm);
+    }
+
+    // ========= JNR =========
+
+    public static final class JnrZStream extends jnr.ffi.Struct {
+        public final Pointer next_in = new Pointer();
+        public final Unsigned32 avail_in = new Unsigned32();
+        public final UnsignedLong total_in = new UnsignedLong();
+        public final Pointer next_out = new Pointer();
+        public final Unsigned32 avail_out = new Unsigned32();
+        public final UnsignedLong total_out = new UnsignedLong();
+        public final Pointer msg = new Pointer();
+        public final Pointer state = new Pointer();
+        public final Pointer zalloc = new Pointer();
+        public final Pointer zfree = new Pointer();
+        public final Pointer opaque = new Pointer();
+        public final Signed32 data_type = new Signed32();
+        public final UnsignedLong adler = new UnsignedLong();
+        public final UnsignedLong reserved = new UnsignedLong();
+
+        JnrZStream(jnr.ffi.Runtime runtime) {
+            super(runtime);
+        }
+    }
+
+    // The stream is passed as a pointer, because zlib requires it to stay at the same address
+    public interface JnrZlib {
+        String zlibVersion();
+
+        int deflateInit_(jnr.ffi.Pointer strm, int level, String version, int streamSize);
+
+        int deflateReset(jnr.ffi.Pointer strm);
+
+        int deflate(jnr.ffi.Pointer strm, int flush);
+
+        int deflateEnd(jnr.ffi.Pointer strm);
+
+        int inflateInit_(jnr.ffi.Pointer strm, String version, int streamSize);
+
+        int inflateReset(jnr.ffi.Pointer strm);
+
+        int inflate(jnr.ffi.Pointer strm, int flush);
+
+        int inflateEnd(jnr.ffi.Pointer strm);
+    }
+
+    private static final JnaZlib JNA = Native.load("z", JnaZlib.class);
+    private static final JnrZlib JNR = LibraryLoader.create(JnrZlib.class).load("z");
+
+    // ========= JNI =========
+
+    private static native long deflateInit(int level);
+
+    private static native long deflate(long stream, long src, long srcLen, long dst, long dstLen);
+
+    private static native void deflateEnd(long stream);
+
+    private static native long inflateInit();
+
+    private static native long inflate(long stream, long src, long srcLen, long dst, long dstLen);
+
+    private static native void inflateEnd(long stream);
+
+    // ========= Panama =========
+
+    private static final StructLayout zStreamLayout = MemoryLayout.structLayout(
+            ADDRESS.withName("next_in"),
+            JAVA_INT.withName("avail_in"),
+            MemoryLayout.paddingLayout(4),
+            JAVA_LONG.withName("total_in"),
+            ADDRESS.withName("next_out"),
+            JAVA_INT.withName("avail_out"),
+            MemoryLayout.paddingLayout(4),
+            JAVA_LONG.withName("total_out"),
+            ADDRESS.withName("msg"),
+            ADDRESS.withName("state"),
+            ADDRESS.withName("zalloc"),
+            ADDRESS.withName("zfree"),
+            ADDRESS.withName("opaque"),
+            JAVA_INT.withName("data_type"),
+            MemoryLayout.paddingLayout(4),
+            JAVA_LONG.withName("adler"),
+            JAVA_LONG.withName("reserved")
+    ).withName("z_stream");
+
+    private static final long NEXT_IN = zStreamLayout.byteOffset(groupElement("next_in"));
+    private static final long AVAIL_IN = zStreamLayout.byteOffset(groupElement("avail_in"));
+    private static final long NEXT_OUT = zStreamLayout.byteOffset(groupElement("next_out"));
+    private static final long AVAIL_OUT = zStreamLayout.byteOffset(groupElement("avail_out"));
+    private static final long TOTAL_OUT = zStreamLayout.byteOffset(groupElement("total_out"));
+
+    private static final SymbolLookup zlib = SymbolLookup.libraryLookup("libz.so.1", Arena.global());
+
+    private static final MethodHandle zlibVersion = downcallHandle(zlib, "zlibVersion", FunctionDescriptor.of(ADDRESS), false);
+    private static final MethodHandle compressBound = downcallHandle(zlib, "compressBound", FunctionDescriptor.of(JAVA_LONG, JAVA_LONG), false);
+
+    private static final MethodHandle deflateInit = downcallHandle(zlib, "deflateInit_", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS, JAVA_INT), false);
+    private static final MethodHandle deflateReset = downcallHandle(zlib, "deflateReset", FunctionDescriptor.of(JAVA_INT, ADDRESS), false);
+    private static final MethodHandle deflate = downcallHandle(zlib, "deflate", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT), false);
+    private static final MethodHandle deflateEnd = downcallHandle(zlib, "deflateEnd", FunctionDescriptor.of(JAVA_INT, ADDRESS), false);
+
+    private static final MethodHandle inflateInit = downcallHandle(zlib, "inflateInit_", FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, JAVA_INT), false);
+    private static final MethodHandle inflateReset = downcallHandle(zlib, "inflateReset", FunctionDescriptor.of(JAVA_INT, ADDRESS), false);
+    private static final MethodHandle inflate = downcallHandle(zlib, "inflate", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT), false);
+    private static final MethodHandle inflateEnd = downcallHandle(zlib, "inflateEnd", FunctionDescriptor.of(JAVA_INT, ADDRESS), false);
+
+    // One-shot utility functions, their arguments can be heap segments when called as critical functions
+    private static final MethodHandle compress2 = downcallHandle(zlib, "compress2", FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS, JAVA_LONG, JAVA_INT), false);
+    private static final MethodHandle compress2Heap = downcallHandle(zlib, "compress2", FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS, JAVA_LONG, JAVA_INT), true);
+    private static final MethodHandle uncompress = downcallHandle(zlib, "uncompress", FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS, JAVA_LONG), false);
+    private static final MethodHandle uncompressHeap = downcallHandle(zlib, "uncompress", FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS, JAVA_LONG), true);
+
+    private static void checkResult(int result, int expected) {
+        if (result != expected) {
+            throw new IllegalStateException("zlib error: " + result);
+        }
+    }
+
+    // The JNI stubs return 0 for a stream they failed to initialize, and -1 when the stream doesn't end
+    private static long checkJniStream(long stream) {
+        if (stream == 0L) {
+            throw new IllegalStateException("zlib error: failed to initialize the stream");
+        }
+        return stream;
+    }
+
+    private static long checkJniResult(long result) {
+        if (result < 0) {
+            throw new IllegalStateException("zlib error: the stream did not end");
+        }
+        return result;
+    }
+
+    // 1 KiB ~ 256 MiB
+    @Param({"1024", "65536", "1048576", "16777216", "268435456"})
+    int size;
+
+    byte[] data;
+    byte[] compressedData;
+    byte[] deflateOutput;
+    byte[] inflateOutput;
+    long[] destLen = new long[1];
+
+    Arena benchmarkArena;
+    MemorySegment dataSegment;
+    MemorySegment compressedSegment;
+    MemorySegment deflateOutputSegment;
+    MemorySegment inflateOutputSegment;
+    MemorySegment destLenSegment;
+
+    ByteBuffer dataBuffer;
+    ByteBuffer compressedBuffer;
+    ByteBuffer deflateOutputBuffer;
+    ByteBuffer inflateOutputBuffer;
+
+    Deflater deflater;
+    Inflater inflater;
+
+    long jniDeflateStream;
+    long jniInflateStream;
+
+    MemorySegment deflateStream;
+    MemorySegment inflateStream;
+
+    JnaZStream jnaDeflateStream;
+    JnaZStream jnaInflateStream;
+
+    JnrZStream jnrDeflateStream;
+    JnrZStream jnrInflateStream;
+
+    static byte[] generateData(int size) {
+        String[] words = {
+                "the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog",
+                "lorem", "ipsum", "dolor", "sit", "amet", "foreign", "function", "memory",
+                "{\"id\":", "\"name\":", "\"value\":", "null", "true", "false", "},", "\n"
+        };
+
+        Random random = new Random(0);
+        byte[] data = new byte[size];
+        int offset = 0;
+        while (offset < size) {
+            String word = words[random.nextInt(words.length)];
+            for (int i = 0; i < word.length() && offset < size; i++) {
+                data[offset++] = (byte) word.charAt(i);
+            }
+            if (offset < size) {
+                data[offset++] = (byte) (random.nextInt(4) == 0 ? '0' + random.nextInt(10) : ' ');
+            }
+        }
+        return data;
+    }
+
+    @Setup
+    public void setup() throws Throwable {
+        data = generateData(size);
+
+        int bound = (int) (long) compressBound.invokeExact((long) size);
+
+        Deflater tmp = new Deflater(LEVEL);
+        tmp.setInput(data);
+        tmp.finish();
+        byte[] buffer = new byte[bound];
+        int compressedSize = tmp.deflate(buffer);
+        tmp.end();
+        compressedData = Arrays.copyOf(buffer, compressedSize);
+
+        deflateOutput = new byte[bound];
+        inflateOutput = new byte[size];
+
+        benchmarkArena = Arena.ofConfined();
+        dataSegment = benchmarkArena.allocate(size, 16);
+        compressedSegment = benchmarkArena.allocate(compressedSize, 16);
+        deflateOutputSegment = benchmarkArena.allocate(bound, 16);
+        inflateOutputSegment = benchmarkArena.allocate(size, 16);
+        destLenSegment = benchmarkArena.allocate(JAVA_LONG);
+
+        MemorySegment.copy(MemorySegment.ofArray(data), 0, dataSegment, 0, size);
+        MemorySegment.copy(MemorySegment.ofArray(compressedData), 0, compressedSegment, 0, compressedSize);
+
+        dataBuffer = dataSegment.asByteBuffer();
+        compressedBuffer = compressedSegment.asByteBuffer();
+        deflateOutputBuffer = deflateOutputSegment.asByteBuffer();
+        inflateOutputBuffer = inflateOutputSegment.asByteBuffer();
+
+        deflater = new Deflater(LEVEL);
+        inflater = new Inflater();
+
+        jniDeflateStream = checkJniStream(deflateInit(LEVEL));
+        jniInflateStream = checkJniStream(inflateInit());
+
+        MemorySegment version = (MemorySegment) zlibVersion.invokeExact();
+
+        deflateStream = benchmarkArena.allocate(zStreamLayout);
+        checkResult((int) deflateInit.invokeExact(deflateStream, LEVEL, version, (int) zStreamLayout.byteSize()), Z_OK);
+        inflateStream = benchmarkArena.allocate(zStreamLayout);
+        checkResult((int) inflateInit.invokeExact(inflateStream, version, (int) zStreamLayout.byteSize()), Z_OK);
+
+        String versionString = JNA.zlibVersion();
+        jnaDeflateStream = new JnaZStream();
+        checkResult(JNA.deflateInit_(jnaDeflateStream, LEVEL, versionString, jnaDeflateStream.size()), Z_OK);
+        jnaInflateStream = new JnaZStream();
+        checkResult(JNA.inflateInit_(jnaInflateStream, versionString, jnaInflateStream.size()), Z_OK);
+
+        jnr.ffi.Runtime runtime = jnr.ffi.Runtime.getSystemRuntime();
+        jnrDeflateStream = new JnrZStream(runtime);
+        jnrDeflateStream.useMemory(jnr.ffi.Memory.allocateDirect(runtime, jnr.ffi.Struct.size(jnrDeflateStream), true));
+        checkResult(JNR.deflateInit_(jnr.ffi.Struct.getMemory(jnrDeflateStream), LEVEL, versionString, jnr.ffi.Struct.size(jnrDeflateStream)), Z_OK);
+        jnrInflateStream = new JnrZStream(runtime);
+        jnrInflateStream.useMemory(jnr.ffi.Memory.allocateDirect(runtime, jnr.ffi.Struct.size(jnrInflateStream), true));
+        checkResult(JNR.inflateInit_(jnr.ffi.Struct.getMemory(jnrInflateStream), versionString, jnr.ffi.Struct.size(jnrInflateStream)), Z_OK);
+    }
+
+    @TearDown
+    public void cleanup() throws Throwable {
+        deflater.end();
+        inflater.end();
+
+        deflateEnd(jniDeflateStream);
+        inflateEnd(jniInflateStream);
+
+        checkResult((int) deflateEnd.invokeExact(deflateStream), Z_OK);
+        checkResult((int) inflateEnd.invokeExact(inflateStream), Z_OK);
+
+        JNA.deflateEnd(jnaDeflateStream);
+        JNA.inflateEnd(jnaInflateStream);
+
+        JNR.deflateEnd(jnr.ffi.Struct.getMemory(jnrDeflateStream));
+        JNR.inflateEnd(jnr.ffi.Struct.getMemory(jnrInflateStream));
+
+        benchmarkArena.close();
+        benchmarkArena = null;
+
+        data = null;
+        compressedData = null;
+        deflateOutput = null;
+        inflateOutput = null;
+
+        dataSegment = null;
+        compressedSegment = null;
+        deflateOutputSegment = null;
+        inflateOutputSegment = null;
+        destLenSegment = null;
+
+        dataBuffer = null;
+        compressedBuffer = null;
+        deflateOutputBuffer = null;
+        inflateOutputBuffer = null;
+
+        deflater = null;
+        inflater = null;
+
+        deflateStream = null;
+        inflateStream = null;
+
+        jnaDeflateStream = null;
+        jnaInflateStream = null;
+
+        jnrDeflateStream = null;
+        jnrInflateStream = null;
+    }
+
+    // ========= deflate =========
+
+    @Benchmark
+    public long deflateJava(Throughput throughput) {
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        int n = deflater.deflate(deflateOutput);
+        throughput.bytes += size;
+        return n;
+    }
+
+    @Benchmark
+    public long deflateJavaDirect(Throughput throughput) {
+        deflater.reset();
+        deflater.setInput(dataBuffer.clear());
+        deflater.finish();
+        int n = deflater.deflate(deflateOutputBuffer.clear());
+        throughput.bytes += size;
+        return n;
+    }
+
+    @Benchmark
+    public long deflateJni(Throughput throughput) {
+        long n = checkJniResult(deflate(jniDeflateStream,
+                dataSegment.address(), size,
+                deflateOutputSegment.address(), deflateOutputSegment.byteSize()));
+        throughput.bytes += size;
+        return n;
+    }
+
+    @Benchmark
+    public long deflateJna(Throughput throughput) {
+        JnaZStream stream = jnaDeflateStream;
+        JNA.deflateReset(stream);
+        stream.next_in = new com.sun.jna.Pointer(dataSegment.address());
+        stream.avail_in = size;
+        stream.next_out = new com.sun.jna.Pointer(deflateOutputSegment.address());
+        stream.avail_out = (int) deflateOutputSegment.byteSize();
+        checkResult(JNA.deflate(stream, Z_FINISH), Z_STREAM_END);
+        throughput.bytes += size;
+        return stream.total_out.longValue();
+    }
+
+    @Benchmark
+    public long deflateJnr(Throughput throughput) {
+        JnrZStream stream = jnrDeflateStream;
+        jnr.ffi.Pointer memory = jnr.ffi.Struct.getMemory(stream);
+        JNR.deflateReset(memory);
+        stream.next_in.set(dataSegment.address());
+        stream.avail_in.set(size);
+        stream.next_out.set(deflateOutputSegment.address());
+        stream.avail_out.set(deflateOutputSegment.byteSize());
+        checkResult(JNR.deflate(memory, Z_FINISH), Z_STREAM_END);
+        throughput.bytes += size;
+        return stream.total_out.get();
+    }
+
+    @Benchmark
+    public long deflatePanama(Throughput throughput) throws Throwable {
+        MemorySegment stream = deflateStream;
+        checkResult((int) deflateReset.invokeExact(stream), Z_OK);
+        stream.set(ADDRESS, NEXT_IN, dataSegment);
+        stream.set(JAVA_INT, AVAIL_IN, size);
+        stream.set(ADDRESS, NEXT_OUT, deflateOutputSegment);
+        stream.set(JAVA_INT, AVAIL_OUT, (int) deflateOutputSegment.byteSize());
+        checkResult((int) deflate.invokeExact(stream, Z_FINISH), Z_STREAM_END);
+        throughput.bytes += size;
+        return stream.get(JAVA_LONG, TOTAL_OUT);
+    }
+
+    @Benchmark
+    public long deflatePanamaCompress2(Throughput throughput) throws Throwable {
+        destLenSegment.set(JAVA_LONG, 0, deflateOutputSegment.byteSize());
+        checkResult((int) compress2.invokeExact(deflateOutputSegment, destLenSegment, dataSegment, (long) size, LEVEL), Z_OK);
+        throughput.bytes += size;
+        return destLenSegment.get(JAVA_LONG, 0);
+    }
+
+    @Benchmark
+    public long deflatePanamaCompress2Heap(Throughput throughput) throws Throwable {
+        destLen[0] = deflateOutput.length;
+        checkResult((int) compress2Heap.invokeExact(MemorySegment.ofArray(deflateOutput), MemorySegment.ofArray(destLen),
+                MemorySegment.ofArray(data), (long) size, LEVEL), Z_OK);
+        throughput.bytes += size;
+        return destLen[0];
+    }
+
+    // ========= inflate =========
+
+    @Benchmark
+    public long inflateJava(Throughput throughput) throws DataFormatException {
+        inflater.reset();
+        inflater.setInput(compressedData);
+        int n = inflater.inflate(inflateOutput);
+        throughput.bytes += size;
+        return n;
+    }
+
+    @Benchmark
+    public long inflateJavaDirect(Throughput throughput) throws DataFormatException {
+        inflater.reset();
+        inflater.setInput(compressedBuffer.clear());
+        int n = inflater.inflate(inflateOutputBuffer.clear());
+        throughput.bytes += size;
+        return n;
+    }
+
+    @Benchmark
+    public long inflateJni(Throughput throughput) {
+        long n = checkJniResult(inflate(jniInflateStream,
+                compressedSegment.address(), compressedSegment.byteSize(),
+                inflateOutputSegment.address(), inflateOutputSegment.byteSize()));
+        throughput.bytes += size;
+        return n;
+    }
+
+    @Benchmark
+    public long inflateJna(Throughput throughput) {
+        JnaZStream stream = jnaInflateStream;
+        JNA.inflateReset(stream);
+        stream.next_in = new com.sun.jna.Pointer(compressedSegment.address());
+        stream.avail_in = (int) compressedSegment.byteSize();
+        stream.next_out = new com.sun.jna.Pointer(inflateOutputSegment.address());
+        stream.avail_out = size;
+        checkResult(JNA.inflate(stream, Z_FINISH), Z_STREAM_END);
+        throughput.bytes += size;
+        return stream.total_out.longValue();
+    }
+
+    @Benchmark
+    public long inflateJnr(Throughput throughput) {
+        JnrZStream stream = jnrInflateStream;
+        jnr.ffi.Pointer memory = jnr.ffi.Struct.getMemory(stream);
+        JNR.inflateReset(memory);
+        stream.next_in.set(compressedSegment.address());
+        stream.avail_in.set(compressedSegment.byteSize());
+        stream.next_out.set(inflateOutputSegment.address());
+        stream.avail_out.set(size);
+        checkResult(JNR.inflate(memory, Z_FINISH), Z_STREAM_END);
+        throughput.bytes += size;
+        return stream.total_out.get();
+    }
+
+    @Benchmark
+    public long inflatePanama(Throughput throughput) throws Throwable {
+        MemorySegment stream = inflateStream;
+        checkResult((int) inflateReset.invokeExact(stream), Z_OK);
+        stream.set(ADDRESS, NEXT_IN, compressedSegment);
+        stream.set(JAVA_INT, AVAIL_IN, (int) compressedSegment.byteSize());
+        stream.set(ADDRESS, NEXT_OUT, inflateOutputSegment);
+        stream.set(JAVA_INT, AVAIL_OUT, size);
+        checkResult((int) inflate.invokeExact(stream, Z_FINISH), Z_STREAM_END);
+        throughput.bytes += size;
+        return stream.get(JAVA_LONG, TOTAL_OUT);
+    }
+
+    @Benchmark
+    public long inflatePanamaUncompress(Throughput throughput) throws Throwable {
+        destLenSegment.set(JAVA_LONG, 0, inflateOutputSegment.byteSize());
+        checkResult((int) uncompress.invokeExact(inflateOutputSegment, destLenSegment, compressedSegment, compressedSegment.byteSize()), Z_OK);
+        throughput.bytes += size;
+        return destLenSegment.get(JAVA_LONG, 0);
+    }
+
+    @Benchmark
+    public long inflatePanamaUncompressHeap(Throughput throughput) throws Throwable {
+        destLen[0] = inflateOutput.length;
+        checkResult((int) uncompressHeap.invokeExact(MemorySegment.ofArray(inflateOutput), MemorySegment.ofArray(destLen),
+                MemorySegment.ofArray(compressedData), (long) compressedData.length), Z_OK);
+        throughput.bytes += size;
+        return destLen[0];
+    }
+
+    private void checkDeflateOutput(long n, MemorySegment output) throws DataFormatException {
+        Inflater checker = new Inflater();
+        checker.setInput(output.asSlice(0, n).toArray(JAVA_BYTE));
+        byte[] result = new byte[size];
+        int resultSize = checker.inflate(result);
+        checker.end();
+        if (resultSize != size || !Arrays.equals(result, data)) {
+            throw new AssertionError("Invalid compressed data");
+        }
+    }
+
+    private void checkInflateOutput(long n, MemorySegment output) {
+        if (n != size || output.mismatch(MemorySegment.ofArray(data)) != -1) {
+            throw new AssertionError("Invalid decompressed data");
+        }
+    }
+
+    public static void main(String[] args) throws Throwable {
+        int[] sizes = {1024, 65536, 1048576};
+
+        for (int size : sizes) {
+            System.out.println("# size = " + size);
+
+            ZlibBenchmark benchmark = new ZlibBenchmark();
+            benchmark.size = size;
+            benchmark.setup();
+
+            Throughput throughput = new Throughput();
+
+            try {
+                System.out.println("=> Running deflateJava");
+                benchmark.checkDeflateOutput(benchmark.deflateJava(throughput), MemorySegment.ofArray(benchmark.deflateOutput));
+
+                System.out.println("=> Running deflateJavaDirect");
+                benchmark.checkDeflateOutput(benchmark.deflateJavaDirect(throughput), benchmark.deflateOutputSegment);
+
+                System.out.println("=> Running deflateJni");
+                benchmark.checkDeflateOutput(benchmark.deflateJni(throughput), benchmark.deflateOutputSegment);
+
+                System.out.println("=> Running deflateJna");
+                benchmark.checkDeflateOutput(benchmark.deflateJna(throughput), benchmark.deflateOutputSegment);
+
+                System.out.println("=> Running deflateJnr");
+                benchmark.checkDeflateOutput(benchmark.deflateJnr(throughput), benchmark.deflateOutputSegment);
+
+                System.out.println("=> Running deflatePanama");
+                benchmark.checkDeflateOutput(benchmark.deflatePanama(throughput), benchmark.deflateOutputSegment);
+
+                System.out.println("=> Running deflatePanamaCompress2");
+                benchmark.checkDeflateOutput(benchmark.deflatePanamaCompress2(throughput), benchmark.deflateOutputSegment);
+
+                System.out.println("=> Running deflatePanamaCompress2Heap");
+                benchmark.checkDeflateOutput(benchmark.deflatePanamaCompress2Heap(throughput), MemorySegment.ofArray(benchmark.deflateOutput));
+
+                System.out.println("=> Running inflateJava");
+                benchmark.checkInflateOutput(benchmark.inflateJava(throughput), MemorySegment.ofArray(benchmark.inflateOutput));
+
+                System.out.println("=> Running inflateJavaDirect");
+                benchmark.checkInflateOutput(benchmark.inflateJavaDirect(throughput), benchmark.inflateOutputSegment);
+
+                System.out.println("=> Running inflateJni");
+                benchmark.checkInflateOutput(benchmark.inflateJni(throughput), benchmark.inflateOutputSegment);
+
+                System.out.println("=> Running inflateJna");
+                benchmark.checkInflateOutput(benchmark.inflateJna(throughput), benchmark.inflateOutputSegment);
+
+                System.out.println("=> Running inflateJnr");
+                benchmark.checkInflateOutput(benchmark.inflateJnr(throughput), benchmark.inflateOutputSegment);
+
+                System.out.println("=> Running inflatePanama");
+                benchmark.checkInflateOutput(benchmark.inflatePanama(throughput), benchmark.inflateOutputSegment);
+
+                System.out.println("=> Running inflatePanamaUncompress");
+                benchmark.checkInflateOutput(benchmark.inflatePanamaUncompress(throughput), benchmark.inflateOutputSegment);
+
+                System.out.println("=> Running inflatePanamaUncompressHeap");
+                benchmark.checkInflateOutput(benchmark.inflatePanamaUncompressHeap(throughput), MemorySegment.ofArray(benchmark.inflateOutput));
+            } finally {
+                benchmark.cleanup();
+            }
+        }
+    }
+}
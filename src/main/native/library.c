@@ -1,11 +1,39 @@
+#ifndef _GNU_SOURCE
+#define _GNU_SOURCE
+#endif
+
+#include <errno.h>
+#include <limits.h>
+#include <math.h>
 #include <string.h>
 #include <stdio.h>
 #include <stdlib.h>
+#include <uchar.h>
+#include <wchar.h>
+
+#include <dlfcn.h>
+#include <fcntl.h>
+#include <time.h>
+#include <unistd.h>
 
+#include <sys/resource.h>
+#include <sys/stat.h>
 #include <sys/sysinfo.h>
 
+#include <zlib.h>
+
 #include "library.h"
 
+// The buffers and strings returned to the benchmarks are cached, so running out of memory can't be recovered from
+static void *checked_malloc(size_t size) {
+    void *res = malloc(size);
+    if (res == NULL) {
+        fprintf(stderr, "Failed to allocate %zu bytes", size);
+        exit(1);
+    }
+    return res;
+}
+
 // ========= noop =========
 
 void ffi_benchmark_noop() {
@@ -22,37 +50,292 @@ void ffi_benchmark_accept_string(const char *str) {
     // do nothing
 }
 
-static char *get_string_table[4096] = {0};
+// Must be kept in sync with StringConvertBenchmark.Content
+enum {
+    CONTENT_ASCII,
+    CONTENT_LATIN1,
+    CONTENT_CJK,
+    CONTENT_SUPPLEMENTARY,
+    CONTENT_MIXED,
+    CONTENT_COUNT
+};
+
+static jint get_string_code_point(jint content, jint index) {
+    switch (content) {
+        case CONTENT_ASCII:
+            return 'A' + index % 26;
+        case CONTENT_LATIN1:
+            return 0xC0 + index % 64;
+        case CONTENT_CJK:
+            return 0x4E00 + index % 0x5200;
+        case CONTENT_SUPPLEMENTARY:
+            return 0x1F600 + index % 0x50;
+        default:
+            switch (index % 8) {
+                case 5:
+                    return get_string_code_point(CONTENT_LATIN1, index);
+                case 6:
+                    return get_string_code_point(CONTENT_CJK, index);
+                case 7:
+                    return get_string_code_point(CONTENT_SUPPLEMENTARY, index);
+                default:
+                    return get_string_code_point(CONTENT_ASCII, index);
+            }
+    }
+}
+
+// Writes the UTF-8 encoding of the code point to out (if it is not NULL) and returns the number of bytes
+static int encode_utf8(char *out, jint cp) {
+    if (cp < 0x80) {
+        if (out != NULL) {
+            out[0] = (char) cp;
+        }
+        return 1;
+    } else if (cp < 0x800) {
+        if (out != NULL) {
+            out[0] = (char) (0xC0 | (cp >> 6));
+            out[1] = (char) (0x80 | (cp & 0x3F));
+        }
+        return 2;
+    } else if (cp < 0x10000) {
+        if (out != NULL) {
+            out[0] = (char) (0xE0 | (cp >> 12));
+            out[1] = (char) (0x80 | ((cp >> 6) & 0x3F));
+            out[2] = (char) (0x80 | (cp & 0x3F));
+        }
+        return 3;
+    } else {
+        if (out != NULL) {
+            out[0] = (char) (0xF0 | (cp >> 18));
+            out[1] = (char) (0x80 | ((cp >> 12) & 0x3F));
+            out[2] = (char) (0x80 | ((cp >> 6) & 0x3F));
+            out[3] = (char) (0x80 | (cp & 0x3F));
+        }
+        return 4;
+    }
+}
+
+/*
+ * Generated strings are cached by (content, length), so any length can be requested.
+ * The cache is not thread safe, strings must be warmed up on one thread before they are shared.
+ */
+struct string_cache_entry {
+    jint content;
+    jint length;
+    void *str;
+    struct string_cache_entry *next;
+};
+
+static void *string_cache_get(struct string_cache_entry *cache, jint content, jint length) {
+    for (struct string_cache_entry *entry = cache; entry != NULL; entry = entry->next) {
+        if (entry->content == content && entry->length == length) {
+            return entry->str;
+        }
+    }
+    return NULL;
+}
+
+static void string_cache_put(struct string_cache_entry **cache, jint content, jint length, void *str) {
+    struct string_cache_entry *entry = checked_malloc(sizeof(struct string_cache_entry));
+    entry->content = content;
+    entry->length = length;
+    entry->str = str;
+    entry->next = *cache;
+    *cache = entry;
+}
+
+static struct string_cache_entry *get_string_cache = NULL;
 
-const char *ffi_benchmark_get_string(jint length) {
+// length is the number of code points
+const char *ffi_benchmark_get_string(jint length, jint content) {
     if (length == 0) {
         return "";
     }
 
-    char *res = get_string_table[length];
+    char *res = string_cache_get(get_string_cache, content, length);
     if (res == NULL) {
-        res = malloc(length + 1);
-        for (int i = 0; i < length; ++i) {
-            res[i] = (char) ((i % 26) + 'A');
+        size_t size = 0;
+        for (jint i = 0; i < length; ++i) {
+            size += encode_utf8(NULL, get_string_code_point(content, i));
         }
-        res[length] = '\0';
-        get_string_table[length] = res;
+
+        res = checked_malloc(size + 1);
+
+        char *p = res;
+        for (jint i = 0; i < length; ++i) {
+            p += encode_utf8(p, get_string_code_point(content, i));
+        }
+        *p = '\0';
+        string_cache_put(&get_string_cache, content, length, res);
     }
 
     return res;
 }
 
-jstring Java_benchmark_StringConvertBenchmark_getString(JNIEnv *env, jclass cls, jint length) {
-    const char *str = ffi_benchmark_get_string(length);
+void JNICALL Java_benchmark_StringConvertBenchmark_acceptString(JNIEnv *env, jclass cls, jstring str) {
+    const char *chars = (*env)->GetStringUTFChars(env, str, NULL);
+    ffi_benchmark_accept_string(chars);
+    (*env)->ReleaseStringUTFChars(env, str, chars);
+}
+
+jstring JNICALL Java_benchmark_StringConvertBenchmark_getString(JNIEnv *env, jclass cls, jint length, jint content) {
+    const char *str = ffi_benchmark_get_string(length, content);
     return (*env)->NewStringUTF(env, str);
 }
 
+jbyteArray JNICALL Java_benchmark_StringConvertBenchmark_getStringBytes(JNIEnv *env, jclass cls, jint length, jint content) {
+    const char *str = ffi_benchmark_get_string(length, content);
+    jsize size = (jsize) strlen(str);
+    jbyteArray res = (*env)->NewByteArray(env, size);
+    if (res != NULL) {
+        (*env)->SetByteArrayRegion(env, res, 0, size, (const jbyte *) str);
+    }
+    return res;
+}
+
+// ========= wide string =========
+
+void ffi_benchmark_accept_u16string(const char16_t *str) {
+    // do nothing
+}
+
+void ffi_benchmark_accept_wstring(const wchar_t *str) {
+    // do nothing
+}
+
+static struct string_cache_entry *get_u16string_cache = NULL;
+static struct string_cache_entry *get_wstring_cache = NULL;
+
+// length is the number of code points
+const char16_t *ffi_benchmark_get_u16string(jint length, jint content) {
+    if (length == 0) {
+        return u"";
+    }
+
+    char16_t *res = string_cache_get(get_u16string_cache, content, length);
+    if (res == NULL) {
+        size_t size = 0;
+        for (jint i = 0; i < length; ++i) {
+            size += get_string_code_point(content, i) >= 0x10000 ? 2 : 1;
+        }
+
+        res = checked_malloc((size + 1) * sizeof(char16_t));
+
+        char16_t *p = res;
+        for (jint i = 0; i < length; ++i) {
+            jint cp = get_string_code_point(content, i);
+            if (cp >= 0x10000) {
+                *p++ = (char16_t) (0xD800 + ((cp - 0x10000) >> 10));
+                *p++ = (char16_t) (0xDC00 + ((cp - 0x10000) & 0x3FF));
+            } else {
+                *p++ = (char16_t) cp;
+            }
+        }
+        *p = 0;
+        string_cache_put(&get_u16string_cache, content, length, res);
+    }
+
+    return res;
+}
+
+// length is the number of code points
+const wchar_t *ffi_benchmark_get_wstring(jint length, jint content) {
+    if (length == 0) {
+        return L"";
+    }
+
+    wchar_t *res = string_cache_get(get_wstring_cache, content, length);
+    if (res == NULL) {
+        res = checked_malloc((length + 1) * sizeof(wchar_t));
+        for (jint i = 0; i < length; ++i) {
+            res[i] = (wchar_t) get_string_code_point(content, i);
+        }
+        res[length] = 0;
+        string_cache_put(&get_wstring_cache, content, length, res);
+    }
+
+    return res;
+}
+
+static jsize u16strlen(const char16_t *str) {
+    const char16_t *p = str;
+    while (*p != 0) {
+        p++;
+    }
+    return (jsize) (p - str);
+}
+
+void JNICALL Java_benchmark_WideStringBenchmark_acceptU16String(JNIEnv *env, jclass cls, jstring str) {
+    // HotSpot returns a NUL-terminated copy
+    const jchar *chars = (*env)->GetStringChars(env, str, NULL);
+    ffi_benchmark_accept_u16string((const char16_t *) chars);
+    (*env)->ReleaseStringChars(env, str, chars);
+}
+
+jstring JNICALL Java_benchmark_WideStringBenchmark_getU16String(JNIEnv *env, jclass cls, jint length, jint content) {
+    const char16_t *str = ffi_benchmark_get_u16string(length, content);
+    return (*env)->NewString(env, (const jchar *) str, u16strlen(str));
+}
+
+// JNI only speaks UTF-16, so wchar_t strings need to be converted by hand
+
+void JNICALL Java_benchmark_WideStringBenchmark_acceptWString(JNIEnv *env, jclass cls, jstring str) {
+    jsize length = (*env)->GetStringLength(env, str);
+    const jchar *chars = (*env)->GetStringChars(env, str, NULL);
+
+    wchar_t *res = checked_malloc((length + 1) * sizeof(wchar_t));
+    wchar_t *p = res;
+    for (jsize i = 0; i < length; ++i) {
+        jchar c = chars[i];
+        if (c >= 0xD800 && c < 0xDC00 && i + 1 < length) {
+            *p++ = (wchar_t) (0x10000 + ((c - 0xD800) << 10) + (chars[++i] - 0xDC00));
+        } else {
+            *p++ = (wchar_t) c;
+        }
+    }
+    *p = 0;
+
+    (*env)->ReleaseStringChars(env, str, chars);
+
+    ffi_benchmark_accept_wstring(res);
+    free(res);
+}
+
+jstring JNICALL Java_benchmark_WideStringBenchmark_getWString(JNIEnv *env, jclass cls, jint length, jint content) {
+    const wchar_t *str = ffi_benchmark_get_wstring(length, content);
+
+    size_t size = 0;
+    for (const wchar_t *p = str; *p != 0; ++p) {
+        size += *p >= 0x10000 ? 2 : 1;
+    }
+
+    jchar *chars = checked_malloc((size + 1) * sizeof(jchar));
+    jchar *p = chars;
+    for (const wchar_t *q = str; *q != 0; ++q) {
+        wchar_t cp = *q;
+        if (cp >= 0x10000) {
+            *p++ = (jchar) (0xD800 + ((cp - 0x10000) >> 10));
+            *p++ = (jchar) (0xDC00 + ((cp - 0x10000) & 0x3FF));
+        } else {
+            *p++ = (jchar) cp;
+        }
+    }
+
+    jstring res = (*env)->NewString(env, chars, (jsize) size);
+    free(chars);
+    return res;
+}
+
 // ========= strlen =========
 
 long ffi_benchmark_strlen(const char *str) {
     return strlen(str);
 }
 
+jlong JNICALL Java_benchmark_StrlenBenchmark_strlen(JNIEnv *env, jclass cls, jlong address) {
+    return (jlong) strlen((const char *) address);
+}
+
 // ========= sysinfo =========
 
 void ffi_benchmark_sysinfo(struct sysinfo *info) {
@@ -66,12 +349,417 @@ jint Java_benchmark_SysinfoBenchmark_getMemUnit(JNIEnv *env, jclass cls) {
 }
 
 
+// ========= bulk copy =========
+
+void ffi_benchmark_fill_bytes(jbyte *buffer, jlong count) {
+    for (jlong i = 0; i < count; ++i) {
+        buffer[i] = (jbyte) i;
+    }
+}
+
+void ffi_benchmark_fill_ints(jint *buffer, jlong count) {
+    for (jlong i = 0; i < count; ++i) {
+        buffer[i] = (jint) i;
+    }
+}
+
+void ffi_benchmark_fill_doubles(jdouble *buffer, jlong count) {
+    for (jlong i = 0; i < count; ++i) {
+        buffer[i] = (jdouble) i;
+    }
+}
+
+void JNICALL Java_benchmark_BulkCopyBenchmark_copyBytes(JNIEnv *env, jclass cls, jlong address, jbyteArray array, jint length) {
+    (*env)->SetByteArrayRegion(env, array, 0, length, (const jbyte *) address);
+}
+
+void JNICALL Java_benchmark_BulkCopyBenchmark_copyInts(JNIEnv *env, jclass cls, jlong address, jintArray array, jint length) {
+    (*env)->SetIntArrayRegion(env, array, 0, length, (const jint *) address);
+}
+
+void JNICALL Java_benchmark_BulkCopyBenchmark_copyDoubles(JNIEnv *env, jclass cls, jlong address, jdoubleArray array, jint length) {
+    (*env)->SetDoubleArrayRegion(env, array, 0, length, (const jdouble *) address);
+}
+
+// ========= direct buffer =========
+
+jlong ffi_benchmark_accept_buffer(const jbyte *buffer, jlong size) {
+    return size == 0 ? 0 : buffer[0] + buffer[size - 1];
+}
+
+static jbyte *get_buffer_pool = NULL;
+static jlong get_buffer_pool_size = 0;
+
+void *ffi_benchmark_get_buffer(jlong size) {
+    if (size > get_buffer_pool_size) {
+        free(get_buffer_pool);
+        get_buffer_pool = checked_malloc((size_t) size);
+        for (jlong i = 0; i < size; ++i) {
+            get_buffer_pool[i] = (jbyte) i;
+        }
+        get_buffer_pool_size = size;
+    }
+
+    return get_buffer_pool;
+}
+
+jlong JNICALL Java_benchmark_DirectBufferBenchmark_acceptBuffer(JNIEnv *env, jclass cls, jobject buffer) {
+    const jbyte *address = (*env)->GetDirectBufferAddress(env, buffer);
+    jlong capacity = (*env)->GetDirectBufferCapacity(env, buffer);
+    return ffi_benchmark_accept_buffer(address, capacity);
+}
+
+jobject JNICALL Java_benchmark_DirectBufferBenchmark_getBuffer(JNIEnv *env, jclass cls, jlong size) {
+    return (*env)->NewDirectByteBuffer(env, ffi_benchmark_get_buffer(size), size);
+}
+
+// ========= libc =========
+
+jint JNICALL Java_benchmark_LibcBenchmark_getpid(JNIEnv *env, jclass cls) {
+    return (jint) getpid();
+}
+
+jlong JNICALL Java_benchmark_LibcBenchmark_clockGettime(JNIEnv *env, jclass cls, jint clockId) {
+    struct timespec tp;
+    if (clock_gettime(clockId, &tp) != 0) {
+        return -1;
+    }
+    return (jlong) tp.tv_sec * 1000000000L + tp.tv_nsec;
+}
+
+jlong JNICALL Java_benchmark_LibcBenchmark_getrusageMaxRss(JNIEnv *env, jclass cls) {
+    struct rusage usage;
+    if (getrusage(RUSAGE_SELF, &usage) != 0) {
+        return -1;
+    }
+    return (jlong) usage.ru_maxrss;
+}
+
+jlong JNICALL Java_benchmark_LibcBenchmark_stat(JNIEnv *env, jclass cls, jstring path) {
+    struct stat buf;
+    const char *chars = (*env)->GetStringUTFChars(env, path, NULL);
+    int res = stat(chars, &buf);
+    (*env)->ReleaseStringUTFChars(env, path, chars);
+    return res == 0 ? (jlong) buf.st_size : -1;
+}
+
+jlong JNICALL Java_benchmark_LibcBenchmark_read(JNIEnv *env, jclass cls, jint fd, jlong address, jlong count) {
+    return (jlong) read(fd, (void *) address, (size_t) count);
+}
+
+// ========= zlib =========
+
+jlong JNICALL Java_benchmark_ZlibBenchmark_deflateInit(JNIEnv *env, jclass cls, jint level) {
+    z_stream *stream = calloc(1, sizeof(z_stream));
+    if (stream != NULL && deflateInit(stream, level) != Z_OK) {
+        free(stream);
+        stream = NULL;
+    }
+    return (jlong) stream;
+}
+
+jlong JNICALL Java_benchmark_ZlibBenchmark_deflate(JNIEnv *env, jclass cls, jlong stream, jlong src, jlong srcLen, jlong dst, jlong dstLen) {
+    z_stream *strm = (z_stream *) stream;
+    deflateReset(strm);
+    strm->next_in = (Bytef *) src;
+    strm->avail_in = (uInt) srcLen;
+    strm->next_out = (Bytef *) dst;
+    strm->avail_out = (uInt) dstLen;
+    if (deflate(strm, Z_FINISH) != Z_STREAM_END) {
+        return -1;
+    }
+    return (jlong) strm->total_out;
+}
+
+void JNICALL Java_benchmark_ZlibBenchmark_deflateEnd(JNIEnv *env, jclass cls, jlong stream) {
+    deflateEnd((z_stream *) stream);
+    free((void *) stream);
+}
+
+jlong JNICALL Java_benchmark_ZlibBenchmark_inflateInit(JNIEnv *env, jclass cls) {
+    z_stream *stream = calloc(1, sizeof(z_stream));
+    if (stream != NULL && inflateInit(stream) != Z_OK) {
+        free(stream);
+        stream = NULL;
+    }
+    return (jlong) stream;
+}
+
+jlong JNICALL Java_benchmark_ZlibBenchmark_inflate(JNIEnv *env, jclass cls, jlong stream, jlong src, jlong srcLen, jlong dst, jlong dstLen) {
+    z_stream *strm = (z_stream *) stream;
+    inflateReset(strm);
+    strm->next_in = (Bytef *) src;
+    strm->avail_in = (uInt) srcLen;
+    strm->next_out = (Bytef *) dst;
+    strm->avail_out = (uInt) dstLen;
+    if (inflate(strm, Z_FINISH) != Z_STREAM_END) {
+        return -1;
+    }
+    return (jlong) strm->total_out;
+}
+
+void JNICALL Java_benchmark_ZlibBenchmark_inflateEnd(JNIEnv *env, jclass cls, jlong stream) {
+    inflateEnd((z_stream *) stream);
+    free((void *) stream);
+}
+
+// ========= fused binding =========
+
+jint ffi_benchmark_parse_int(const char *str) {
+    char *end;
+    errno = 0;
+    long value = strtol(str, &end, 10);
+    if (end == str || *end != '\0') {
+        errno = EINVAL;
+        return -1;
+    }
+    if (errno == 0 && (value < INT_MIN || value > INT_MAX)) {
+        errno = ERANGE;
+    }
+    return errno == 0 ? (jint) value : -1;
+}
+
+// ========= arithmetic =========
+
+jint ffi_benchmark_add_ints(jint a, jint b) {
+    return a + b;
+}
+
+jlong ffi_benchmark_add_longs(jlong a, jlong b) {
+    return a + b;
+}
+
+jdouble ffi_benchmark_add_doubles(jdouble a, jdouble b) {
+    return a + b;
+}
+
+jdouble ffi_benchmark_add_mixed(jbyte a, jshort b, jint c, jlong d, jfloat e, jdouble f) {
+    return a + b + c + d + e + f;
+}
+
+// ========= gc interaction =========
+
+static jlong monotonic_nanos(void) {
+    struct timespec ts;
+    clock_gettime(CLOCK_MONOTONIC, &ts);
+    return (jlong) ts.tv_sec * 1000000000L + ts.tv_nsec;
+}
+
+void ffi_benchmark_spin(jlong micros) {
+    jlong end = monotonic_nanos() + micros * 1000;
+    while (monotonic_nanos() < end) {
+        // busy wait
+    }
+}
+
+jbyte ffi_benchmark_spin_array(const jbyte *array, jlong micros) {
+    ffi_benchmark_spin(micros);
+    return array[0];
+}
+
+void JNICALL Java_benchmark_GcInteractionBenchmark_spin(JNIEnv *env, jclass cls, jlong micros) {
+    ffi_benchmark_spin(micros);
+}
+
+jbyte JNICALL Java_benchmark_GcInteractionBenchmark_spinArrayCritical(JNIEnv *env, jclass cls, jbyteArray array, jlong micros) {
+    jbyte *elements = (*env)->GetPrimitiveArrayCritical(env, array, NULL);
+    jbyte res = ffi_benchmark_spin_array(elements, micros);
+    (*env)->ReleasePrimitiveArrayCritical(env, array, elements, JNI_ABORT);
+    return res;
+}
+
+// ========= parallel sort =========
+
+void ffi_benchmark_qsort_longs(jlong *base, jlong numElements, jint (*comparator)(const void *, const void *)) {
+    qsort(base, numElements, sizeof(jlong), comparator);
+}
+
+static struct {
+    JavaVM *vm;
+    jclass  cls;
+    jmethodID compareInts;
+    jmethodID compareLongs;
+} parallelSortStub = {
+    .vm = NULL,
+    .cls = NULL,
+    .compareInts = NULL,
+    .compareLongs = NULL
+};
+
+void JNICALL Java_benchmark_ParallelSortBenchmark_initJni(JNIEnv *env, jclass cls) {
+    JavaVM *vm = NULL;
+    if ((*env)->GetJavaVM(env, &vm) != 0) {
+        fprintf(stderr, "Failed to get vm");
+        exit(1);
+    }
+
+    jmethodID compareInts = (*env)->GetStaticMethodID(env, cls, "compareInts", "(JJ)I");
+    jmethodID compareLongs = (*env)->GetStaticMethodID(env, cls, "compareLongs", "(JJ)I");
+    if (compareInts == NULL || compareLongs == NULL) {
+        fprintf(stderr, "Failed to find method");
+        exit(1);
+    }
+
+    parallelSortStub.cls = (*env)->NewGlobalRef(env, cls);
+    parallelSortStub.compareInts = compareInts;
+    parallelSortStub.compareLongs = compareLongs;
+    parallelSortStub.vm = vm;
+}
+
+// Like QSortBenchmark, attach the current thread for every comparison
+static int parallelSortCompare(jmethodID methodId, const void *a, const void *b) {
+    JNIEnv *env = NULL;
+    (*parallelSortStub.vm)->AttachCurrentThread(parallelSortStub.vm, (void **) &env, NULL);
+
+    return (int) (*env)->CallStaticIntMethod(env, parallelSortStub.cls, methodId, (jlong) a, (jlong) b);
+}
+
+static int parallelSortCompareInts(const void *a, const void *b) {
+    return parallelSortCompare(parallelSortStub.compareInts, a, b);
+}
+
+static int parallelSortCompareLongs(const void *a, const void *b) {
+    return parallelSortCompare(parallelSortStub.compareLongs, a, b);
+}
+
+void JNICALL Java_benchmark_ParallelSortBenchmark_qsortInts(JNIEnv *env, jclass cls, jlong address, jlong elements) {
+    qsort((void *) address, elements, sizeof(jint), parallelSortCompareInts);
+}
+
+void JNICALL Java_benchmark_ParallelSortBenchmark_qsortLongs(JNIEnv *env, jclass cls, jlong address, jlong elements) {
+    qsort((void *) address, elements, sizeof(jlong), parallelSortCompareLongs);
+}
+
+// ========= symbol lookup =========
+
+jlong JNICALL Java_benchmark_SymbolLookupBenchmark_dlopen(JNIEnv *env, jclass cls, jstring path) {
+    const char *str = (*env)->GetStringUTFChars(env, path, NULL);
+    void *handle = dlopen(str, RTLD_LAZY | RTLD_LOCAL);
+    (*env)->ReleaseStringUTFChars(env, path, str);
+    if (handle == NULL) {
+        // Read dlerror before returning to the JVM, whose own dlsym calls clear it
+        jclass exceptionClass = (*env)->FindClass(env, "java/lang/IllegalStateException");
+        if (exceptionClass != NULL) {
+            (*env)->ThrowNew(env, exceptionClass, dlerror());
+        }
+    }
+    return (jlong) handle;
+}
+
+jlong JNICALL Java_benchmark_SymbolLookupBenchmark_dlsym(JNIEnv *env, jclass cls, jlong handle, jstring name) {
+    const char *str = (*env)->GetStringUTFChars(env, name, NULL);
+    void *address = dlsym((void *) handle, str);
+    (*env)->ReleaseStringUTFChars(env, name, str);
+    return (jlong) address;
+}
+
+jint JNICALL Java_benchmark_SymbolLookupBenchmark_dlclose(JNIEnv *env, jclass cls, jlong handle) {
+    return dlclose((void *) handle);
+}
+
+// ========= function pointers =========
+
+#define TABLE_FUNCTION(p, q) \
+    static jint ffi_benchmark_table_function_##p##q(jint x) { return x + 0##p##q; }
+
+#define TABLE_FUNCTIONS(p) \
+    TABLE_FUNCTION(p, 0) TABLE_FUNCTION(p, 1) TABLE_FUNCTION(p, 2) TABLE_FUNCTION(p, 3) \
+    TABLE_FUNCTION(p, 4) TABLE_FUNCTION(p, 5) TABLE_FUNCTION(p, 6) TABLE_FUNCTION(p, 7)
+
+#define TABLE_ENTRIES(p) \
+    ffi_benchmark_table_function_##p##0, ffi_benchmark_table_function_##p##1, \
+    ffi_benchmark_table_function_##p##2, ffi_benchmark_table_function_##p##3, \
+    ffi_benchmark_table_function_##p##4, ffi_benchmark_table_function_##p##5, \
+    ffi_benchmark_table_function_##p##6, ffi_benchmark_table_function_##p##7
+
+// 64 functions, the i-th returns x + i (the indices are octal)
+TABLE_FUNCTIONS(0) TABLE_FUNCTIONS(1) TABLE_FUNCTIONS(2) TABLE_FUNCTIONS(3)
+TABLE_FUNCTIONS(4) TABLE_FUNCTIONS(5) TABLE_FUNCTIONS(6) TABLE_FUNCTIONS(7)
+
+static jint (*const functionTable[])(jint) = {
+    TABLE_ENTRIES(0), TABLE_ENTRIES(1), TABLE_ENTRIES(2), TABLE_ENTRIES(3),
+    TABLE_ENTRIES(4), TABLE_ENTRIES(5), TABLE_ENTRIES(6), TABLE_ENTRIES(7)
+};
+
+jint (*const *ffi_benchmark_function_table())(jint) {
+    return functionTable;
+}
+
+jint JNICALL Java_benchmark_FunctionPointerBenchmark_callFunction(JNIEnv *env, jclass cls, jlong function, jint x) {
+    return ((jint (*)(jint)) function)(x);
+}
+
+// ========= math =========
+
+jdouble JNICALL Java_benchmark_MathBenchmark_sin(JNIEnv *env, jclass cls, jdouble x) {
+    return sin(x);
+}
+
+jdouble JNICALL Java_benchmark_MathBenchmark_exp(JNIEnv *env, jclass cls, jdouble x) {
+    return exp(x);
+}
+
+jdouble JNICALL Java_benchmark_MathBenchmark_log(JNIEnv *env, jclass cls, jdouble x) {
+    return log(x);
+}
+
+jdouble JNICALL Java_benchmark_MathBenchmark_pow(JNIEnv *env, jclass cls, jdouble x, jdouble y) {
+    return pow(x, y);
+}
+
+jdouble JNICALL Java_benchmark_MathBenchmark_cbrt(JNIEnv *env, jclass cls, jdouble x) {
+    return cbrt(x);
+}
+
+jdouble JNICALL Java_benchmark_MathBenchmark_erf(JNIEnv *env, jclass cls, jdouble x) {
+    return erf(x);
+}
+
+void ffi_benchmark_vsin(const jdouble *src, jdouble *dst, jlong n) {
+    for (jlong i = 0; i < n; i++) {
+        dst[i] = sin(src[i]);
+    }
+}
+
+void JNICALL Java_benchmark_MathBenchmark_vsin(JNIEnv *env, jclass cls, jdoubleArray src, jdoubleArray dst, jint length) {
+    jdouble *srcElements = (*env)->GetPrimitiveArrayCritical(env, src, NULL);
+    jdouble *dstElements = (*env)->GetPrimitiveArrayCritical(env, dst, NULL);
+    ffi_benchmark_vsin(srcElements, dstElements, length);
+    (*env)->ReleasePrimitiveArrayCritical(env, dst, dstElements, 0);
+    (*env)->ReleasePrimitiveArrayCritical(env, src, srcElements, JNI_ABORT);
+}
+
+// ========= struct array =========
+
+void ffi_benchmark_fill_records(struct ffi_benchmark_record *records, jlong count) {
+    for (jlong i = 0; i < count; i++) {
+        records[i].timestamp = 1700000000000L + i;
+        records[i].id = (jint) i;
+        records[i].flags = (jint) (i & 0xff);
+        records[i].value = i % 1000;
+        records[i].weight = 1.0;
+    }
+}
+
+jlong JNICALL Java_benchmark_StructArrayBenchmark_sumValues(JNIEnv *env, jclass cls, jlong address, jlong count) {
+    const struct ffi_benchmark_record *records = (const struct ffi_benchmark_record *) address;
+    jlong sum = 0;
+    for (jlong i = 0; i < count; i++) {
+        sum += records[i].value;
+    }
+    return sum;
+}
+
 // ========= qsort =========
 
 void ffi_benchmark_qsort(jint *base, jlong numElements, jint (*comparator)(const void *, const void *)) {
     qsort(base, numElements, sizeof(jint), comparator);
 }
 
+void ffi_benchmark_qsort_r(jint *base, jlong numElements, jint (*comparator)(const void *, const void *, void *), void *context) {
+    qsort_r(base, numElements, sizeof(jint), comparator, context);
+}
+
 struct {
     JavaVM *vm;
     jclass  cls;
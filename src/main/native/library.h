@@ -28,20 +28,86 @@ JNIEXPORT void JavaCritical_benchmark_NoopBenchmark_noop_critical();
 
 extern void ffi_benchmark_accept_string(const char *);
 
-extern const char *ffi_benchmark_get_string(jint);
+extern const char *ffi_benchmark_get_string(jint, jint);
+
+/*
+ * Class:     benchmark_StringConvertBenchmark
+ * Method:    acceptString
+ * Signature: (Ljava/lang/String;)V
+ */
+JNIEXPORT void JNICALL Java_benchmark_StringConvertBenchmark_acceptString
+        (JNIEnv *, jclass, jstring);
 
 /*
  * Class:     benchmark_StringConvertBenchmark
  * Method:    getString
- * Signature: (I)Ljava/lang/String;
+ * Signature: (II)Ljava/lang/String;
  */
 JNIEXPORT jstring JNICALL Java_benchmark_StringConvertBenchmark_getString
-        (JNIEnv *, jclass, jint);
+        (JNIEnv *, jclass, jint, jint);
+
+/*
+ * Class:     benchmark_StringConvertBenchmark
+ * Method:    getStringBytes
+ * Signature: (II)[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_benchmark_StringConvertBenchmark_getStringBytes
+        (JNIEnv *, jclass, jint, jint);
+
+// ========= wide string =========
+
+extern void ffi_benchmark_accept_u16string(const char16_t *);
+
+extern void ffi_benchmark_accept_wstring(const wchar_t *);
+
+extern const char16_t *ffi_benchmark_get_u16string(jint, jint);
+
+extern const wchar_t *ffi_benchmark_get_wstring(jint, jint);
+
+/*
+ * Class:     benchmark_WideStringBenchmark
+ * Method:    acceptU16String
+ * Signature: (Ljava/lang/String;)V
+ */
+JNIEXPORT void JNICALL Java_benchmark_WideStringBenchmark_acceptU16String
+        (JNIEnv *, jclass, jstring);
+
+/*
+ * Class:     benchmark_WideStringBenchmark
+ * Method:    getU16String
+ * Signature: (II)Ljava/lang/String;
+ */
+JNIEXPORT jstring JNICALL Java_benchmark_WideStringBenchmark_getU16String
+        (JNIEnv *, jclass, jint, jint);
+
+/*
+ * Class:     benchmark_WideStringBenchmark
+ * Method:    acceptWString
+ * Signature: (Ljava/lang/String;)V
+ */
+JNIEXPORT void JNICALL Java_benchmark_WideStringBenchmark_acceptWString
+        (JNIEnv *, jclass, jstring);
+
+/*
+ * Class:     benchmark_WideStringBenchmark
+ * Method:    getWString
+ * Signature: (II)Ljava/lang/String;
+ */
+JNIEXPORT jstring JNICALL Java_benchmark_WideStringBenchmark_getWString
+        (JNIEnv *, jclass, jint, jint);
 
 // ========= strlen =========
 
 extern long ffi_benchmark_strlen(const char *);
 
+/*
+ * Class:     benchmark_StrlenBenchmark
+ * Method:    strlen
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_benchmark_StrlenBenchmark_strlen
+        (JNIEnv *, jclass, jlong);
+
 // ========= sysinfo =========
 
 extern void ffi_benchmark_sysinfo(struct sysinfo *info);
@@ -54,9 +120,342 @@ extern void ffi_benchmark_sysinfo(struct sysinfo *info);
 JNIEXPORT jint JNICALL Java_benchmark_SysinfoBenchmark_getMemUnit
         (JNIEnv *, jclass);
 
+// ========= bulk copy =========
+
+extern void ffi_benchmark_fill_bytes(jbyte *, jlong);
+
+extern void ffi_benchmark_fill_ints(jint *, jlong);
+
+extern void ffi_benchmark_fill_doubles(jdouble *, jlong);
+
+/*
+ * Class:     benchmark_BulkCopyBenchmark
+ * Method:    copyBytes
+ * Signature: (J[BI)V
+ */
+JNIEXPORT void JNICALL Java_benchmark_BulkCopyBenchmark_copyBytes
+        (JNIEnv *, jclass, jlong, jbyteArray, jint);
+
+/*
+ * Class:     benchmark_BulkCopyBenchmark
+ * Method:    copyInts
+ * Signature: (J[II)V
+ */
+JNIEXPORT void JNICALL Java_benchmark_BulkCopyBenchmark_copyInts
+        (JNIEnv *, jclass, jlong, jintArray, jint);
+
+/*
+ * Class:     benchmark_BulkCopyBenchmark
+ * Method:    copyDoubles
+ * Signature: (J[DI)V
+ */
+JNIEXPORT void JNICALL Java_benchmark_BulkCopyBenchmark_copyDoubles
+        (JNIEnv *, jclass, jlong, jdoubleArray, jint);
+
+// ========= direct buffer =========
+
+extern jlong ffi_benchmark_accept_buffer(const jbyte *, jlong);
+
+extern void *ffi_benchmark_get_buffer(jlong);
+
+/*
+ * Class:     benchmark_DirectBufferBenchmark
+ * Method:    acceptBuffer
+ * Signature: (Ljava/nio/ByteBuffer;)J
+ */
+JNIEXPORT jlong JNICALL Java_benchmark_DirectBufferBenchmark_acceptBuffer
+        (JNIEnv *, jclass, jobject);
+
+/*
+ * Class:     benchmark_DirectBufferBenchmark
+ * Method:    getBuffer
+ * Signature: (J)Ljava/nio/ByteBuffer;
+ */
+JNIEXPORT jobject JNICALL Java_benchmark_DirectBufferBenchmark_getBuffer
+        (JNIEnv *, jclass, jlong);
+
+// ========= libc =========
+
+/*
+ * Class:     benchmark_LibcBenchmark
+ * Method:    getpid
+ * Signature: ()I
+ */
+JNIEXPORT jint JNICALL Java_benchmark_LibcBenchmark_getpid
+        (JNIEnv *, jclass);
+
+/*
+ * Class:     benchmark_LibcBenchmark
+ * Method:    clockGettime
+ * Signature: (I)J
+ */
+JNIEXPORT jlong JNICALL Java_benchmark_LibcBenchmark_clockGettime
+        (JNIEnv *, jclass, jint);
+
+/*
+ * Class:     benchmark_LibcBenchmark
+ * Method:    getrusageMaxRss
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_benchmark_LibcBenchmark_getrusageMaxRss
+        (JNIEnv *, jclass);
+
+/*
+ * Class:     benchmark_LibcBenchmark
+ * Method:    stat
+ * Signature: (Ljava/lang/String;)J
+ */
+JNIEXPORT jlong JNICALL Java_benchmark_LibcBenchmark_stat
+        (JNIEnv *, jclass, jstring);
+
+/*
+ * Class:     benchmark_LibcBenchmark
+ * Method:    read
+ * Signature: (IJJ)J
+ */
+JNIEXPORT jlong JNICALL Java_benchmark_LibcBenchmark_read
+        (JNIEnv *, jclass, jint, jlong, jlong);
+
+// ========= zlib =========
+
+/*
+ * Class:     benchmark_ZlibBenchmark
+ * Method:    deflateInit
+ * Signature: (I)J
+ */
+JNIEXPORT jlong JNICALL Java_benchmark_ZlibBenchmark_deflateInit
+        (JNIEnv *, jclass, jint);
+
+/*
+ * Class:     benchmark_ZlibBenchmark
+ * Method:    deflate
+ * Signature: (JJJJJ)J
+ */
+JNIEXPORT jlong JNICALL Java_benchmark_ZlibBenchmark_deflate
+        (JNIEnv *, jclass, jlong, jlong, jlong, jlong, jlong);
+
+/*
+ * Class:     benchmark_ZlibBenchmark
+ * Method:    deflateEnd
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_benchmark_ZlibBenchmark_deflateEnd
+        (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     benchmark_ZlibBenchmark
+ * Method:    inflateInit
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_benchmark_ZlibBenchmark_inflateInit
+        (JNIEnv *, jclass);
+
+/*
+ * Class:     benchmark_ZlibBenchmark
+ * Method:    inflate
+ * Signature: (JJJJJ)J
+ */
+JNIEXPORT jlong JNICALL Java_benchmark_ZlibBenchmark_inflate
+        (JNIEnv *, jclass, jlong, jlong, jlong, jlong, jlong);
+
+/*
+ * Class:     benchmark_ZlibBenchmark
+ * Method:    inflateEnd
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_benchmark_ZlibBenchmark_inflateEnd
+        (JNIEnv *, jclass, jlong);
+
+// ========= fused binding =========
+
+extern jint ffi_benchmark_parse_int(const char *);
+
+// ========= arithmetic =========
+
+// The JNI stubs are generated from benchmark.Arithmetic
+
+extern jint ffi_benchmark_add_ints(jint, jint);
+
+extern jlong ffi_benchmark_add_longs(jlong, jlong);
+
+extern jdouble ffi_benchmark_add_doubles(jdouble, jdouble);
+
+extern jdouble ffi_benchmark_add_mixed(jbyte, jshort, jint, jlong, jfloat, jdouble);
+
+// ========= gc interaction =========
+
+extern void ffi_benchmark_spin(jlong);
+
+extern jbyte ffi_benchmark_spin_array(const jbyte *, jlong);
+
+/*
+ * Class:     benchmark_GcInteractionBenchmark
+ * Method:    spin
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_benchmark_GcInteractionBenchmark_spin
+        (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     benchmark_GcInteractionBenchmark
+ * Method:    spinArrayCritical
+ * Signature: ([BJ)B
+ */
+JNIEXPORT jbyte JNICALL Java_benchmark_GcInteractionBenchmark_spinArrayCritical
+        (JNIEnv *, jclass, jbyteArray, jlong);
+
+// ========= parallel sort =========
+
+extern void ffi_benchmark_qsort_longs(jlong *, jlong, jint (*)(const void *, const void *));
+
+/*
+ * Class:     benchmark_ParallelSortBenchmark
+ * Method:    initJni
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_benchmark_ParallelSortBenchmark_initJni
+        (JNIEnv *, jclass);
+
+/*
+ * Class:     benchmark_ParallelSortBenchmark
+ * Method:    qsortInts
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_benchmark_ParallelSortBenchmark_qsortInts
+        (JNIEnv *, jclass, jlong, jlong);
+
+/*
+ * Class:     benchmark_ParallelSortBenchmark
+ * Method:    qsortLongs
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_benchmark_ParallelSortBenchmark_qsortLongs
+        (JNIEnv *, jclass, jlong, jlong);
+
+// ========= symbol lookup =========
+
+/*
+ * Class:     benchmark_SymbolLookupBenchmark
+ * Method:    dlopen
+ * Signature: (Ljava/lang/String;)J
+ */
+JNIEXPORT jlong JNICALL Java_benchmark_SymbolLookupBenchmark_dlopen
+        (JNIEnv *, jclass, jstring);
+
+/*
+ * Class:     benchmark_SymbolLookupBenchmark
+ * Method:    dlsym
+ * Signature: (JLjava/lang/String;)J
+ */
+JNIEXPORT jlong JNICALL Java_benchmark_SymbolLookupBenchmark_dlsym
+        (JNIEnv *, jclass, jlong, jstring);
+
+/*
+ * Class:     benchmark_SymbolLookupBenchmark
+ * Method:    dlclose
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_benchmark_SymbolLookupBenchmark_dlclose
+        (JNIEnv *, jclass, jlong);
+
+// ========= function pointers =========
+
+extern jint (*const *ffi_benchmark_function_table())(jint);
+
+/*
+ * Class:     benchmark_FunctionPointerBenchmark
+ * Method:    callFunction
+ * Signature: (JI)I
+ */
+JNIEXPORT jint JNICALL Java_benchmark_FunctionPointerBenchmark_callFunction
+        (JNIEnv *, jclass, jlong, jint);
+
+// ========= math =========
+
+/*
+ * Class:     benchmark_MathBenchmark
+ * Method:    sin
+ * Signature: (D)D
+ */
+JNIEXPORT jdouble JNICALL Java_benchmark_MathBenchmark_sin
+        (JNIEnv *, jclass, jdouble);
+
+/*
+ * Class:     benchmark_MathBenchmark
+ * Method:    exp
+ * Signature: (D)D
+ */
+JNIEXPORT jdouble JNICALL Java_benchmark_MathBenchmark_exp
+        (JNIEnv *, jclass, jdouble);
+
+/*
+ * Class:     benchmark_MathBenchmark
+ * Method:    log
+ * Signature: (D)D
+ */
+JNIEXPORT jdouble JNICALL Java_benchmark_MathBenchmark_log
+        (JNIEnv *, jclass, jdouble);
+
+/*
+ * Class:     benchmark_MathBenchmark
+ * Method:    pow
+ * Signature: (DD)D
+ */
+JNIEXPORT jdouble JNICALL Java_benchmark_MathBenchmark_pow
+        (JNIEnv *, jclass, jdouble, jdouble);
+
+/*
+ * Class:     benchmark_MathBenchmark
+ * Method:    cbrt
+ * Signature: (D)D
+ */
+JNIEXPORT jdouble JNICALL Java_benchmark_MathBenchmark_cbrt
+        (JNIEnv *, jclass, jdouble);
+
+/*
+ * Class:     benchmark_MathBenchmark
+ * Method:    erf
+ * Signature: (D)D
+ */
+JNIEXPORT jdouble JNICALL Java_benchmark_MathBenchmark_erf
+        (JNIEnv *, jclass, jdouble);
+
+extern void ffi_benchmark_vsin(const jdouble *, jdouble *, jlong);
+
+/*
+ * Class:     benchmark_MathBenchmark
+ * Method:    vsin
+ * Signature: ([D[DI)V
+ */
+JNIEXPORT void JNICALL Java_benchmark_MathBenchmark_vsin
+        (JNIEnv *, jclass, jdoubleArray, jdoubleArray, jint);
+
+// ========= struct array =========
+
+struct ffi_benchmark_record {
+    jlong timestamp;
+    jint id;
+    jint flags;
+    jlong value;
+    jdouble weight;
+};
+
+extern void ffi_benchmark_fill_records(struct ffi_benchmark_record *, jlong);
+
+/*
+ * Class:     benchmark_StructArrayBenchmark
+ * Method:    sumValues
+ * Signature: (JJ)J
+ */
+JNIEXPORT jlong JNICALL Java_benchmark_StructArrayBenchmark_sumValues
+        (JNIEnv *, jclass, jlong, jlong);
 
 // ========= qsort =========
 
+extern void ffi_benchmark_qsort(jint *, jlong, jint (*)(const void *, const void *));
+
+extern void ffi_benchmark_qsort_r(jint *, jlong, jint (*)(const void *, const void *, void *), void *);
+
 /*
  * Class:     benchmark_QSortBenchmark
  * Method:    qsort